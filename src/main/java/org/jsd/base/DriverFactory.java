@@ -10,10 +10,12 @@ import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.remote.RemoteWebDriver;
 import org.jsd.utils.ConfigReader;
+import org.jsd.utils.ScreencastRecorder;
 import java.net.URL;
 
 public class DriverFactory {
     private static final ThreadLocal<WebDriver> driverThreadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<DriverPool> leasedFromPool = new ThreadLocal<>();
 
     public static WebDriver getDriver(String browserType) {
         if (driverThreadLocal.get() == null) {
@@ -23,7 +25,23 @@ public class DriverFactory {
         return driverThreadLocal.get();
     }
 
-    private static WebDriver createDriver(String browserType) {
+    // Binds a pooled session to the current thread; quitDriver() returns it to the pool
+    public static WebDriver leaseDriver(String browserType) {
+        if (driverThreadLocal.get() == null) {
+            DriverPool pool = DriverPool.forBrowser(browserType);
+            WebDriver driver = pool.lease();
+            ScreencastRecorder.reset(driver); // replay must only show this test
+            driverThreadLocal.set(driver);
+            leasedFromPool.set(pool);
+        }
+        return driverThreadLocal.get();
+    }
+
+    public static WebDriver getCurrentDriver() {
+        return driverThreadLocal.get();
+    }
+
+    static WebDriver createDriver(String browserType) {
         WebDriver driver;
         
         // Check if remote execution is enabled
@@ -39,6 +57,7 @@ public class DriverFactory {
         }
         
         driver.manage().window().maximize();
+        ScreencastRecorder.attach(driver);
         return driver;
     }
     
@@ -77,8 +96,18 @@ public class DriverFactory {
     public static void quitDriver() {
         WebDriver driver = driverThreadLocal.get();
         if (driver != null) {
-            driver.quit();
-            driverThreadLocal.remove();
+            DriverPool pool = leasedFromPool.get();
+            try {
+                if (pool != null) {
+                    pool.release(driver);
+                } else {
+                    ScreencastRecorder.detach(driver);
+                    driver.quit();
+                }
+            } finally {
+                driverThreadLocal.remove();
+                leasedFromPool.remove();
+            }
         }
     }
 }
@@ -0,0 +1,202 @@
+package org.jsd.base;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsd.utils.ConfigReader;
+import org.jsd.utils.ScreencastRecorder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of reusable browser sessions, one pool per browser type.
+ *
+ * A session is leased for one data row and returned afterwards instead of being quit,
+ * so rows running in parallel share a fixed number of browsers. The pool size caps
+ * concurrency: lease() blocks until a session is free.
+ *
+ * Pool size (per browser), first match wins:
+ * 1. driver.pool.size system property or config value, when greater than 0
+ * 2. Number of Grid slots for the browser, read from grid.url/status when remote=true
+ * 3. Number of available processors
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class DriverPool {
+    private static final Logger log = LogManager.getLogger(DriverPool.class);
+    private static final Map<String, DriverPool> pools = new ConcurrentHashMap<>();
+
+    private final String browserType;
+    private final int size;
+    private final Semaphore permits;
+    private final Deque<WebDriver> idle = new ConcurrentLinkedDeque<>();
+    private final Set<WebDriver> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger leased = new AtomicInteger();
+
+    private DriverPool(String browserType, int size) {
+        this.browserType = browserType;
+        this.size = size;
+        this.permits = new Semaphore(size, true);
+    }
+
+    public static DriverPool forBrowser(String browserType) {
+        return pools.computeIfAbsent(browserType.toLowerCase(), b -> {
+            int size = resolvePoolSize(b);
+            log.info("Driver pool for '{}' created with {} sessions", b, size);
+            return new DriverPool(b, size);
+        });
+    }
+
+    /**
+     * Leases a session, blocking while all sessions are in use. Sessions are created lazily.
+     */
+    public WebDriver lease() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a '" + browserType + "' session", e);
+        }
+
+        try {
+            WebDriver driver = idle.pollFirst();
+            if (driver == null) {
+                driver = DriverFactory.createDriver(browserType);
+                sessions.add(driver);
+                log.info("Driver pool '{}' opened session {}/{}", browserType, sessions.size(), size);
+            }
+            leased.incrementAndGet();
+            return driver;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool. Cookies, localStorage and sessionStorage of the current
+     * page's origin are cleared so the next row starts logged out; a session that no longer
+     * responds is quit and replaced on the next lease.
+     */
+    public void release(WebDriver driver) {
+        try {
+            driver.manage().deleteAllCookies();
+            if (driver instanceof JavascriptExecutor js) {
+                // Pages without an origin (about:blank, data:) throw on storage access; nothing to clear there
+                js.executeScript("try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) { }");
+            }
+            ScreencastRecorder.reset(driver);
+            idle.offerFirst(driver);
+        } catch (Exception e) {
+            log.warn("Discarding broken '{}' session: {}", browserType, e.getMessage());
+            sessions.remove(driver);
+            quitQuietly(driver);
+        } finally {
+            leased.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getLeasedCount() {
+        return leased.get();
+    }
+
+    public int getOpenSessionCount() {
+        return sessions.size();
+    }
+
+    public static Map<String, DriverPool> getPools() {
+        return pools;
+    }
+
+    /** Largest configured pool, used as the data provider thread count. */
+    public static int getMaxPoolSize(Set<String> browserTypes) {
+        int max = 1;
+        for (String browserType : browserTypes) {
+            max = Math.max(max, resolvePoolSize(browserType.toLowerCase()));
+        }
+        return max;
+    }
+
+    /** Quits every pooled session. Called once at the end of the suite. */
+    public static void shutdownAll() {
+        for (DriverPool pool : pools.values()) {
+            for (WebDriver driver : pool.sessions) {
+                quitQuietly(driver);
+            }
+            log.info("Driver pool '{}' closed {} sessions", pool.browserType, pool.sessions.size());
+            pool.sessions.clear();
+            pool.idle.clear();
+        }
+        pools.clear();
+    }
+
+    private static void quitQuietly(WebDriver driver) {
+        try {
+            ScreencastRecorder.detach(driver);
+            driver.quit();
+        } catch (Exception e) {
+            log.debug("Failed to quit pooled driver: {}", e.getMessage());
+        }
+    }
+
+    private static int resolvePoolSize(String browserType) {
+        int configured = Integer.parseInt(System.getProperty("driver.pool.size",
+            ConfigReader.getProperty("driver.pool.size", "0")));
+        if (configured > 0) {
+            return configured;
+        }
+
+        boolean isRemote = Boolean.parseBoolean(ConfigReader.getProperty("remote", "false"));
+        String gridUrl = System.getProperty("grid.url", ConfigReader.getProperty("grid.url"));
+        if (isRemote && gridUrl != null) {
+            int gridSlots = countGridSlots(gridUrl, browserType);
+            if (gridSlots > 0) {
+                return gridSlots;
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static int countGridSlots(String gridUrl, String browserType) {
+        String gridBrowserName = browserType.equals("edge") ? "MicrosoftEdge" : browserType;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(gridUrl.replaceAll("/+$", "") + "/status")
+                .toURL().openConnection();
+            connection.setConnectTimeout(3000);
+            connection.setReadTimeout(3000);
+            try (InputStream in = connection.getInputStream()) {
+                JsonNode nodes = new ObjectMapper().readTree(in).path("value").path("nodes");
+                int slots = 0;
+                for (JsonNode node : nodes) {
+                    for (JsonNode slot : node.path("slots")) {
+                        if (gridBrowserName.equalsIgnoreCase(slot.path("stereotype").path("browserName").asText())) {
+                            slots++;
+                        }
+                    }
+                }
+                return slots;
+            }
+        } catch (Exception e) {
+            log.warn("Could not read Grid slots from {}: {}", gridUrl, e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.jsd.utils;
+
+import io.qameta.allure.Allure;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded background pipeline for artifact encoding, disk writes and Allure attachments.
+ *
+ * The test thread only hands over raw bytes; a small executor does the slow work.
+ * - Backpressure: when the queue is full the submitting thread runs the task itself,
+ *   so a burst of failures slows tests down instead of growing memory without bound.
+ * - Barrier: flush() waits until every submitted task has finished. Suite listeners call
+ *   it before reading files or sending email; a shutdown hook calls it on JVM exit.
+ * - Metrics: queue depth (current and peak), completed/failed tasks and task latency
+ *   from submission to completion.
+ *
+ * Allure attachments are registered on the calling thread (so they belong to the right
+ * test) and only their content is written in the background.
+ *
+ * Configuration (system properties override config.properties):
+ * - artifact.pipeline.threads    : worker threads (default 2)
+ * - artifact.pipeline.queue.size : queued tasks before backpressure (default 64)
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class ArtifactPipeline {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ArtifactPipeline.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+
+    private static final AtomicLong fileSequence = new AtomicLong();
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private static final LongAdder completed = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder totalLatencyNanos = new LongAdder();
+    private static final AtomicLong maxLatencyNanos = new AtomicLong();
+    private static final Object flushLock = new Object();
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    /** Unit of background work. */
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /** Point-in-time view of the pipeline counters. */
+    public record Metrics(int queueDepth, int peakQueueDepth, int pending, long completed, long failed,
+                          double averageLatencyMillis, double maxLatencyMillis) { }
+
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = Integer.parseInt(System.getProperty("artifact.pipeline.threads",
+            ConfigReader.getProperty("artifact.pipeline.threads", "2")));
+        int queueSize = Integer.parseInt(System.getProperty("artifact.pipeline.queue.size",
+            ConfigReader.getProperty("artifact.pipeline.queue.size", "64")));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            r -> {
+                Thread t = new Thread(r, "artifact-pipeline-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(Duration.ofSeconds(30)), "artifact-pipeline-flush"));
+        return pool;
+    }
+
+    /**
+     * Queues a task. Runs it on the calling thread when the queue is full.
+     */
+    public static void submit(String description, Task task) {
+        long submittedAt = System.nanoTime();
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                task.run();
+                completed.increment();
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("Artifact task '{}' failed: {}", description, e.getMessage());
+            } finally {
+                long latency = System.nanoTime() - submittedAt;
+                totalLatencyNanos.add(latency);
+                maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (flushLock) {
+                        flushLock.notifyAll();
+                    }
+                }
+            }
+        });
+        peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+    }
+
+    /** Writes bytes to a file in the background, creating parent directories. */
+    public static void writeFile(Path file, byte[] bytes) {
+        submit("write " + file.getFileName(), () -> {
+            Files.createDirectories(file.getParent());
+            Files.write(file, bytes);
+        });
+    }
+
+    /**
+     * Registers an attachment with the current Allure test on the calling thread and
+     * writes its content in the background.
+     */
+    public static void attachToAllure(String name, String type, String extension, byte[] content) {
+        String source = Allure.getLifecycle().prepareAttachment(name, type, extension);
+        submit("attach " + name, () -> Allure.getLifecycle().writeAttachment(source, new ByteArrayInputStream(content)));
+    }
+
+    /**
+     * File name unique within the JVM even for parallel captures in the same millisecond.
+     */
+    public static String uniqueFileName(String baseName, String extension) {
+        return String.format("%s_%s_%d.%s", baseName, LocalDateTime.now().format(FILE_TIMESTAMP),
+            fileSequence.incrementAndGet(), extension);
+    }
+
+    /**
+     * Blocks until every submitted task has finished or the timeout expires.
+     *
+     * @return true if the pipeline is empty
+     */
+    public static boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (flushLock) {
+            while (pending.get() > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    log.warn("Artifact pipeline flush timed out with {} tasks pending", pending.get());
+                    return false;
+                }
+                try {
+                    flushLock.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        Metrics metrics = getMetrics();
+        if (metrics.completed() + metrics.failed() > 0) {
+            log.info("Artifact pipeline flushed: {}", metrics);
+        }
+        return true;
+    }
+
+    public static Metrics getMetrics() {
+        long done = completed.sum() + failed.sum();
+        return new Metrics(executor.getQueue().size(), peakQueueDepth.get(), pending.get(), completed.sum(), failed.sum(),
+            done == 0 ? 0 : totalLatencyNanos.sum() / 1e6 / done, maxLatencyNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,374 @@
+package org.jsd.utils;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Attachment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for screenshots and other test artifacts.
+ *
+ * Artifacts are keyed by the SHA-256 of their content and stored once under
+ * test-output/artifacts/ab/abcdef....png. Screenshots re-encoded with a CapturePolicy are
+ * keyed by the hash of the original capture plus the policy id. When many tests fail on the same broken page,
+ * their identical screenshots share one file, one Allure attachment source and one
+ * email attachment.
+ *
+ * Reference counting: every put() records the owning test (test key or name). release()
+ * drops all references of an owner. An Allure attachment holds its reference only until the
+ * attachment source is written. Retention only ever deletes unreferenced artifacts, so files
+ * used by the current run's reports stay on disk.
+ *
+ * Files are written to a temporary sibling and moved into place atomically, so a crash never
+ * leaves a truncated file that a later run would reuse by its hash. Looking up an entry and
+ * recording its owner happen under the same lock as retention, which therefore never deletes
+ * a file that store() has just matched. When writing fails (the encoder throws, the disk is full)
+ * the entry is removed again, so the next store() of that content writes it instead of
+ * returning a path that does not exist.
+ *
+ * Retention: the store survives between runs (files from earlier runs are indexed with no
+ * references). When the store grows beyond artifact.store.max.mb, unreferenced artifacts
+ * are deleted, least recently used first.
+ *
+ * Configuration (system properties override config.properties):
+ * - artifact.store.dir    : store root (default test-output/artifacts)
+ * - artifact.store.max.mb : size budget in MB (default 512, 0 = unbounded)
+ *
+ * Usage:
+ * ArtifactStore.StoredArtifact stored = ArtifactStore.put(pngBytes, "png", testKey);
+ * ArtifactStore.attachToAllure(pngBytes, "Failure Screenshot", CapturePolicy.forScope("allure"), testKey);
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class ArtifactStore {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ArtifactStore.class);
+
+    private static final Path root = Paths.get(System.getProperty("artifact.store.dir",
+        ConfigReader.getProperty("artifact.store.dir", "test-output/artifacts")));
+    private static final long maxBytes = Long.parseLong(System.getProperty("artifact.store.max.mb",
+        ConfigReader.getProperty("artifact.store.max.mb", "512"))) * 1024 * 1024;
+
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Content hash to Allure attachment source for the current allure-results directory */
+    private static final Map<String, String> allureSources = new ConcurrentHashMap<>();
+    private static final AtomicLong totalBytes = new AtomicLong();
+    private static final AtomicLong duplicates = new AtomicLong();
+    private static final AtomicLong bytesSaved = new AtomicLong();
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static {
+        indexExistingArtifacts();
+    }
+
+    /** A stored artifact: content key (SHA-256, plus the encoding for re-encoded screenshots) and file. */
+    public record StoredArtifact(String hash, Path path) { }
+
+    @FunctionalInterface
+    private interface Content {
+        byte[] get() throws IOException;
+    }
+
+    private static final class Entry {
+        final StoredArtifact artifact;
+        final Set<String> owners = ConcurrentHashMap.newKeySet();
+        volatile long size;
+        volatile long lastAccess;
+        /** Set until the pipeline has moved the file into place */
+        volatile boolean pending;
+
+        Entry(StoredArtifact artifact, long size, long lastAccess) {
+            this.artifact = artifact;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Stores content once and records a reference from the owner.
+     * New content is written by the ArtifactPipeline; the file exists after ArtifactPipeline.flush().
+     *
+     * @param content Artifact bytes
+     * @param extension File extension without the dot, e.g. "png"
+     * @param owner Test that references the artifact
+     * @return The stored artifact, shared by every test with identical content
+     */
+    public static StoredArtifact put(byte[] content, String extension, String owner) {
+        return store(sha256(content), extension, () -> content, owner);
+    }
+
+    /**
+     * Stores a PNG capture encoded with the given policy. Encoding runs on the ArtifactPipeline;
+     * identical captures with the same policy are encoded and stored once.
+     */
+    public static StoredArtifact put(byte[] png, CapturePolicy policy, String owner) {
+        return store(keyFor(png, policy), policy.format().getExtension(), encoder(png, policy), owner);
+    }
+
+    /**
+     * Attaches content to the current Allure test. Identical content attached by several tests
+     * points at a single attachment source file in allure-results. The content is also kept
+     * in the store; the returned artifact points at that copy.
+     */
+    public static StoredArtifact attachToAllure(byte[] content, String name, String type, String extension, String owner) {
+        return attach(sha256(content), name, type, extension, () -> content, owner);
+    }
+
+    /**
+     * Attaches a PNG capture encoded with the given policy, e.g. a downscaled JPEG.
+     */
+    public static StoredArtifact attachToAllure(byte[] png, String name, CapturePolicy policy, String owner) {
+        return attach(keyFor(png, policy), name, policy.format().getMimeType(), policy.format().getExtension(),
+            encoder(png, policy), owner);
+    }
+
+    private static StoredArtifact attach(String key, String name, String type, String extension, Content content,
+                                         String owner) {
+        StoredArtifact stored = store(key, extension, content, owner);
+        String source = allureSources.get(key);
+        if (source != null && addAttachmentReference(name, type, source)) {
+            release(key, owner);
+            return stored;
+        }
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        String newSource = lifecycle.prepareAttachment(name, type, extension);
+        allureSources.putIfAbsent(key, newSource);
+        ArtifactPipeline.submit("attach " + name, () -> {
+            try {
+                lifecycle.writeAttachment(newSource, new ByteArrayInputStream(content.get()));
+            } finally {
+                // Published: Allure has its own copy of the content
+                release(key, owner);
+            }
+        });
+        return stored;
+    }
+
+    private static StoredArtifact store(String key, String extension, Content content, String owner) {
+        Entry entry;
+        boolean created = false;
+        // Same lock as enforceRetention(): a matched entry gets its owner before retention can see it
+        synchronized (ArtifactStore.class) {
+            entry = entries.get(key);
+            if (entry == null) {
+                Path path = root.resolve(key.substring(0, 2)).resolve(key + "." + extension);
+                entry = new Entry(new StoredArtifact(key, path), 0, System.currentTimeMillis());
+                entry.pending = true;
+                entries.put(key, entry);
+                created = true;
+            }
+            entry.owners.add(owner);
+            entry.lastAccess = System.currentTimeMillis();
+        }
+
+        if (created) {
+            Entry written = entry;
+            ArtifactPipeline.submit("store " + key.substring(0, 12), () -> {
+                byte[] bytes;
+                try {
+                    bytes = content.get();
+                    Path path = written.artifact.path();
+                    Files.createDirectories(path.getParent());
+                    Path temp = Files.createTempFile(path.getParent(), key.substring(0, 12), TEMP_SUFFIX);
+                    try {
+                        Files.write(temp, bytes);
+                        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } finally {
+                        Files.deleteIfExists(temp);
+                    }
+                } catch (Exception e) {
+                    // Nothing on disk: forget the entry so the next store() of this content writes it again
+                    synchronized (ArtifactStore.class) {
+                        entries.remove(key, written);
+                    }
+                    throw e;
+                }
+                written.size = bytes.length;
+                written.pending = false;
+                if (maxBytes > 0 && totalBytes.addAndGet(bytes.length) > maxBytes) {
+                    enforceRetention();
+                }
+            });
+        } else {
+            duplicates.incrementAndGet();
+            bytesSaved.addAndGet(entry.size);
+            log.debug("Artifact {} already stored, referenced by {}", key.substring(0, 12), owner);
+        }
+        return entry.artifact;
+    }
+
+    private static String keyFor(byte[] png, CapturePolicy policy) {
+        String hash = sha256(png);
+        return policy.isPassThrough() ? hash : hash + "-" + policy.id();
+    }
+
+    /** Encodes at most once, even when both the store and an Allure attachment need the bytes. */
+    private static Content encoder(byte[] png, CapturePolicy policy) {
+        byte[][] encoded = new byte[1][];
+        return () -> {
+            synchronized (encoded) {
+                if (encoded[0] == null) {
+                    encoded[0] = ScreenshotEncoder.encode(png, policy);
+                }
+                return encoded[0];
+            }
+        };
+    }
+
+    /** Drops every reference held by the owner; its artifacts become eligible for retention. */
+    public static void release(String owner) {
+        for (Entry entry : entries.values()) {
+            entry.owners.remove(owner);
+        }
+    }
+
+    private static void release(String key, String owner) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.owners.remove(owner);
+        }
+    }
+
+    public static int getReferenceCount(String hash) {
+        Entry entry = entries.get(hash);
+        return entry == null ? 0 : entry.owners.size();
+    }
+
+    /**
+     * Forgets Allure attachment sources. Called when allure-results is wiped so later
+     * attachments are written again instead of pointing at deleted files.
+     */
+    public static void resetAllureSources() {
+        allureSources.clear();
+    }
+
+    public static Path getRoot() {
+        return root;
+    }
+
+    public static void logSummary() {
+        log.info("Artifact store: {} artifacts, {} KB on disk, {} duplicates avoided ({} KB saved)",
+            entries.size(), totalBytes.get() / 1024, duplicates.get(), bytesSaved.get() / 1024);
+    }
+
+    private static boolean addAttachmentReference(String name, String type, String source) {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        Optional<String> current = lifecycle.getCurrentTestCaseOrStep();
+        if (current.isEmpty()) {
+            return false;
+        }
+        Attachment attachment = new Attachment().setName(name).setType(type).setSource(source);
+        if (current.equals(lifecycle.getCurrentTestCase())) {
+            lifecycle.updateTestCase(current.get(), result -> result.getAttachments().add(attachment));
+        } else {
+            lifecycle.updateStep(current.get(), step -> step.getAttachments().add(attachment));
+        }
+        return true;
+    }
+
+    /**
+     * Deletes unreferenced artifacts, least recently used first, until the store fits the budget.
+     */
+    private static synchronized void enforceRetention() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.owners.isEmpty() && !entry.pending) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(e -> e.lastAccess));
+
+        int evicted = 0;
+        for (Entry entry : candidates) {
+            if (totalBytes.get() <= maxBytes) {
+                break;
+            }
+            if (!entry.owners.isEmpty() || !entries.remove(entry.artifact.hash(), entry)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(entry.artifact.path());
+            } catch (IOException e) {
+                log.debug("Failed to delete artifact {}: {}", entry.artifact.path(), e.getMessage());
+            }
+            totalBytes.addAndGet(-entry.size);
+            evicted++;
+        }
+
+        if (evicted > 0) {
+            log.info("Artifact store retention removed {} artifacts, {} KB remain", evicted, totalBytes.get() / 1024);
+        }
+        if (totalBytes.get() > maxBytes) {
+            log.warn("Artifact store is {} KB, above its {} KB budget, but all remaining artifacts are referenced",
+                totalBytes.get() / 1024, maxBytes / 1024);
+        }
+    }
+
+    private static void indexExistingArtifacts() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    // Left behind by an interrupted write; the artifact itself was never moved into place
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        log.debug("Failed to delete partial artifact {}: {}", file, e.getMessage());
+                    }
+                    return;
+                }
+                int dot = fileName.indexOf('.');
+                String hash = dot > 0 ? fileName.substring(0, dot) : fileName;
+                try {
+                    long size = Files.size(file);
+                    entries.put(hash, new Entry(new StoredArtifact(hash, file), size,
+                        Files.getLastModifiedTime(file).toMillis()));
+                    totalBytes.addAndGet(size);
+                } catch (IOException e) {
+                    log.debug("Skipping unreadable artifact {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to index artifact store {}: {}", root, e.getMessage());
+        }
+        log.debug("Indexed {} existing artifacts ({} KB)", entries.size(), totalBytes.get() / 1024);
+        if (maxBytes > 0) {
+            enforceRetention();
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
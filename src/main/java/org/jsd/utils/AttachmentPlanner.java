@@ -0,0 +1,374 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Decides how failure screenshots go into a report email so it stays small however many tests fail.
+ *
+ * Every screenshot gets a small JPEG thumbnail (made in parallel) that is shown inline in the
+ * mail body; the full images are packed into one ZIP attachment, streamed from disk entry by
+ * entry. Identical screenshots are attached once. When thumbnails and archive together exceed
+ * the size budget (counted as Base64-encoded bytes, which is what mail gateways see), the
+ * largest full images are left out of the archive first, then the largest thumbnails. Every
+ * item that was left out gets a note for the report, and so does a screenshot that is missing
+ * or unreadable (evicted by retention, removed by cleanup, absent from a downloaded shard);
+ * it never fails the email.
+ *
+ * The budget is checked again against what is really sent: the archive is measured once written,
+ * and {@link #fitBody} adds the rendered HTML body. When they exceed the budget the archive is
+ * dropped and the full images are linked from the notes instead (then the thumbnails go too).
+ *
+ * Configuration (system properties override config.properties):
+ * - email.attachments.max.mb : size budget for inline thumbnails plus archive (default 10)
+ * - email.thumbnail.width    : thumbnail width in pixels (default 320)
+ *
+ * Usage:
+ * AttachmentPlanner planner = AttachmentPlanner.fromConfig();
+ * AttachmentPlanner.Plan plan = planner.plan(sources, reportDir.resolve("screenshots.zip"));
+ * // render the body with the plan, then:
+ * AttachmentPlanner.Plan fitted = planner.fitBody(plan, Files.size(body)); // re-render if it changed
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class AttachmentPlanner {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(AttachmentPlanner.class);
+
+    /** A screenshot to plan for. */
+    public record Source(String name, Path file) { }
+
+    /**
+     * How one screenshot is sent.
+     *
+     * @param thumbnail JPEG thumbnail sent inline, or null when it was left out or is a duplicate
+     * @param contentId Content-ID of the inline thumbnail; duplicates share the first one's, null
+     *                  when the screenshot could not be read
+     * @param archived Whether the full image is in the archive
+     * @param note Why something was left out, or null
+     */
+    public record Attachment(String name, Path file, long fileBytes, byte[] thumbnail, String contentId,
+                             boolean archived, String note) { }
+
+    /**
+     * @param archive ZIP with the full images, or null when none are included
+     * @param totalBytes Encoded size of thumbnails plus archive
+     * @param notes One line per item that was left out or merged, for the report
+     */
+    public record Plan(List<Attachment> attachments, Path archive, long archiveBytes, long totalBytes,
+                       List<String> notes) {
+        public static Plan empty() {
+            return new Plan(List.of(), null, 0, 0, List.of());
+        }
+
+        /** The attachment planned for a screenshot file, or null. */
+        public Attachment find(Path file) {
+            for (Attachment attachment : attachments) {
+                if (attachment.file().equals(file)) {
+                    return attachment;
+                }
+            }
+            return null;
+        }
+
+        /** Content-ID of the inline thumbnail to show for a screenshot file, or null if none is sent. */
+        public String thumbnailId(Path file) {
+            Attachment attachment = find(file);
+            if (attachment == null) {
+                return null;
+            }
+            for (Attachment candidate : attachments) {
+                if (candidate.thumbnail() != null && candidate.contentId().equals(attachment.contentId())) {
+                    return attachment.contentId();
+                }
+            }
+            return null;
+        }
+    }
+
+    /** A screenshot read for planning; unavailable says why it could not be read, hash is then null. */
+    private record Prepared(Source source, long size, String hash, byte[] thumbnail, String unavailable) { }
+
+    private final long budgetBytes;
+    private final CapturePolicy thumbnailPolicy;
+
+    public AttachmentPlanner(long budgetBytes, int thumbnailWidth) {
+        this.budgetBytes = budgetBytes;
+        this.thumbnailPolicy = new CapturePolicy(CapturePolicy.Format.JPEG, 1, 0.7f, thumbnailWidth,
+            thumbnailWidth * 2); // full-page captures would otherwise give very tall previews
+    }
+
+    public static AttachmentPlanner fromConfig() {
+        double megabytes = Double.parseDouble(setting("email.attachments.max.mb", "10"));
+        return new AttachmentPlanner((long) (megabytes * 1024 * 1024),
+            Integer.parseInt(setting("email.thumbnail.width", "320")));
+    }
+
+    /**
+     * Plans the attachments and writes the archive of the included full images.
+     *
+     * @param archiveFile Where to write the ZIP; not created when no full image fits the budget
+     */
+    public Plan plan(List<Source> sources, Path archiveFile) throws IOException {
+        if (sources.isEmpty()) {
+            return Plan.empty();
+        }
+        long start = System.nanoTime();
+        List<Prepared> prepared = sources.parallelStream().map(this::prepare).toList();
+
+        // Identical screenshots (same page failing in several tests) are sent once
+        List<String> notes = new ArrayList<>();
+        Map<String, String> contentIds = new HashMap<>();
+        Map<String, String> firstNames = new HashMap<>();
+        List<Prepared> unique = new ArrayList<>();
+        List<Attachment> duplicates = new ArrayList<>();
+        List<Attachment> unavailable = new ArrayList<>();
+        for (Prepared item : prepared) {
+            if (item.hash() == null) {
+                String note = item.source().name() + ": screenshot not available (" + item.unavailable() + ")";
+                notes.add(note);
+                unavailable.add(new Attachment(item.source().name(), item.source().file(), 0, null, null, false, note));
+                continue;
+            }
+            String first = firstNames.putIfAbsent(item.hash(), item.source().name());
+            if (first == null) {
+                contentIds.put(item.hash(), "screenshot-" + (unique.size() + 1));
+                unique.add(item);
+            } else {
+                String note = item.source().name() + ": same screenshot as " + first + ", attached once";
+                notes.add(note);
+                duplicates.add(new Attachment(item.source().name(), item.source().file(), item.size(), null,
+                    contentIds.get(item.hash()), false, note));
+            }
+        }
+
+        // Largest items go first until thumbnails and archive fit the budget
+        Set<Prepared> withoutImage = new HashSet<>();
+        Set<Prepared> withoutThumbnail = new HashSet<>();
+        long total = 0;
+        for (Prepared item : unique) {
+            total += encoded(item.size()) + (item.thumbnail() == null ? 0 : encoded(item.thumbnail().length));
+        }
+        List<Prepared> bySize = new ArrayList<>(unique);
+        bySize.sort(Comparator.comparingLong(Prepared::size).reversed());
+        for (Prepared item : bySize) {
+            if (total <= budgetBytes) {
+                break;
+            }
+            withoutImage.add(item);
+            total -= encoded(item.size());
+        }
+        bySize.sort(Comparator.comparingInt((Prepared item) -> item.thumbnail() == null ? 0 : item.thumbnail().length)
+            .reversed());
+        for (Prepared item : bySize) {
+            if (total <= budgetBytes || item.thumbnail() == null) {
+                break;
+            }
+            withoutThumbnail.add(item);
+            total -= encoded(item.thumbnail().length);
+        }
+
+        List<Attachment> attachments = new ArrayList<>();
+        for (Prepared item : unique) {
+            String note = null;
+            if (withoutImage.contains(item) && withoutThumbnail.contains(item)) {
+                note = item.source().name() + ": left out (" + item.size() / 1024 + " KB) to keep the email under "
+                    + budgetLabel() + "; see the saved report";
+            } else if (withoutImage.contains(item)) {
+                note = item.source().name() + ": full screenshot left out (" + item.size() / 1024
+                    + " KB) to keep the email under " + budgetLabel();
+            } else if (item.thumbnail() == null) {
+                note = item.source().name() + ": no preview available";
+            }
+            if (note != null) {
+                notes.add(note);
+            }
+            attachments.add(new Attachment(item.source().name(), item.source().file(), item.size(),
+                withoutThumbnail.contains(item) ? null : item.thumbnail(), contentIds.get(item.hash()),
+                !withoutImage.contains(item), note));
+        }
+        attachments.addAll(duplicates);
+        attachments.addAll(unavailable);
+
+        Path archive = writeArchive(attachments, archiveFile);
+        long archiveBytes = archive == null ? 0 : Files.size(archive);
+        long totalBytes = encoded(archiveBytes) + thumbnailBytes(attachments);
+        if (archive != null && totalBytes > budgetBytes) {
+            // The estimate used the image sizes; the written ZIP (headers included) is what is sent
+            Plan linked = withoutArchive(new Plan(attachments, archive, archiveBytes, totalBytes, notes));
+            attachments = new ArrayList<>(linked.attachments());
+            notes = new ArrayList<>(linked.notes());
+            archive = null;
+            archiveBytes = 0;
+            totalBytes = linked.totalBytes();
+        }
+        log.info("Planned {} screenshots: {} inline thumbnails, {} archived ({} KB), {} KB encoded in {} ms",
+            sources.size(), attachments.stream().filter(a -> a.thumbnail() != null).count(),
+            attachments.stream().filter(Attachment::archived).count(), archiveBytes / 1024, totalBytes / 1024,
+            (System.nanoTime() - start) / 1_000_000);
+        return new Plan(List.copyOf(attachments), archive, archiveBytes, totalBytes, List.copyOf(notes));
+    }
+
+    /**
+     * Checks the plan against the budget with the rendered HTML body counted. Drops the archive
+     * first, so the full images are linked instead of attached, then the inline thumbnails.
+     *
+     * @param bodyBytes Size of the rendered body
+     * @return The plan itself when everything fits; otherwise a smaller plan to render the body with again
+     */
+    public Plan fitBody(Plan plan, long bodyBytes) throws IOException {
+        long body = encoded(bodyBytes);
+        Plan fitted = plan;
+        if (fitted.archive() != null && fitted.totalBytes() + body > budgetBytes) {
+            fitted = withoutArchive(fitted);
+        }
+        if (fitted.totalBytes() > 0 && fitted.totalBytes() + body > budgetBytes) {
+            List<Attachment> attachments = new ArrayList<>();
+            List<String> notes = new ArrayList<>(fitted.notes());
+            for (Attachment attachment : fitted.attachments()) {
+                if (attachment.thumbnail() == null) {
+                    attachments.add(attachment);
+                    continue;
+                }
+                String note = attachment.name() + ": preview left out to keep the email under " + budgetLabel();
+                notes.add(note);
+                attachments.add(new Attachment(attachment.name(), attachment.file(), attachment.fileBytes(), null,
+                    attachment.contentId(), attachment.archived(), note));
+            }
+            fitted = new Plan(List.copyOf(attachments), null, 0, 0, List.copyOf(notes));
+        }
+        if (fitted != plan) {
+            log.info("Email body ({} KB) and attachments exceed {}; {} KB attached after linking instead",
+                bodyBytes / 1024, budgetLabel(), fitted.totalBytes() / 1024);
+        }
+        return fitted;
+    }
+
+    /** The plan with its archive deleted and each archived image linked from a note instead. */
+    private Plan withoutArchive(Plan plan) throws IOException {
+        Files.deleteIfExists(plan.archive());
+        List<Attachment> attachments = new ArrayList<>();
+        List<String> notes = new ArrayList<>(plan.notes());
+        for (Attachment attachment : plan.attachments()) {
+            if (!attachment.archived()) {
+                attachments.add(attachment);
+                continue;
+            }
+            String note = attachment.name() + ": full screenshot not attached to keep the email under "
+                + budgetLabel() + "; " + attachment.file().toAbsolutePath().toUri();
+            notes.add(note);
+            attachments.add(new Attachment(attachment.name(), attachment.file(), attachment.fileBytes(),
+                attachment.thumbnail(), attachment.contentId(), false, note));
+        }
+        return new Plan(List.copyOf(attachments), null, 0, thumbnailBytes(attachments), List.copyOf(notes));
+    }
+
+    private static long thumbnailBytes(List<Attachment> attachments) {
+        long bytes = 0;
+        for (Attachment attachment : attachments) {
+            bytes += attachment.thumbnail() == null ? 0 : encoded(attachment.thumbnail().length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Hashes the file and makes its thumbnail; runs on the common ForkJoin pool. A file that
+     * cannot be read comes back without a hash, to be noted instead of attached.
+     */
+    private Prepared prepare(Source source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] content;
+            try (InputStream in = new DigestInputStream(Files.newInputStream(source.file()), digest)) {
+                content = in.readAllBytes();
+            }
+            byte[] thumbnail = null;
+            try {
+                thumbnail = ScreenshotEncoder.encode(ScreenshotEncoder.decode(content), thumbnailPolicy);
+            } catch (IOException | RuntimeException e) {
+                log.warn("No thumbnail for {}: {}", source.file().getFileName(), e.getMessage());
+            }
+            return new Prepared(source, content.length, HexFormat.of().formatHex(digest.digest()), thumbnail, null);
+        } catch (IOException e) {
+            log.warn("Screenshot {} not attached: {}", source.file(), e.toString());
+            return new Prepared(source, 0, null, null, e instanceof NoSuchFileException ? "file missing" : e.getMessage());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Streams the archived images into a ZIP, one entry at a time; null if there are none. */
+    private static Path writeArchive(List<Attachment> attachments, Path archiveFile) throws IOException {
+        if (attachments.stream().noneMatch(Attachment::archived)) {
+            return null;
+        }
+        Files.createDirectories(archiveFile.toAbsolutePath().getParent());
+        Set<String> entryNames = new HashSet<>();
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archiveFile))) {
+            // Screenshots are PNG/JPEG and hardly compress further; favour speed
+            zip.setLevel(Deflater.BEST_SPEED);
+            for (Attachment attachment : attachments) {
+                if (!attachment.archived()) {
+                    continue;
+                }
+                InputStream in;
+                try {
+                    in = Files.newInputStream(attachment.file());
+                } catch (IOException e) {
+                    // Removed since it was planned; the rest of the archive is still worth sending
+                    log.warn("Screenshot {} left out of the archive: {}", attachment.file(), e.toString());
+                    continue;
+                }
+                String fileName = attachment.file().getFileName().toString();
+                String extension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+                String base = attachment.name().replaceAll("[^A-Za-z0-9._-]+", "_");
+                String entryName = base + extension;
+                for (int n = 2; !entryNames.add(entryName); n++) {
+                    entryName = base + "-" + n + extension;
+                }
+                zip.putNextEntry(new ZipEntry(entryName));
+                try (in) {
+                    in.transferTo(zip);
+                }
+                zip.closeEntry();
+            }
+        }
+        return archiveFile;
+    }
+
+    private String budgetLabel() {
+        return budgetBytes < 1024 * 1024
+            ? budgetBytes / 1024 + " KB"
+            : String.format("%.1f MB", budgetBytes / (1024.0 * 1024));
+    }
+
+    /** Size after Base64 transfer encoding. */
+    private static long encoded(long bytes) {
+        return (bytes + 2) / 3 * 4;
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
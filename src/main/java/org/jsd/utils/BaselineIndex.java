@@ -0,0 +1,302 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of visual baselines keyed by test name, browser and screenshot size, with perceptual hashes.
+ *
+ * Each key ("login-page@chrome@1920x1080") points at a baseline image in the shared/ directory,
+ * named after its content hash. Baselines are stored once: a new baseline whose pixels are
+ * identical to an existing one reuses that image instead of adding a copy, so Chrome and Edge
+ * rendering the same page share one file (and its .tiles/.raster sidecars). Only baselines with
+ * equal perceptual hashes are decoded for that check. The hashes never decide a comparison: they
+ * find the nearest baseline of a test whose screenshot size changed (see {@link #otherViewport})
+ * and describe how far a failing screenshot is from its baseline.
+ *
+ * The index lives in baseline-index.json next to the baselines. Changes are made under a file
+ * lock and written atomically, so parallel forks sharing the directory do not lose entries.
+ * Unkeyed baselines from before the index ("name.png") are adopted by the first key that asks.
+ *
+ * Usage:
+ * BaselineIndex index = BaselineIndex.open(Paths.get("test-output/visual-baselines"));
+ * Path baseline = index.resolve(BaselineIndex.Key.of("login-page", driver, screenshot));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class BaselineIndex {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(BaselineIndex.class);
+
+    private static final String INDEX_FILE = "baseline-index.json";
+    private static final String LOCK_FILE = ".baseline-index.lock";
+    private static final String SHARED_DIR = "shared";
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Map<Path, BaselineIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Identifies one baseline. The viewport is the screenshot size in device pixels.
+     */
+    public record Key(String name, String browser, String viewport) {
+        private static final char SEPARATOR = '@';
+
+        public static Key of(String name, WebDriver driver, BufferedImage screenshot) {
+            String browser = driver instanceof HasCapabilities capable
+                ? capable.getCapabilities().getBrowserName().toLowerCase(Locale.ROOT)
+                : "";
+            return new Key(name, browser.isEmpty() ? "unknown" : browser,
+                screenshot.getWidth() + "x" + screenshot.getHeight());
+        }
+
+        /** Parses a file stem; a stem without browser and viewport is an unkeyed (legacy) name. */
+        public static Key parse(String stem) {
+            String[] parts = stem.split(String.valueOf(SEPARATOR));
+            return parts.length == 3 ? new Key(parts[0], parts[1], parts[2]) : new Key(stem, "", "");
+        }
+
+        /** File stem: "name@browser@WxH", or just the name for an unkeyed baseline. */
+        public String stem() {
+            return browser.isEmpty() ? name : name + SEPARATOR + browser + SEPARATOR + viewport;
+        }
+    }
+
+    /** An indexed baseline: its key, the image file relative to the index directory and its hash. */
+    public record Entry(Key key, String file, PerceptualHash hash) { }
+
+    /** A baseline and its distance from a looked-up hash. */
+    public record Match(Entry entry, int distance) { }
+
+    private final Path dir;
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new TreeMap<>();
+    private long loadedModified = -1;
+
+    private BaselineIndex(Path dir) {
+        this.dir = dir;
+        this.indexFile = dir.resolve(INDEX_FILE);
+    }
+
+    /** The index of a baseline directory; one instance per directory. */
+    public static BaselineIndex open(Path dir) {
+        return indexes.computeIfAbsent(dir.toAbsolutePath().normalize(), BaselineIndex::new);
+    }
+
+    /**
+     * Baseline image of a key, or null when there is none. An unkeyed "name.png" that no other
+     * key uses yet is adopted for this key.
+     */
+    public synchronized Path resolve(Key key) throws IOException {
+        reload();
+        Entry entry = entries.get(key.stem());
+        if (entry != null) {
+            return dir.resolve(entry.file());
+        }
+        String legacy = key.name() + ".png";
+        if (key.browser().isEmpty() || !Files.exists(dir.resolve(legacy)) || referenced(legacy)) {
+            return null;
+        }
+        PerceptualHash hash = PerceptualHash.of(BaselineStore.load(dir.resolve(legacy)));
+        update(() -> entries.put(key.stem(), new Entry(key, legacy, hash)));
+        log.info("Adopted unkeyed baseline {} for '{}'", legacy, key.stem());
+        return dir.resolve(legacy);
+    }
+
+    /**
+     * Hamming distance between an actual screenshot and its key's baseline, or -1 without one.
+     */
+    public synchronized int distance(Key key, PerceptualHash actual) throws IOException {
+        reload();
+        Entry entry = entries.get(key.stem());
+        return entry == null ? -1 : entry.hash().distance(actual);
+    }
+
+    /**
+     * Baselines closest to a hash, nearest first, optionally only those of one test name.
+     */
+    public synchronized List<Match> nearest(PerceptualHash hash, String name, int limit) throws IOException {
+        reload();
+        List<Match> matches = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (name == null || entry.key().name().equals(name)) {
+                matches.add(new Match(entry, entry.hash().distance(hash)));
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::distance));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Nearest baseline of the same test name and browser stored for another viewport, or null.
+     * A key without a baseline of its own but with such a match means the screenshot size changed.
+     */
+    public synchronized Match otherViewport(Key key, PerceptualHash hash) throws IOException {
+        for (Match match : nearest(hash, key.name(), Integer.MAX_VALUE)) {
+            Key other = match.entry().key();
+            if (other.browser().equals(key.browser()) && !other.viewport().equals(key.viewport())) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the baseline of a key, sharing the image of a near-identical existing baseline when
+     * there is one, and removes the previous image if no other key uses it.
+     *
+     * @return The baseline image path now used by the key
+     */
+    public synchronized Path store(Key key, byte[] png, BufferedImage image, TileHashes tiles) throws IOException {
+        PerceptualHash hash = PerceptualHash.of(image);
+        String[] file = new String[1];
+        update(() -> {
+            Entry previous = entries.remove(key.stem());
+            file[0] = shareable(image, hash);
+            if (file[0] == null) {
+                file[0] = SHARED_DIR + "/" + contentName(png) + ".png";
+                Path target = dir.resolve(file[0]);
+                if (!Files.exists(target)) {
+                    BaselineStore.save(target, png, image, tiles);
+                }
+            }
+            entries.put(key.stem(), new Entry(key, file[0], hash));
+            if (previous != null && !previous.file().equals(file[0]) && !referenced(previous.file())) {
+                deleteImage(dir.resolve(previous.file()));
+            }
+        });
+        return dir.resolve(file[0]);
+    }
+
+    public synchronized int size() throws IOException {
+        reload();
+        return entries.size();
+    }
+
+    /** File of an existing baseline with identical pixels, or null. */
+    private String shareable(BufferedImage image, PerceptualHash hash) throws IOException {
+        for (Entry candidate : entries.values()) {
+            // Identical images hash alike; any other baseline is not worth decoding
+            if (candidate.hash().distance(hash) != 0) {
+                continue;
+            }
+            Path file = dir.resolve(candidate.file());
+            if (!Files.exists(file)) {
+                continue;
+            }
+            BufferedImage existing = BaselineStore.load(file);
+            if (existing.getWidth() != image.getWidth() || existing.getHeight() != image.getHeight()) {
+                continue;
+            }
+            if (ImageComparator.compare(existing, image, false).diffPixels() == 0) {
+                log.info("Baseline shares {} with '{}' (identical pixels)", candidate.file(), candidate.key().stem());
+                return candidate.file();
+            }
+        }
+        return null;
+    }
+
+    private boolean referenced(String file) {
+        for (Entry entry : entries.values()) {
+            if (entry.file().equals(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteImage(Path image) throws IOException {
+        BaselineStore.invalidate(image);
+        Files.deleteIfExists(image);
+        Files.deleteIfExists(TileHashes.sidecarFor(image));
+        Files.deleteIfExists(BaselineStore.rasterFor(image));
+        log.debug("Removed unused baseline image {}", image.getFileName());
+    }
+
+    private interface Change {
+        void apply() throws IOException;
+    }
+
+    /** Applies a change to the freshest index under the directory lock and writes it back. */
+    private void update(Change change) throws IOException {
+        Files.createDirectories(dir);
+        try (FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.lock(); // released when the channel closes
+            loadedModified = -1; // another process may have written within the same millisecond
+            reload();
+            change.apply();
+            write();
+        }
+    }
+
+    /** Re-reads the index if another process changed it since it was loaded. */
+    private void reload() throws IOException {
+        long modified = Files.exists(indexFile) ? Files.getLastModifiedTime(indexFile).toMillis() : 0;
+        if (modified == loadedModified) {
+            return;
+        }
+        entries.clear();
+        if (modified != 0) {
+            JsonNode json = mapper.readTree(indexFile.toFile());
+            Iterator<Map.Entry<String, JsonNode>> fields = json.path("baselines").fields();
+            while (fields.hasNext()) {
+                JsonNode node = fields.next().getValue();
+                Key key = new Key(node.path("name").asText(), node.path("browser").asText(),
+                    node.path("viewport").asText());
+                entries.put(key.stem(), new Entry(key, node.path("file").asText(),
+                    PerceptualHash.parse(node.path("hash").asText())));
+            }
+        }
+        loadedModified = modified;
+    }
+
+    private void write() throws IOException {
+        ObjectNode json = mapper.createObjectNode();
+        json.put("version", 1);
+        ObjectNode baselines = json.putObject("baselines");
+        for (Entry entry : entries.values()) {
+            baselines.putObject(entry.key().stem())
+                .put("name", entry.key().name())
+                .put("browser", entry.key().browser())
+                .put("viewport", entry.key().viewport())
+                .put("file", entry.file())
+                .put("hash", entry.hash().toString());
+        }
+        Path temp = Files.createTempFile(dir, INDEX_FILE, ".tmp");
+        mapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), json);
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        loadedModified = Files.getLastModifiedTime(indexFile).toMillis();
+    }
+
+    private static String contentName(byte[] png) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(png), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
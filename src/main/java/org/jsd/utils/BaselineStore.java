@@ -0,0 +1,315 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decoded visual baselines, shared by all threads and retries of a run.
+ *
+ * Baselines are cached as TYPE_INT_ARGB images in a bounded LRU keyed by the baseline's path
+ * and the SHA-256 of its file, so a replaced baseline is never served stale. The file hash is
+ * remembered per (size, modification time), which makes a cache hit cost one stat call.
+ * Concurrent requests for the same baseline wait for a single load.
+ *
+ * On a miss the baseline is read from its ".raster" sidecar when one matches the file hash:
+ * a 48 byte header followed by the raw little-endian ARGB pixels, memory-mapped and copied
+ * straight into the image's int[]. Otherwise the PNG is decoded once and the sidecar is written
+ * on the ArtifactPipeline for the next run.
+ *
+ * Cached images are shared; callers must not modify them.
+ *
+ * Configuration (system properties override config.properties):
+ * - visual.baseline.cache.mb : memory budget of decoded baselines (default 256, 0 = no caching)
+ * - visual.baseline.raster   : write and read .raster sidecars (default true)
+ *
+ * Usage:
+ * BufferedImage baseline = BaselineStore.load(Paths.get("test-output/visual-baselines/home.png"));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class BaselineStore {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(BaselineStore.class);
+
+    private static final String RASTER_EXTENSION = ".raster";
+    private static final int MAGIC = 0x4A534452; // "JSDR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 32;
+
+    private static final long maxBytes = Long.parseLong(setting("visual.baseline.cache.mb", "256")) * 1024 * 1024;
+    private static final boolean rasterSidecars = Boolean.parseBoolean(setting("visual.baseline.raster", "true"));
+
+    private record Key(Path path, String hash) { }
+
+    private record FileStamp(long size, long modified, String hash) { }
+
+    private static final LinkedHashMap<Key, BufferedImage> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Map<Key, CompletableFuture<BufferedImage>> loading = new ConcurrentHashMap<>();
+    private static final Map<Path, FileStamp> stamps = new ConcurrentHashMap<>();
+    private static long cachedBytes;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong rasterLoads = new AtomicLong();
+    private static final AtomicLong decodes = new AtomicLong();
+
+    /**
+     * Returns the decoded baseline as a shared TYPE_INT_ARGB image.
+     */
+    public static BufferedImage load(Path baseline) throws IOException {
+        Path path = baseline.toAbsolutePath().normalize();
+        byte[][] content = new byte[1][];
+        Key key = new Key(path, fileHash(path, content));
+
+        BufferedImage cached = cached(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<BufferedImage> mine = new CompletableFuture<>();
+        CompletableFuture<BufferedImage> inFlight = loading.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            BufferedImage image = readBaseline(key, content[0]);
+            remember(key, image);
+            mine.complete(image);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key);
+        }
+    }
+
+    /**
+     * Writes (or replaces) a baseline with its tile hashes, caches the decoded image and
+     * schedules its raster sidecar.
+     */
+    public static void save(Path baseline, byte[] png, BufferedImage image, TileHashes tiles) throws IOException {
+        invalidate(baseline);
+        Files.createDirectories(baseline.toAbsolutePath().getParent());
+        Files.write(baseline, png);
+        tiles.writeSidecar(baseline);
+        prime(baseline, png, image);
+    }
+
+    /**
+     * Caches a baseline that was just written from an already decoded screenshot, and writes
+     * its raster sidecar, so the next comparison does not decode it.
+     */
+    public static void prime(Path baseline, byte[] png, BufferedImage image) throws IOException {
+        Path path = baseline.toAbsolutePath().normalize();
+        invalidate(path);
+        String hash = sha256(png);
+        stamps.put(path, new FileStamp(Files.size(path), Files.getLastModifiedTime(path).toMillis(), hash));
+        BufferedImage argb = ImageComparator.toArgb(image);
+        Key key = new Key(path, hash);
+        remember(key, argb);
+        if (rasterSidecars) {
+            writeRasterLater(key, argb);
+        }
+    }
+
+    /** Drops everything known about a baseline, e.g. before it is overwritten. */
+    public static void invalidate(Path baseline) {
+        Path path = baseline.toAbsolutePath().normalize();
+        stamps.remove(path);
+        synchronized (cache) {
+            Iterator<Map.Entry<Key, BufferedImage>> it = cache.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, BufferedImage> entry = it.next();
+                if (entry.getKey().path().equals(path)) {
+                    cachedBytes -= bytesOf(entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the pixels of a baseline's raster sidecar without copying them, or returns null when
+     * there is no sidecar for the current baseline file. The buffer holds width x height ARGB ints.
+     */
+    public static IntBuffer mapRaster(Path baseline) throws IOException {
+        Path path = baseline.toAbsolutePath().normalize();
+        RasterView view = mapRaster(new Key(path, fileHash(path, new byte[1][])));
+        return view == null ? null : view.pixels();
+    }
+
+    /** Raster sidecar path of a baseline: "name.png" -> "name.raster" in the same directory. */
+    public static Path rasterFor(Path baseline) {
+        String fileName = baseline.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return baseline.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + RASTER_EXTENSION);
+    }
+
+    public static void logSummary() {
+        synchronized (cache) {
+            log.info("Baseline store: {} cached ({} MB), {} hits, {} raster loads, {} PNG decodes",
+                cache.size(), cachedBytes / (1024 * 1024), hits.get(), rasterLoads.get(), decodes.get());
+        }
+    }
+
+    private static BufferedImage readBaseline(Key key, byte[] content) throws IOException {
+        if (rasterSidecars) {
+            RasterView view = mapRaster(key);
+            if (view != null) {
+                BufferedImage image = new BufferedImage(view.width(), view.height(), BufferedImage.TYPE_INT_ARGB);
+                view.pixels().get(ImageComparator.pixels(image));
+                rasterLoads.incrementAndGet();
+                return image;
+            }
+        }
+        long start = System.nanoTime();
+        byte[] png = content != null ? content : Files.readAllBytes(key.path());
+        BufferedImage image = ImageComparator.toArgb(ScreenshotEncoder.decode(png));
+        decodes.incrementAndGet();
+        log.debug("Decoded baseline {} in {} ms", key.path().getFileName(), (System.nanoTime() - start) / 1_000_000);
+        if (rasterSidecars) {
+            writeRasterLater(key, image);
+        }
+        return image;
+    }
+
+    private record RasterView(int width, int height, IntBuffer pixels) { }
+
+    private static RasterView mapRaster(Key key) throws IOException {
+        Path raster = rasterFor(key.path());
+        if (!Files.exists(raster)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(raster, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] hash = new byte[32];
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                return null;
+            }
+            int width = mapped.getInt();
+            int height = mapped.getInt();
+            mapped.get(hash);
+            if (!HexFormat.of().formatHex(hash).equals(key.hash())
+                    || channel.size() != HEADER_BYTES + (long) width * height * 4) {
+                return null;
+            }
+            return new RasterView(width, height, mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+        }
+    }
+
+    /** Writes the sidecar through a temporary file, so readers never map a partial raster. */
+    private static void writeRasterLater(Key key, BufferedImage argb) {
+        Path raster = rasterFor(key.path());
+        int[] pixels = ImageComparator.pixels(argb);
+        ArtifactPipeline.submit("write " + raster.getFileName(), () -> {
+            Path temp = raster.resolveSibling(raster.getFileName() + ".tmp");
+            long size = HEADER_BYTES + (long) pixels.length * 4;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                mapped.order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC).putInt(VERSION).putInt(argb.getWidth()).putInt(argb.getHeight())
+                    .put(HexFormat.of().parseHex(key.hash()));
+                mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(pixels);
+                mapped.force();
+            }
+            Files.move(temp, raster, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        });
+    }
+
+    /**
+     * SHA-256 of the baseline file, recomputed only when its size or modification time changes.
+     * When the file has to be read, its bytes are handed back in content[0] for decoding.
+     */
+    private static String fileHash(Path path, byte[][] content) throws IOException {
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        FileStamp stamp = stamps.get(path);
+        if (stamp != null && stamp.size() == size && stamp.modified() == modified) {
+            return stamp.hash();
+        }
+        content[0] = Files.readAllBytes(path);
+        String hash = sha256(content[0]);
+        stamps.put(path, new FileStamp(size, modified, hash));
+        return hash;
+    }
+
+    private static BufferedImage cached(Key key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private static void remember(Key key, BufferedImage image) {
+        long bytes = bytesOf(image);
+        if (bytes > maxBytes) {
+            return;
+        }
+        synchronized (cache) {
+            BufferedImage previous = cache.put(key, image);
+            if (previous != null) {
+                cachedBytes -= bytesOf(previous);
+            }
+            cachedBytes += bytes;
+            Iterator<BufferedImage> eldest = cache.values().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                cachedBytes -= bytesOf(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    private static BufferedImage await(CompletableFuture<BufferedImage> load) throws IOException {
+        try {
+            return load.join();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    private static long bytesOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
@@ -6,6 +6,8 @@ import org.apache.logging.log4j.Logger;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -85,4 +87,56 @@ public class CSVReader {
         
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a CSV file and keeps only the rows owned by the configured shard.
+     * 
+     * With shard.total=1 (the default) this is identical to readCSVData.
+     * See DataSharder for the shard.index / shard.total / shard.strategy settings.
+     * 
+     * @param filePath Path to the CSV file to read
+     * @return Object[][] containing this shard's rows
+     */
+    public static Object[][] readShardedCSVData(String filePath) {
+        Object[][] rows = readCSVData(filePath);
+        return DataSharder.shard(Paths.get(filePath).getFileName().toString(), rows);
+    }
+    
+    /**
+     * Reads the header row of a CSV file.
+     * 
+     * @param filePath Path to the CSV file to read
+     * @return Trimmed header names, or an empty array if the file cannot be read
+     */
+    public static String[] readCSVHeader(String filePath) {
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            String line = br.readLine();
+            if (line == null) {
+                return new String[0];
+            }
+            String[] headers = line.split(",");
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = headers[i].trim();
+            }
+            return headers;
+        } catch (IOException e) {
+            log.error("Failed to read CSV header: {}", filePath, e);
+            return new String[0];
+        }
+    }
+    
+    /**
+     * Reads this shard's CSV rows and binds them to the test method's parameters by header.
+     * 
+     * Columns are matched to parameters through &#64;Column annotations, so the file's column
+     * order no longer matters and typed parameters (int, boolean, enums...) are converted once here.
+     * See RowBinder for the binding rules.
+     * 
+     * @param filePath Path to the CSV file to read
+     * @param testMethod Test method the rows are fed to (inject java.lang.reflect.Method into the data provider)
+     * @return Object[][] of ready-to-use test arguments
+     */
+    public static Object[][] readBoundCSVData(String filePath, Method testMethod) {
+        return RowBinder.bind(testMethod, readCSVHeader(filePath), readShardedCSVData(filePath));
+    }
+}
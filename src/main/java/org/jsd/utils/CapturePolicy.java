@@ -0,0 +1,126 @@
+package org.jsd.utils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How a screenshot is encoded before it is stored, attached or emailed.
+ *
+ * A policy chooses the format (PNG with a deflate level, or JPEG with a quality) and an
+ * optional maximum size; larger captures are downscaled by area averaging. PNG captures
+ * that need no downscaling are passed through untouched, since the browser already
+ * delivers PNG.
+ *
+ * Policies are looked up per scope, so each consumer can trade fidelity for size:
+ * - allure     : failure screenshots attached to Allure
+ * - email      : failure screenshots stored for the email report
+ * - screenshot : ScreenshotUtils captures
+ *
+ * Lookup for each setting, e.g. the format of the "email" scope: the scoped key
+ * capture.email.format wins over the shared key capture.format. Each key is read from
+ * suite parameters (testng.xml), then system properties, then config.properties.
+ * Defaults: png, deflate level 1, JPEG quality 0.8, no size limit.
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public record CapturePolicy(Format format, int pngCompressionLevel, float jpegQuality, int maxWidth, int maxHeight) {
+
+    public enum Format {
+        PNG("png", "image/png"),
+        JPEG("jpg", "image/jpeg");
+
+        private final String extension;
+        private final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    /** Full-resolution PNG exactly as captured. */
+    public static final CapturePolicy ORIGINAL = new CapturePolicy(Format.PNG, 1, 0.8f, 0, 0);
+
+    private static final Map<String, String> suiteOverrides = new ConcurrentHashMap<>();
+    private static final Map<String, CapturePolicy> byScope = new ConcurrentHashMap<>();
+
+    public CapturePolicy {
+        if (pngCompressionLevel < 0 || pngCompressionLevel > 9) {
+            throw new IllegalArgumentException("PNG compression level must be 0-9: " + pngCompressionLevel);
+        }
+        if (jpegQuality <= 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be in (0, 1]: " + jpegQuality);
+        }
+    }
+
+    /**
+     * Resolves the policy for a scope such as "allure" or "email". Results are cached
+     * until the suite overrides change.
+     */
+    public static CapturePolicy forScope(String scope) {
+        return byScope.computeIfAbsent(scope, CapturePolicy::resolve);
+    }
+
+    /**
+     * Applies capture.* parameters of the running suite on top of system properties and config.
+     */
+    public static void applySuiteParameters(Map<String, String> parameters) {
+        suiteOverrides.clear();
+        parameters.forEach((key, value) -> {
+            if (key.startsWith("capture.")) {
+                suiteOverrides.put(key, value);
+            }
+        });
+        byScope.clear();
+    }
+
+    /** True if the captured PNG can be used as is. */
+    public boolean isPassThrough() {
+        return format == Format.PNG && maxWidth <= 0 && maxHeight <= 0;
+    }
+
+    /** Short stable id, used to keep differently encoded copies of one capture apart. */
+    public String id() {
+        if (isPassThrough()) {
+            return "";
+        }
+        String encoding = format == Format.PNG ? "png" + pngCompressionLevel : "jpg" + Math.round(jpegQuality * 100);
+        return encoding + "-" + maxWidth + "x" + maxHeight;
+    }
+
+    private static CapturePolicy resolve(String scope) {
+        return new CapturePolicy(
+            parseFormat(setting(scope, "format", "png")),
+            Integer.parseInt(setting(scope, "png.compression", "1")),
+            Float.parseFloat(setting(scope, "jpeg.quality", "0.8")),
+            Integer.parseInt(setting(scope, "max.width", "0")),
+            Integer.parseInt(setting(scope, "max.height", "0")));
+    }
+
+    private static Format parseFormat(String value) {
+        String format = value.toUpperCase(Locale.ROOT);
+        return format.equals("JPG") ? Format.JPEG : Format.valueOf(format);
+    }
+
+    private static String setting(String scope, String name, String defaultValue) {
+        for (String key : new String[] {"capture." + scope + "." + name, "capture." + name}) {
+            String value = suiteOverrides.get(key);
+            if (value == null) value = System.getProperty(key);
+            if (value == null) value = ConfigReader.getProperty(key, null);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return defaultValue;
+    }
+}
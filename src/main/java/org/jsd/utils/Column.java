@@ -0,0 +1,24 @@
+package org.jsd.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a data-driven test parameter to a data file column by header name.
+ * 
+ * Example usage:
+ * public void testLogin(&#64;Column("Username") String username, &#64;Column("Attempts") int attempts)
+ * 
+ * Header matching ignores case and surrounding whitespace. See {@link RowBinder}.
+ * 
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Column {
+    /** Header name of the column in the CSV/Excel/JSONL file */
+    String value();
+}
@@ -0,0 +1,237 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Splits data provider rows across JVM forks or CI agents.
+ *
+ * Every shard reads the full dataset and keeps only the rows it owns, so N shards
+ * started with the same dataset and the same shard.total cover every row exactly once.
+ * Two assignment strategies are supported:
+ * - HASH  : row owned by (stable 64-bit hash of the row content) mod total.
+ *           Rows keep their shard when other rows are added or reordered.
+ * - INDEX : row owned by (row index) mod total. Gives perfectly even shards.
+ *
+ * Configuration (system properties override config.properties):
+ * - shard.index    : zero-based index of this shard (default 0)
+ * - shard.total    : number of shards (default 1 = no sharding)
+ * - shard.strategy : hash or index (default hash)
+ * - shard.manifest.dir : where shard manifests are written (default test-output/shards)
+ *
+ * Each dataset that is sharded appends one JSON line to
+ * shard-&lt;index&gt;-of-&lt;total&gt;.jsonl describing which rows this shard ran,
+ * so results from all shards can be merged afterwards. The first line written in a run
+ * replaces the manifest of an earlier run.
+ *
+ * The rows a shard keeps are numbered from 0 by the data provider, so shard 0 and shard 1
+ * both have a row 0. shard() remembers the dataset index of every row it returns, and the
+ * data provider interceptor reads it back with takeDatasetRow(), so results are keyed on the
+ * dataset row and rows of different shards never collide when merged.
+ *
+ * Usage:
+ * mvn test -Dshard.index=1 -Dshard.total=4
+ * Object[][] data = CSVReader.readShardedCSVData("path/to/file.csv");
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class DataSharder {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(DataSharder.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** Separator between cell values when hashing a row, chosen so "a,b" + "c" != "a" + "b,c" */
+    private static final char CELL_SEPARATOR = '\u001F';
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Datasets already recorded in this JVM's manifest (Chrome and Edge tests share providers) */
+    private static final Set<String> recordedDatasets = ConcurrentHashMap.newKeySet();
+
+    /** Manifests this JVM has started; guarded by the DataSharder class lock */
+    private static final Set<Path> startedManifests = new HashSet<>();
+
+    /** Dataset index of each row returned by shard() and not yet handed to a test, by row identity */
+    private static final Map<Object[], Integer> datasetRows = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public enum Strategy { HASH, INDEX }
+
+    public static int getShardIndex() {
+        return Integer.parseInt(System.getProperty("shard.index",
+            ConfigReader.getProperty("shard.index", "0")));
+    }
+
+    public static int getShardTotal() {
+        return Integer.parseInt(System.getProperty("shard.total",
+            ConfigReader.getProperty("shard.total", "1")));
+    }
+
+    public static Strategy getStrategy() {
+        return Strategy.valueOf(System.getProperty("shard.strategy",
+            ConfigReader.getProperty("shard.strategy", "hash")).trim().toUpperCase());
+    }
+
+    public static boolean isSharded() {
+        return getShardTotal() > 1;
+    }
+
+    /** Label of the configured shard, shard-&lt;index&gt;-of-&lt;total&gt;, as used for manifests and results. */
+    public static String getShardLabel() {
+        return label(getShardIndex(), getShardTotal());
+    }
+
+    private static String label(int index, int total) {
+        return String.format("shard-%d-of-%d", index, total);
+    }
+
+    /**
+     * Filters rows down to the ones owned by the configured shard and records them in the manifest.
+     *
+     * @param datasetName Name identifying the dataset in the manifest (usually the file name)
+     * @param rows All rows of the dataset
+     * @return Rows owned by this shard, in their original order
+     */
+    public static Object[][] shard(String datasetName, Object[][] rows) {
+        return shard(datasetName, rows, getShardIndex(), getShardTotal(), getStrategy());
+    }
+
+    public static Object[][] shard(String datasetName, Object[][] rows, int index, int total, Strategy strategy) {
+        if (total < 1 || index < 0 || index >= total) {
+            throw new IllegalArgumentException(
+                String.format("Invalid shard %d of %d: shard.index must be in [0, shard.total)", index, total));
+        }
+        if (total == 1) {
+            return rows;
+        }
+
+        List<Object[]> owned = new ArrayList<>();
+        List<Integer> ownedIndices = new ArrayList<>();
+        List<Long> ownedHashes = new ArrayList<>();
+
+        for (int i = 0; i < rows.length; i++) {
+            long hash = rowHash(rows[i]);
+            if (ownerOf(i, hash, total, strategy) == index) {
+                owned.add(rows[i]);
+                ownedIndices.add(i);
+                ownedHashes.add(hash);
+                datasetRows.put(rows[i], i);
+            }
+        }
+
+        log.info("Shard {}/{} ({}) owns {} of {} rows from '{}'",
+            index, total, strategy, owned.size(), rows.length, datasetName);
+        writeManifest(datasetName, index, total, strategy, rows.length, ownedIndices, ownedHashes);
+
+        return owned.toArray(new Object[0][]);
+    }
+
+    /**
+     * Moves the dataset index of a row returned by shard() to the row built from it, e.g. the
+     * argument row RowBinder converts it to. Does nothing for rows that were not sharded.
+     */
+    public static void carryDatasetRow(Object[] from, Object[] to) {
+        Integer datasetRow = datasetRows.remove(from);
+        if (datasetRow != null) {
+            datasetRows.put(to, datasetRow);
+        }
+    }
+
+    /**
+     * Removes and returns the dataset index of a row returned by shard(), or -1 when the row
+     * was not sharded (its data provider index then is its dataset index).
+     */
+    public static int takeDatasetRow(Object[] row) {
+        Integer datasetRow = datasetRows.remove(row);
+        return datasetRow != null ? datasetRow : -1;
+    }
+
+    /** Forgets the dataset indices of rows that never reached a test. */
+    public static void clearDatasetRows() {
+        datasetRows.clear();
+    }
+
+    /**
+     * Returns the shard that owns a row. Every row has exactly one owner.
+     */
+    public static int ownerOf(int rowIndex, long rowHash, int total, Strategy strategy) {
+        return switch (strategy) {
+            case HASH -> (int) Long.remainderUnsigned(rowHash, total);
+            case INDEX -> rowIndex % total;
+        };
+    }
+
+    /**
+     * Stable FNV-1a hash of the row's cell values. Independent of JVM, platform and run,
+     * unlike Object.hashCode or Arrays.hashCode on non-String cells.
+     */
+    public static long rowHash(Object[] row) {
+        long hash = FNV_OFFSET;
+        for (Object cell : row) {
+            byte[] bytes = String.valueOf(cell).getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                hash ^= (b & 0xff);
+                hash *= FNV_PRIME;
+            }
+            hash ^= CELL_SEPARATOR;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void writeManifest(String datasetName, int index, int total, Strategy strategy,
+                                      int totalRows, List<Integer> rowIndices, List<Long> rowHashes) {
+        if (!recordedDatasets.add(datasetName)) {
+            return;
+        }
+
+        Path manifestDir = Paths.get(System.getProperty("shard.manifest.dir",
+            ConfigReader.getProperty("shard.manifest.dir", "test-output/shards")));
+        Path manifest = manifestDir.resolve(label(index, total) + ".jsonl");
+
+        ObjectNode entry = mapper.createObjectNode();
+        entry.put("dataset", datasetName);
+        entry.put("shardIndex", index);
+        entry.put("shardTotal", total);
+        entry.put("strategy", strategy.name());
+        entry.put("datasetRows", totalRows);
+        ArrayNode rows = entry.putArray("rows");
+        for (int i = 0; i < rowIndices.size(); i++) {
+            ObjectNode row = rows.addObject();
+            row.put("index", rowIndices.get(i));
+            row.put("hash", Long.toHexString(rowHashes.get(i)));
+        }
+
+        try {
+            Files.createDirectories(manifestDir);
+            synchronized (DataSharder.class) {
+                // Entries of earlier runs would otherwise pile up in the manifest
+                StandardOpenOption mode = startedManifests.add(manifest)
+                    ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND;
+                Files.writeString(manifest, mapper.writeValueAsString(entry) + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+            }
+            log.debug("Shard manifest updated: {}", manifest);
+        } catch (IOException e) {
+            log.warn("Failed to write shard manifest {}: {}", manifest, e.getMessage());
+        }
+    }
+}
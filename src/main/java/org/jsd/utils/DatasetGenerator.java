@@ -0,0 +1,270 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Generates large synthetic datasets (millions of rows) for load and soak tests.
+ *
+ * Rows are generated in fixed-size chunks on a thread pool. Chunk N always uses
+ * DataGenerator.forStream(N), so the output only depends on the schema, the row count
+ * and data.seed - not on the number of threads. Only email and username values differ
+ * between runs, since identifiers are unique across runs. Finished chunks are written in order
+ * through a FileChannel while later chunks are still being generated.
+ *
+ * Output formats, all readable by the framework's data readers:
+ * - CSV   : header row + comma separated values -> CSVReader.readCSVData
+ * - JSONL : one JSON object per row             -> JsonReader.readJsonLinesData
+ * - XLSX  : streamed with SXSSFWorkbook, sheet "Data" -> ExcelReader.readExcelData
+ *
+ * Java usage:
+ * DatasetGenerator.generate(DatasetSchema.parse("Username:username,Password:string(12)"),
+ *     1_000_000, Paths.get("test-output/data/users.csv"));
+ *
+ * CLI usage:
+ * mvn -q exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.jsd.utils.DatasetGenerator \
+ *     -Dexec.args="--schema Username:username,Password:string(12) --rows 1000000 --out users.csv"
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class DatasetGenerator {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(DatasetGenerator.class);
+
+    public static final String XLSX_SHEET_NAME = "Data";
+    private static final int DEFAULT_CHUNK_ROWS = 10_000;
+    /** Excel's hard row limit minus the header row */
+    private static final long XLSX_MAX_ROWS = 1_048_575;
+
+    public enum Format {
+        CSV, JSONL, XLSX;
+
+        public static Format fromPath(Path path) {
+            String fileName = path.getFileName().toString().toLowerCase();
+            if (fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson")) return JSONL;
+            if (fileName.endsWith(".xlsx")) return XLSX;
+            return CSV;
+        }
+    }
+
+    public static void generate(DatasetSchema schema, long rows, Path output) throws IOException {
+        generate(schema, rows, output, Format.fromPath(output), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void generate(DatasetSchema schema, long rows, Path output, Format format, int threads)
+            throws IOException {
+        if (format == Format.XLSX && rows > XLSX_MAX_ROWS) {
+            throw new IllegalArgumentException("XLSX supports at most " + XLSX_MAX_ROWS + " data rows, requested " + rows);
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            switch (format) {
+                case CSV, JSONL -> writeText(schema, rows, format, channel, executor, threads);
+                case XLSX -> writeXlsx(schema, rows, channel, executor, threads);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Generated {} rows ({}) in {} ms: {}", rows, format,
+            (System.nanoTime() - start) / 1_000_000, output.toAbsolutePath());
+    }
+
+    private static void writeText(DatasetSchema schema, long rows, Format format, FileChannel channel,
+                                  ExecutorService executor, int threads) throws IOException {
+        if (format == Format.CSV) {
+            writeFully(channel, ByteBuffer.wrap((String.join(",", schema.getHeaders()) + "\n")
+                .getBytes(StandardCharsets.UTF_8)));
+        }
+        forEachChunkInOrder(rows, executor, threads,
+            chunk -> renderTextChunk(schema, format, chunk, rows),
+            buffer -> writeFully(channel, buffer));
+    }
+
+    private static void writeXlsx(DatasetSchema schema, long rows, FileChannel channel,
+                                  ExecutorService executor, int threads) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try {
+            Sheet sheet = workbook.createSheet(XLSX_SHEET_NAME);
+            String[] headers = schema.getHeaders();
+            Row headerRow = sheet.createRow(0);
+            for (int c = 0; c < headers.length; c++) {
+                headerRow.createCell(c).setCellValue(headers[c]);
+            }
+
+            int[] nextRow = {1};
+            forEachChunkInOrder(rows, executor, threads,
+                chunk -> generateChunk(schema, chunk, rows),
+                values -> {
+                    for (String[] rowValues : values) {
+                        Row row = sheet.createRow(nextRow[0]++);
+                        for (int c = 0; c < rowValues.length; c++) {
+                            row.createCell(c).setCellValue(rowValues[c]);
+                        }
+                    }
+                });
+
+            OutputStream out = Channels.newOutputStream(channel);
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer<T> {
+        void accept(T chunk) throws IOException;
+    }
+
+    /**
+     * Generates chunks in parallel while consuming them strictly in chunk order.
+     * At most 2 x threads chunks are in flight, which bounds memory for any row count.
+     */
+    private static <T> void forEachChunkInOrder(long rows, ExecutorService executor, int threads,
+                                                LongFunction<T> producer, ChunkConsumer<T> consumer)
+            throws IOException {
+        long chunks = (rows + DEFAULT_CHUNK_ROWS - 1) / DEFAULT_CHUNK_ROWS;
+        int window = Math.max(2, threads * 2);
+        Deque<Future<T>> inFlight = new ArrayDeque<>();
+        long nextChunk = 0;
+
+        try {
+            while (nextChunk < chunks || !inFlight.isEmpty()) {
+                while (nextChunk < chunks && inFlight.size() < window) {
+                    long chunk = nextChunk++;
+                    inFlight.add(executor.submit(() -> producer.apply(chunk)));
+                }
+                consumer.accept(inFlight.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Dataset generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Dataset generation failed", e.getCause());
+        }
+    }
+
+    private static String[][] generateChunk(DatasetSchema schema, long chunk, long totalRows) {
+        List<DatasetSchema.Column> columns = schema.getColumns();
+        long first = chunk * DEFAULT_CHUNK_ROWS;
+        int count = (int) Math.min(DEFAULT_CHUNK_ROWS, totalRows - first);
+        DataGenerator data = DataGenerator.forStream(chunk);
+
+        String[][] values = new String[count][columns.size()];
+        for (int r = 0; r < count; r++) {
+            for (int c = 0; c < columns.size(); c++) {
+                values[r][c] = columns.get(c).generator().generate(data, first + r);
+            }
+        }
+        return values;
+    }
+
+    private static ByteBuffer renderTextChunk(DatasetSchema schema, Format format, long chunk, long totalRows) {
+        String[] headers = schema.getHeaders();
+        String[][] values = generateChunk(schema, chunk, totalRows);
+        StringBuilder sb = new StringBuilder(values.length * headers.length * 16);
+        JsonStringEncoder json = JsonStringEncoder.getInstance();
+
+        for (String[] row : values) {
+            for (int c = 0; c < row.length; c++) {
+                if (format == Format.CSV) {
+                    // CSVReader splits on every comma and does not understand quoting
+                    if (row[c].indexOf(',') >= 0 || row[c].indexOf('\n') >= 0) {
+                        throw new IllegalArgumentException("CSV value for column '" + headers[c]
+                            + "' contains a comma or newline: " + row[c]);
+                    }
+                    if (c > 0) sb.append(',');
+                    sb.append(row[c]);
+                } else {
+                    sb.append(c == 0 ? "{\"" : ",\"");
+                    json.quoteAsString(headers[c], sb);
+                    sb.append("\":\"");
+                    json.quoteAsString(row[c], sb);
+                    sb.append('"');
+                }
+            }
+            sb.append(format == Format.CSV ? "\n" : "}\n");
+        }
+        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * CLI entry point.
+     * Arguments: --schema SPEC --rows N --out PATH [--format csv|jsonl|xlsx] [--threads N]
+     */
+    public static void main(String[] args) throws IOException {
+        String schemaSpec = null;
+        String out = null;
+        Format format = null;
+        long rows = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--schema" -> schemaSpec = value;
+                    case "--rows" -> rows = Long.parseLong(value.replace("_", ""));
+                    case "--out" -> out = value;
+                    case "--format" -> format = Format.valueOf(value.toUpperCase());
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+            }
+            if (schemaSpec == null || out == null || rows <= 0) {
+                throw new IllegalArgumentException("--schema, --out and a positive --rows are required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: DatasetGenerator --schema Name:generator,... --rows N --out PATH "
+                + "[--format csv|jsonl|xlsx] [--threads N]");
+            System.exit(2);
+        }
+
+        Path output = Paths.get(out);
+        Format outputFormat = format != null ? format : Format.fromPath(output);
+        generate(DatasetSchema.parse(schemaSpec), rows, output, outputFormat, threads);
+    }
+}
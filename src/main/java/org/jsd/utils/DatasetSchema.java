@@ -0,0 +1,122 @@
+package org.jsd.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declarative description of a synthetic dataset: an ordered list of columns,
+ * each with the generator that fills it.
+ *
+ * Schemas can be built in Java:
+ * DatasetSchema schema = new DatasetSchema()
+ *     .column("Username", "username")
+ *     .column("Password", "string(12)")
+ *     .column("Expected", "oneOf(success|error)");
+ *
+ * or parsed from a one-line spec, as accepted by the DatasetGenerator CLI:
+ * Username:username,Password:string(12),Expected:oneOf(success|error)
+ *
+ * Supported generators:
+ * - email, username      : unique, also across runs (see DataGenerator.uniqueId)
+ * - name, firstName, lastName, phone
+ * - string(n)            : n random alphanumeric characters
+ * - int(min..max)        : random integer, both bounds inclusive
+ * - oneOf(a|b|c)         : one of the listed values
+ * - const(value)         : the same value on every row
+ * - row                  : zero-based row number
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class DatasetSchema {
+
+    /** Produces one cell value. Implementations must not keep state between calls. */
+    @FunctionalInterface
+    public interface ColumnGenerator {
+        String generate(DataGenerator data, long rowIndex);
+    }
+
+    public record Column(String name, ColumnGenerator generator) { }
+
+    private final List<Column> columns = new ArrayList<>();
+
+    public DatasetSchema column(String name, ColumnGenerator generator) {
+        columns.add(new Column(name, generator));
+        return this;
+    }
+
+    public DatasetSchema column(String name, String generatorSpec) {
+        return column(name, parseGenerator(generatorSpec));
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public String[] getHeaders() {
+        return columns.stream().map(Column::name).toArray(String[]::new);
+    }
+
+    /**
+     * Parses "Name:generator,Name:generator,...". Commas inside parentheses are not supported;
+     * use '|' to separate oneOf values.
+     */
+    public static DatasetSchema parse(String spec) {
+        DatasetSchema schema = new DatasetSchema();
+        for (String part : spec.split(",")) {
+            int colon = part.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid column spec '" + part + "', expected Name:generator");
+            }
+            schema.column(part.substring(0, colon).trim(), part.substring(colon + 1).trim());
+        }
+        return schema;
+    }
+
+    public static ColumnGenerator parseGenerator(String spec) {
+        String name = spec;
+        String args = null;
+        int open = spec.indexOf('(');
+        if (open > 0 && spec.endsWith(")")) {
+            name = spec.substring(0, open);
+            args = spec.substring(open + 1, spec.length() - 1);
+        }
+
+        return switch (name.trim().toLowerCase()) {
+            case "email" -> (data, row) -> data.email();
+            case "username" -> (data, row) -> data.username();
+            case "name" -> (data, row) -> data.name();
+            case "firstname" -> (data, row) -> data.firstName();
+            case "lastname" -> (data, row) -> data.lastName();
+            case "phone" -> (data, row) -> data.phone();
+            case "row" -> (data, row) -> Long.toString(row);
+            case "string" -> {
+                int length = Integer.parseInt(requireArgs(spec, args).trim());
+                yield (data, row) -> data.alphanumeric(length);
+            }
+            case "int" -> {
+                String[] bounds = requireArgs(spec, args).split("\\.\\.");
+                int min = Integer.parseInt(bounds[0].trim());
+                int max = Integer.parseInt(bounds[1].trim());
+                yield (data, row) -> Integer.toString(data.intBetween(min, max));
+            }
+            case "oneof" -> {
+                String[] values = requireArgs(spec, args).split("\\|");
+                yield (data, row) -> data.oneOf(values);
+            }
+            case "const" -> {
+                String value = requireArgs(spec, args);
+                yield (data, row) -> value;
+            }
+            default -> throw new IllegalArgumentException("Unknown column generator: " + spec);
+        };
+    }
+
+    private static String requireArgs(String spec, String args) {
+        if (args == null) {
+            throw new IllegalArgumentException("Column generator '" + spec + "' needs arguments, e.g. string(12)");
+        }
+        return args;
+    }
+}
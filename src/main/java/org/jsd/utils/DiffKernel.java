@@ -0,0 +1,35 @@
+package org.jsd.utils;
+
+/**
+ * Per-pixel comparison of ARGB runs, the inner loop of every visual diff.
+ *
+ * A kernel compares length pixels of two int rasters and counts the pixels where any channel
+ * (alpha, red, green, blue) differs by more than the tolerance. If a mask raster is given, each
+ * compared position is written with ImageComparator.DIFF_COLOR when the pixels differ and with
+ * the expected pixel otherwise, so the mask doubles as the diff image.
+ *
+ * Implementations must be stateless and thread-safe; ImageComparator calls one kernel from
+ * many ForkJoin workers at once. Kernels are chosen with visual.diff.kernel:
+ * - auto    : the vector kernel when the JVM has jdk.incubator.vector, otherwise scalar (default)
+ * - scalar  : ScalarDiffKernel, the reference implementation
+ * - vector  : VectorDiffKernel, SIMD via the Java Vector API
+ * - any fully qualified class name implementing this interface with a no-arg constructor
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public interface DiffKernel {
+
+    /** Short name used in logs. */
+    String name();
+
+    /**
+     * Compares expected[expectedOffset..+length) with actual[actualOffset..+length).
+     *
+     * @param mask Diff raster written at maskOffset..+length, or null to only count
+     * @param tolerance Largest per-channel difference (0-255) still treated as equal
+     * @return Number of differing pixels
+     */
+    long diff(int[] expected, int expectedOffset, int[] actual, int actualOffset,
+              int[] mask, int maskOffset, int length, int tolerance);
+}
@@ -0,0 +1,440 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Structural snapshot of a DOM subtree, a cheap alternative to pixel comparison.
+ *
+ * The subtree is serialized by a single executeScript call into a normalized tree: tag,
+ * the configured key attributes (class tokens sorted), whitespace-collapsed own text and the
+ * configured computed styles. A style is only recorded when it differs from the parent's
+ * value, which keeps the tree small and stable. Scripts, styles and (by default) elements with
+ * display:none are left out; elements matching an ignore selector are kept as empty placeholders.
+ *
+ * Every node carries a 64-bit Merkle hash over its own content and its children's hashes, so
+ * two snapshots are equal exactly when their root hashes are. Snapshots are stored as gzipped
+ * JSON with the root hash as the first field: the common "nothing changed" check reads a few
+ * bytes, and the structural diff only walks subtrees whose hashes differ.
+ *
+ * Configuration (system properties override config.properties):
+ * - dom.snapshot.attributes : key attributes to keep (comma separated)
+ * - dom.snapshot.styles     : computed styles to keep (comma separated)
+ *
+ * Usage:
+ * DomSnapshot actual = DomSnapshot.capture(driver, driver.findElement(By.id("main")), DomSnapshot.Options.defaults());
+ * List<String> changes = actual.diff(DomSnapshot.load(baselinePath));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class DomSnapshot {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_DIFF_ENTRIES = 200;
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private static final String DEFAULT_ATTRIBUTES = "id,name,type,role,href,src,alt,title,placeholder,value,"
+        + "aria-label,data-test,data-testid,class,disabled,checked";
+    private static final String DEFAULT_STYLES = "display,visibility,position,float,flex-direction,justify-content,"
+        + "align-items,text-align,font-size,font-weight,font-style,text-decoration-line,color,background-color,opacity";
+
+    /** Serializes the subtree to a JSON string: [tag, {attributes}, {styles}, text, [children]] per element. */
+    private static final String SERIALIZER = """
+        var root = arguments[0] || document.body, cfg = arguments[1];
+        var SKIP = {SCRIPT: 1, STYLE: 1, NOSCRIPT: 1, TEMPLATE: 1, LINK: 1, META: 1};
+        function serialize(el, parentStyles) {
+          var cs = window.getComputedStyle(el);
+          if (!cfg.includeHidden && cs.display === 'none') return null;
+          var tag = el.tagName.toLowerCase(), i, v;
+          for (i = 0; i < cfg.ignore.length; i++) {
+            if (el.matches(cfg.ignore[i])) return [tag, {}, {}, '[ignored]', []];
+          }
+          var attributes = {};
+          for (i = 0; i < cfg.attributes.length; i++) {
+            v = el.getAttribute(cfg.attributes[i]);
+            if (v === null) continue;
+            v = v.trim();
+            attributes[cfg.attributes[i]] = cfg.attributes[i] === 'class' ? v.split(/\\s+/).sort().join(' ') : v;
+          }
+          var styles = {}, own = {};
+          for (i = 0; i < cfg.styles.length; i++) {
+            v = cs.getPropertyValue(cfg.styles[i]);
+            own[cfg.styles[i]] = v;
+            if (!parentStyles || parentStyles[cfg.styles[i]] !== v) styles[cfg.styles[i]] = v;
+          }
+          var text = '', children = [];
+          for (var c = el.firstChild; c; c = c.nextSibling) {
+            if (c.nodeType === 3) {
+              text += c.nodeValue;
+            } else if (c.nodeType === 1 && !SKIP[c.tagName]) {
+              var child = serialize(c, own);
+              if (child) children.push(child);
+            }
+          }
+          return [tag, attributes, styles, text.replace(/\\s+/g, ' ').trim(), children];
+        }
+        return JSON.stringify(serialize(root, null));
+        """;
+
+    /**
+     * One normalized element. Attribute and style maps are sorted; hash covers the whole subtree.
+     */
+    public record Node(String tag, Map<String, String> attributes, Map<String, String> styles, String text,
+                       List<Node> children, long hash) {
+
+        static Node of(String tag, Map<String, String> attributes, Map<String, String> styles, String text,
+                       List<Node> children) {
+            long h = FNV_OFFSET;
+            h = mix(h, tag);
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                h = mix(mix(mix(h, "@"), attribute.getKey()), attribute.getValue());
+            }
+            for (Map.Entry<String, String> style : styles.entrySet()) {
+                h = mix(mix(mix(h, "$"), style.getKey()), style.getValue());
+            }
+            h = mix(mix(h, "#"), text);
+            for (Node child : children) {
+                h = (h ^ child.hash) * FNV_PRIME;
+                h = (h ^ (child.hash >>> 32)) * FNV_PRIME;
+            }
+            return new Node(tag, attributes, styles, text, children, h);
+        }
+
+        /** Short CSS-like label, e.g. "li#item-3.active.row". */
+        public String label() {
+            StringBuilder label = new StringBuilder(tag);
+            String id = attributes.get("id");
+            if (id != null && !id.isEmpty()) {
+                label.append('#').append(id);
+            }
+            String classes = attributes.get("class");
+            if (classes != null && !classes.isEmpty()) {
+                label.append('.').append(classes.replace(' ', '.'));
+            }
+            return label.toString();
+        }
+
+        int countNodes() {
+            int count = 1;
+            for (Node child : children) {
+                count += child.countNodes();
+            }
+            return count;
+        }
+
+        private static long mix(long h, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                h = (h ^ (b & 0xFF)) * FNV_PRIME;
+            }
+            return (h ^ 0xFF) * FNV_PRIME; // terminator, so "ab"+"c" and "a"+"bc" differ
+        }
+    }
+
+    /** What to record in a snapshot. */
+    public static final class Options {
+        private final List<String> attributes = new ArrayList<>();
+        private final List<String> styles = new ArrayList<>();
+        private final List<String> ignoreSelectors = new ArrayList<>();
+        private boolean includeHidden;
+
+        private Options() {
+        }
+
+        public static Options defaults() {
+            Options options = new Options();
+            options.attributes.addAll(splitList(setting("dom.snapshot.attributes", DEFAULT_ATTRIBUTES)));
+            options.styles.addAll(splitList(setting("dom.snapshot.styles", DEFAULT_STYLES)));
+            return options;
+        }
+
+        /** Replaces the recorded attributes. */
+        public Options attributes(String... names) {
+            attributes.clear();
+            attributes.addAll(Arrays.asList(names));
+            return this;
+        }
+
+        /** Replaces the recorded computed styles. */
+        public Options styles(String... names) {
+            styles.clear();
+            styles.addAll(Arrays.asList(names));
+            return this;
+        }
+
+        /** Records matching elements as empty placeholders (dynamic content, ads, timestamps). */
+        public Options ignore(String cssSelector) {
+            ignoreSelectors.add(cssSelector);
+            return this;
+        }
+
+        /** Also records elements with display:none. */
+        public Options includeHidden() {
+            includeHidden = true;
+            return this;
+        }
+
+        Map<String, Object> toScriptArgument() {
+            return Map.of("attributes", attributes, "styles", styles, "ignore", ignoreSelectors,
+                "includeHidden", includeHidden);
+        }
+    }
+
+    private final Node root;
+
+    private DomSnapshot(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Serializes the subtree under root (the whole body when root is null) in one script call.
+     */
+    public static DomSnapshot capture(WebDriver driver, WebElement root, Options options) {
+        Object json = ((JavascriptExecutor) driver).executeScript(SERIALIZER, root, options.toScriptArgument());
+        try {
+            return new DomSnapshot(toNode(mapper.readTree((String) json)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not parse DOM snapshot", e);
+        }
+    }
+
+    public Node root() {
+        return root;
+    }
+
+    public String rootHash() {
+        return hex(root.hash());
+    }
+
+    public int nodeCount() {
+        return root.countNodes();
+    }
+
+    /** Writes the snapshot as gzipped JSON, root hash first. */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        ObjectNode document = mapper.createObjectNode();
+        document.put("root", rootHash());
+        document.put("version", FORMAT_VERSION);
+        document.put("nodes", nodeCount());
+        document.set("tree", toJson(root));
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            mapper.writeValue(out, document);
+        }
+    }
+
+    public static DomSnapshot load(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            JsonNode document = mapper.readTree(in);
+            if (document.path("version").asInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported DOM snapshot version in " + file);
+            }
+            return new DomSnapshot(toNode(document.get("tree")));
+        }
+    }
+
+    /**
+     * Reads only the root hash of a stored snapshot, without parsing the tree.
+     */
+    public static String readRootHash(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+             JsonParser parser = new JsonFactory().createParser(in)) {
+            while (parser.nextToken() != null) {
+                if (parser.currentToken() == JsonToken.FIELD_NAME && "root".equals(parser.getCurrentName())) {
+                    parser.nextToken();
+                    return parser.getText();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Structural differences from a baseline, as readable lines with the element path; empty when
+     * the snapshots are equal. Subtrees with equal hashes are skipped. Children are aligned by
+     * tag, id and class, so an inserted or removed element is reported once instead of shifting
+     * every later sibling.
+     */
+    public List<String> diff(DomSnapshot baseline) {
+        List<String> changes = new ArrayList<>();
+        diffNodes(baseline.root, root, root.label(), changes);
+        if (changes.size() >= MAX_DIFF_ENTRIES) {
+            changes.add("... more differences not shown");
+        }
+        return changes;
+    }
+
+    private static void diffNodes(Node expected, Node actual, String path, List<String> changes) {
+        if (expected.hash() == actual.hash() || changes.size() >= MAX_DIFF_ENTRIES) {
+            return;
+        }
+        if (!expected.tag().equals(actual.tag())) {
+            changes.add(path + ": element <" + expected.tag() + "> replaced by <" + actual.tag() + ">");
+            return;
+        }
+        diffMaps("attribute", expected.attributes(), actual.attributes(), path, changes);
+        diffMaps("style", expected.styles(), actual.styles(), path, changes);
+        if (!expected.text().equals(actual.text())) {
+            changes.add(path + ": text '" + abbreviate(expected.text()) + "' -> '" + abbreviate(actual.text()) + "'");
+        }
+        diffChildren(expected.children(), actual.children(), path, changes);
+    }
+
+    private static void diffMaps(String kind, Map<String, String> expected, Map<String, String> actual, String path,
+                                 List<String> changes) {
+        TreeSet<String> keys = new TreeSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (String key : keys) {
+            String before = expected.get(key);
+            String after = actual.get(key);
+            if (!Objects.equals(before, after)) {
+                changes.add(path + ": " + kind + " " + key + " " + (before == null ? "(none)" : "'" + before + "'")
+                    + " -> " + (after == null ? "(none)" : "'" + after + "'"));
+            }
+        }
+    }
+
+    /** Aligns children with a longest common subsequence on their identity, then recurses into pairs. */
+    private static void diffChildren(List<Node> expected, List<Node> actual, String path, List<String> changes) {
+        int n = expected.size();
+        int m = actual.size();
+        if ((long) n * m > 4_000_000) {
+            // Too large to align; compare position by position
+            for (int i = 0; i < Math.max(n, m) && changes.size() < MAX_DIFF_ENTRIES; i++) {
+                if (i >= n) {
+                    changes.add(childPath(path, actual.get(i), i) + ": added");
+                } else if (i >= m) {
+                    changes.add(childPath(path, expected.get(i), i) + ": removed");
+                } else {
+                    diffNodes(expected.get(i), actual.get(i), childPath(path, actual.get(i), i), changes);
+                }
+            }
+            return;
+        }
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = sameIdentity(expected.get(i), actual.get(j))
+                    ? lcs[i + 1][j + 1] + 1
+                    : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while ((i < n || j < m) && changes.size() < MAX_DIFF_ENTRIES) {
+            if (i < n && j < m && sameIdentity(expected.get(i), actual.get(j))) {
+                diffNodes(expected.get(i), actual.get(j), childPath(path, actual.get(j), j), changes);
+                i++;
+                j++;
+            } else if (j < m && (i == n || lcs[i][j + 1] >= lcs[i + 1][j])) {
+                changes.add(childPath(path, actual.get(j), j) + ": added" + describe(actual.get(j)));
+                j++;
+            } else {
+                changes.add(childPath(path, expected.get(i), i) + ": removed" + describe(expected.get(i)));
+                i++;
+            }
+        }
+    }
+
+    private static boolean sameIdentity(Node a, Node b) {
+        return a.tag().equals(b.tag())
+            && Objects.equals(a.attributes().get("id"), b.attributes().get("id"))
+            && Objects.equals(a.attributes().get("class"), b.attributes().get("class"));
+    }
+
+    private static String childPath(String parent, Node child, int index) {
+        return parent + " > " + child.label() + "[" + index + "]";
+    }
+
+    private static String describe(Node node) {
+        return node.text().isEmpty() ? "" : " ('" + abbreviate(node.text()) + "')";
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 80 ? text : text.substring(0, 77) + "...";
+    }
+
+    private static Node toNode(JsonNode json) throws IOException {
+        if (json == null || !json.isArray() || json.size() != 5) {
+            throw new IOException("Malformed DOM snapshot node");
+        }
+        List<Node> children = new ArrayList<>(json.get(4).size());
+        for (JsonNode child : json.get(4)) {
+            children.add(toNode(child));
+        }
+        return Node.of(json.get(0).asText(), toMap(json.get(1)), toMap(json.get(2)), json.get(3).asText(),
+            Collections.unmodifiableList(children));
+    }
+
+    private static Map<String, String> toMap(JsonNode json) {
+        Map<String, String> map = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            map.put(field.getKey(), field.getValue().asText());
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static ArrayNode toJson(Node node) {
+        ArrayNode json = mapper.createArrayNode();
+        json.add(node.tag());
+        ObjectNode attributes = json.addObject();
+        node.attributes().forEach(attributes::put);
+        ObjectNode styles = json.addObject();
+        node.styles().forEach(styles::put);
+        json.add(node.text());
+        ArrayNode children = json.addArray();
+        for (Node child : node.children()) {
+            children.add(toJson(child));
+        }
+        return json;
+    }
+
+    private static String hex(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,431 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Durations and outcomes of earlier runs, per test method and data row.
+ *
+ * Two files in history.dir make up the store:
+ * - history.jsonl       : append-only log, one JSON line per final test result, fsynced when a
+ *                         suite's results are recorded
+ * - history-index.json  : per-test summary (run, pass, fail, skip and retry counts plus the
+ *                         last history.max.samples durations and outcomes)
+ * Loading reads the index and replays the log on top. compact() folds the log into the index,
+ * drops tests not seen for history.retention.days and empties the log. Both steps hold a file
+ * lock on the log, so forks sharing a directory do not lose each other's results.
+ * compactIfDue() only compacts once the log outgrows history.compact.log.kb or the index is
+ * older than history.compact.days, so most suites just append.
+ *
+ * An index that cannot be read is treated as empty: the summaries are rebuilt from the log and
+ * the next compactIfDue() replaces the index, instead of failing the suite.
+ *
+ * Tests are identified like in the {@link ResultsJournal}: suite, &lt;test&gt; context, class,
+ * method and data row, so the same test on two browsers has two histories. The row is the
+ * dataset row, not the row within a shard, so a row keeps its history whatever shard.total
+ * and shard it ran in.
+ *
+ * Configuration (system properties override config.properties):
+ * - history.enabled        : record results after each suite (default true)
+ * - history.dir            : directory of the store (default test-output/history)
+ * - history.max.samples    : recent results kept per test (default 30)
+ * - history.retention.days : forget tests not run for this many days (default 90)
+ * - history.compact.log.kb : compact when the log is larger than this (default 1024)
+ * - history.compact.days   : compact when the index is older than this (default 7)
+ *
+ * Usage:
+ * DurationHistory history = DurationHistory.getDefault();
+ * history.record(entries);
+ * history.compactIfDue();
+ * List&lt;DurationHistory.Summary&gt; slowdowns = history.slowdowns(1.5, 5);
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class DurationHistory {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(DurationHistory.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final String LOG_FILE = "history.jsonl";
+    private static final String INDEX_FILE = "history-index.json";
+    private static final int INDEX_VERSION = 1;
+
+    private static DurationHistory defaultHistory;
+
+    /**
+     * One final test result as written to the log.
+     *
+     * @param row Dataset row (see {@link ResultsJournal.Entry#datasetRowIndex()}), -1 for tests without data
+     */
+    public record Run(String testId, String className, String method, int row, ResultsJournal.Status status,
+                      long endMillis, long durationMillis, int retries) { }
+
+    /** One result kept in a test's bounded history. */
+    public record Sample(long endMillis, long durationMillis, ResultsJournal.Status status, int retries) { }
+
+    /**
+     * Everything known about one test.
+     *
+     * @param row Dataset row, -1 for tests without data
+     * @param runs Final results recorded, including those no longer in recent
+     * @param retries Retried attempts over all runs
+     * @param recent Latest results, oldest first, at most history.max.samples
+     */
+    public record Summary(String testId, String className, String method, int row, int runs, int passed,
+                          int failed, int skipped, int retries, long lastSeenMillis, List<Sample> recent) {
+
+        /** Duration percentile (0-100) of the recent passed and failed runs, or -1 if there are none. */
+        public long percentile(double percent) {
+            long[] durations = recent.stream()
+                .filter(sample -> sample.status() != ResultsJournal.Status.SKIPPED)
+                .mapToLong(Sample::durationMillis)
+                .sorted()
+                .toArray();
+            if (durations.length == 0) {
+                return -1;
+            }
+            int rank = (int) Math.ceil(percent / 100 * durations.length);
+            return durations[Math.min(durations.length - 1, Math.max(0, rank - 1))];
+        }
+
+        public long p50() {
+            return percentile(50);
+        }
+
+        public long p90() {
+            return percentile(90);
+        }
+
+        /** Share of recorded runs that passed, 0 to 1. */
+        public double passRate() {
+            return runs == 0 ? 0 : (double) passed / runs;
+        }
+
+        /** Whether the recent results mix passes and failures or needed retries. */
+        public boolean flaky() {
+            boolean anyPassed = recent.stream().anyMatch(sample -> sample.status() == ResultsJournal.Status.PASSED);
+            boolean anyFailed = recent.stream().anyMatch(sample -> sample.status() == ResultsJournal.Status.FAILED);
+            return anyPassed && anyFailed || recent.stream().anyMatch(sample -> sample.retries() > 0);
+        }
+
+        private Summary with(Run run, int maxSamples) {
+            List<Sample> samples = new ArrayList<>(recent);
+            samples.add(new Sample(run.endMillis(), run.durationMillis(), run.status(), run.retries()));
+            samples.sort(Comparator.comparingLong(Sample::endMillis));
+            if (samples.size() > maxSamples) {
+                samples = samples.subList(samples.size() - maxSamples, samples.size());
+            }
+            return new Summary(testId, className, method, row, runs + 1,
+                passed + (run.status() == ResultsJournal.Status.PASSED ? 1 : 0),
+                failed + (run.status() == ResultsJournal.Status.FAILED ? 1 : 0),
+                skipped + (run.status() == ResultsJournal.Status.SKIPPED ? 1 : 0),
+                retries + run.retries(), Math.max(lastSeenMillis, run.endMillis()), List.copyOf(samples));
+        }
+
+        private static Summary empty(Run run) {
+            return new Summary(run.testId(), run.className(), run.method(), run.row(), 0, 0, 0, 0, 0, 0, List.of());
+        }
+    }
+
+    private record Index(int version, long savedMillis, List<Summary> tests) { }
+
+    private final Path logFile;
+    private final Path indexFile;
+    private final int maxSamples;
+    private final Duration retention;
+    private final long compactLogBytes;
+    private final Duration compactAge;
+    private Map<String, Summary> summaries;
+    /** When the index was last written, 0 without a readable index */
+    private long indexSavedMillis;
+    /** Set when the index could not be read; the next compactIfDue() writes a new one */
+    private boolean indexUnreadable;
+
+    /** Opens the store in a directory, creating it when missing, with the default compaction thresholds. */
+    public DurationHistory(Path dir, int maxSamples, Duration retention) throws IOException {
+        this(dir, maxSamples, retention, 1024 * 1024, Duration.ofDays(7));
+    }
+
+    /**
+     * @param compactLogBytes Log size beyond which compactIfDue() compacts
+     * @param compactAge Index age beyond which compactIfDue() compacts a non-empty log
+     */
+    public DurationHistory(Path dir, int maxSamples, Duration retention, long compactLogBytes, Duration compactAge)
+            throws IOException {
+        Files.createDirectories(dir);
+        this.logFile = dir.resolve(LOG_FILE);
+        this.indexFile = dir.resolve(INDEX_FILE);
+        this.maxSamples = maxSamples;
+        this.retention = retention;
+        this.compactLogBytes = compactLogBytes;
+        this.compactAge = compactAge;
+        try (FileChannel channel = openLog()) {
+            channel.lock(); // released when the channel closes
+            this.summaries = load(channel);
+        }
+    }
+
+    /**
+     * Store of history.dir, opened on first use. A corrupt index does not fail here (see the
+     * class comment); only a directory or log that cannot be opened does.
+     */
+    public static synchronized DurationHistory getDefault() {
+        if (defaultHistory == null) {
+            Path dir = Paths.get(setting("history.dir", "test-output/history"));
+            try {
+                defaultHistory = new DurationHistory(dir, Integer.parseInt(setting("history.max.samples", "30")),
+                    Duration.ofDays(Long.parseLong(setting("history.retention.days", "90"))),
+                    Long.parseLong(setting("history.compact.log.kb", "1024")) * 1024,
+                    Duration.ofDays(Long.parseLong(setting("history.compact.days", "7"))));
+                log.info("Duration history: {} tests in {}", defaultHistory.size(), dir.toAbsolutePath());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open duration history in " + dir, e);
+            }
+        }
+        return defaultHistory;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(setting("history.enabled", "true"));
+    }
+
+    /**
+     * Appends the final results of a run. RETRIED attempts are not recorded on their own; the
+     * final attempt's number gives the retry count.
+     */
+    public synchronized void record(Collection<ResultsJournal.Entry> entries) throws IOException {
+        List<Run> runs = new ArrayList<>();
+        for (ResultsJournal.Entry entry : entries) {
+            if (entry.status() != ResultsJournal.Status.RETRIED) {
+                runs.add(new Run(entry.testId(), entry.className(), entry.method(), entry.datasetRowIndex(),
+                    entry.status(), entry.endMillis(), entry.durationMillis(), Math.max(0, entry.attempt() - 1)));
+            }
+        }
+        if (runs.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Run run : runs) {
+            buffer.write(MAPPER.writeValueAsBytes(run));
+            buffer.write('\n');
+        }
+        try (FileChannel channel = openLog()) {
+            channel.lock(); // released when the channel closes
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            channel.position(channel.size());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        for (Run run : runs) {
+            apply(summaries, run);
+        }
+        log.debug("Recorded {} results in duration history", runs.size());
+    }
+
+    /**
+     * Folds the log into the index, applies the retention policy and empties the log. Re-reads
+     * both files first, so results recorded by other processes are kept.
+     *
+     * @return Number of tests dropped by retention
+     */
+    public synchronized int compact() throws IOException {
+        try (FileChannel channel = openLog()) {
+            channel.lock(); // released when the channel closes
+            Map<String, Summary> current = load(channel);
+            long cutoff = System.currentTimeMillis() - retention.toMillis();
+            int before = current.size();
+            current.values().removeIf(summary -> summary.lastSeenMillis() < cutoff);
+
+            long savedMillis = System.currentTimeMillis();
+            Path temp = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+            Files.write(temp, MAPPER.writeValueAsBytes(
+                new Index(INDEX_VERSION, savedMillis, List.copyOf(current.values()))));
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexSavedMillis = savedMillis;
+            indexUnreadable = false;
+            // Only after the index is in place; a crash before this replays the log onto the new index
+            channel.truncate(0);
+            channel.force(true);
+
+            summaries = current;
+            int dropped = before - current.size();
+            log.info("Duration history compacted: {} tests, {} dropped after {} days", current.size(), dropped,
+                retention.toDays());
+            return dropped;
+        }
+    }
+
+    /**
+     * Compacts when the log has outgrown its threshold, the index is older than its threshold
+     * (so retention still runs) or the index could not be read; otherwise leaves the log alone.
+     *
+     * @return Whether the store was compacted
+     */
+    public synchronized boolean compactIfDue() throws IOException {
+        long logBytes = Files.exists(logFile) ? Files.size(logFile) : 0;
+        boolean due = indexUnreadable || logBytes > compactLogBytes
+            || logBytes > 0 && System.currentTimeMillis() - indexSavedMillis > compactAge.toMillis();
+        if (due) {
+            compact();
+        }
+        return due;
+    }
+
+    public synchronized Optional<Summary> get(String testId) {
+        return Optional.ofNullable(summaries.get(testId));
+    }
+
+    public synchronized List<Summary> all() {
+        return List.copyOf(summaries.values());
+    }
+
+    public synchronized int size() {
+        return summaries.size();
+    }
+
+    /** Tests with the highest 90th percentile duration first. */
+    public synchronized List<Summary> slowest(int limit) {
+        return summaries.values().stream()
+            .sorted(Comparator.comparingLong(Summary::p90).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Tests whose latest run took more than factor times the median of their earlier runs.
+     *
+     * @param minRuns Earlier passed or failed runs needed before a test is judged
+     */
+    public synchronized List<Summary> slowdowns(double factor, int minRuns) {
+        List<Summary> slower = new ArrayList<>();
+        for (Summary summary : summaries.values()) {
+            List<Sample> timed = summary.recent().stream()
+                .filter(sample -> sample.status() != ResultsJournal.Status.SKIPPED)
+                .toList();
+            if (timed.size() <= minRuns) {
+                continue;
+            }
+            Sample latest = timed.get(timed.size() - 1);
+            Summary earlier = new Summary(summary.testId(), summary.className(), summary.method(), summary.row(),
+                0, 0, 0, 0, 0, 0, timed.subList(0, timed.size() - 1));
+            if (latest.durationMillis() > factor * earlier.p50()) {
+                slower.add(summary);
+            }
+        }
+        slower.sort(Comparator.comparingDouble((Summary summary) ->
+            (double) summary.recent().get(summary.recent().size() - 1).durationMillis() / Math.max(1, summary.p50()))
+            .reversed());
+        return slower;
+    }
+
+    /** Tests whose recent results mix passes and failures or needed retries. */
+    public synchronized List<Summary> flaky() {
+        return summaries.values().stream().filter(Summary::flaky).toList();
+    }
+
+    /**
+     * Typical duration of a test method over all its rows and contexts: the median of their
+     * median durations, or -1 when it never ran.
+     */
+    public synchronized long expectedMillis(String className, String method) {
+        long[] medians = summaries.values().stream()
+            .filter(summary -> summary.className().equals(className) && summary.method().equals(method))
+            .mapToLong(Summary::p50)
+            .filter(median -> median >= 0)
+            .sorted()
+            .toArray();
+        return medians.length == 0 ? -1 : medians[medians.length / 2];
+    }
+
+    /**
+     * Orders test ids for scheduling: the highest 90th percentile first, then tests without
+     * history in their given order.
+     */
+    public synchronized List<String> heaviestFirst(Collection<String> testIds) {
+        List<String> ordered = new ArrayList<>(testIds);
+        ordered.sort(Comparator.comparingLong((String id) -> {
+            Summary summary = summaries.get(id);
+            return summary == null ? -1 : summary.p90();
+        }).reversed());
+        return ordered;
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /** Index plus every complete line of the log; the caller holds the log lock. */
+    private Map<String, Summary> load(FileChannel channel) throws IOException {
+        Map<String, Summary> loaded = new LinkedHashMap<>();
+        indexSavedMillis = 0;
+        if (Files.exists(indexFile)) {
+            try {
+                Index index = MAPPER.readValue(indexFile.toFile(), Index.class);
+                for (Summary summary : index.tests()) {
+                    loaded.put(summary.testId(), summary);
+                }
+                indexSavedMillis = index.savedMillis();
+            } catch (IOException | RuntimeException e) {
+                // Summaries before the last compaction are lost; the log still has everything since
+                log.warn("Duration history index {} is unreadable ({}); rebuilding it from the log", indexFile,
+                    e.getMessage());
+                loaded.clear();
+                indexUnreadable = true;
+            }
+        }
+        channel.position(0);
+        BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+        String line;
+        int replayed = 0;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                apply(loaded, MAPPER.readValue(line, Run.class));
+                replayed++;
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping malformed duration history line: {}", e.getOriginalMessage());
+            }
+        }
+        log.debug("Loaded duration history: {} tests, {} log lines replayed", loaded.size(), replayed);
+        return loaded;
+    }
+
+    private void apply(Map<String, Summary> target, Run run) {
+        target.put(run.testId(), target.getOrDefault(run.testId(), Summary.empty(run)).with(run, maxSamples));
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
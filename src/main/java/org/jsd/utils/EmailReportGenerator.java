@@ -4,183 +4,347 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class EmailReportGenerator {
     private static final Logger log = LogManager.getLogger(EmailReportGenerator.class);
     
+    /**
+     * Lightweight reference to a failure screenshot spooled to disk. Only the path is kept in
+     * memory; the image is streamed through Base64 when a report is written.
+     */
     public static class FailedTestScreenshot {
-        public String testName;
-        public String base64Screenshot;
-        public String timestamp;
+        public final String testName;
+        public final String timestamp;
+        public final Path filePath;
         
-        public FailedTestScreenshot(String testName, String base64Screenshot, String timestamp) {
+        public FailedTestScreenshot(String testName, String timestamp, Path filePath) {
             this.testName = testName;
-            this.base64Screenshot = base64Screenshot;
             this.timestamp = timestamp;
+            this.filePath = filePath;
+        }
+        
+        public String getMimeType() {
+            String fileName = filePath.getFileName().toString().toLowerCase();
+            return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") ? "image/jpeg" : "image/png";
+        }
+        
+        /** Streams the file as Base64 into the report without loading it into memory. */
+        public void writeBase64(Writer out) throws IOException {
+            // Base64 is ASCII, so bytes map one to one onto chars; close() leaves the report open
+            OutputStream ascii = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                }
+                
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    char[] chars = new char[length];
+                    for (int i = 0; i < length; i++) {
+                        chars[i] = (char) bytes[offset + i];
+                    }
+                    out.write(chars);
+                }
+            };
+            try (OutputStream base64 = Base64.getEncoder().wrap(ascii)) {
+                Files.copy(filePath, base64);
+            }
         }
     }
     
-    public static String generateHTMLReport(int totalTests, int passed, int failed, int skipped, 
-                                          String executionTime, String environment, String browser, 
-                                          java.util.List<FailedTestScreenshot> screenshots) {
-        
-        String htmlTemplate = """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>Test Execution Report</title>
-                <style>
-                    * { margin: 0; padding: 0; box-sizing: border-box; }
-                    body { font-family: -apple-system, BlinkMacSystemFont, 'SF Pro Display', 'SF Pro Text', Helvetica, Arial, sans-serif; background: #f5f5f7; line-height: 1.47059; font-weight: 400; letter-spacing: -0.022em; min-height: 100vh; padding: 20px; }
-                    .container { max-width: 1200px; margin: 0 auto; background: #ffffff; border-radius: 18px; box-shadow: 0 4px 60px rgba(0, 0, 0, 0.07); overflow: hidden; }
-                    .header { background: linear-gradient(180deg, #ffffff 0%%, #f5f5f7 100%%); padding: 60px 40px 40px; text-align: center; position: relative; border-bottom: 1px solid #d2d2d7; }
-                    .header h1 { font-size: 3rem; font-weight: 700; color: #1d1d1f; margin-bottom: 12px; letter-spacing: -0.04em; }
-                    .header .subtitle { font-size: 1.25rem; color: #6e6e73; font-weight: 400; margin-bottom: 30px; }
-                    .watermark { position: absolute; bottom: -10px; left: 50%%; transform: translateX(-50%%); background: linear-gradient(135deg, #007aff 0%%, #5856d6 50%%, #af52de 100%%); -webkit-background-clip: text; -webkit-text-fill-color: transparent; background-clip: text; font-size: 1.1rem; font-weight: 700; letter-spacing: 0.5px; text-transform: uppercase; }
-                    .watermark::before { content: '✨ Crafted by '; background: linear-gradient(135deg, #ff9500 0%%, #ff6b6b 100%%); -webkit-background-clip: text; -webkit-text-fill-color: transparent; background-clip: text; }
-                    .watermark::after { content: ' ✨'; background: linear-gradient(135deg, #ff9500 0%%, #ff6b6b 100%%); -webkit-background-clip: text; -webkit-text-fill-color: transparent; background-clip: text; }
-                    .summary { display: grid; grid-template-columns: repeat(4, 1fr); padding: 40px; gap: 20px; }
-                    .metric { background: #ffffff; padding: 32px 24px; border-radius: 12px; text-align: center; border: 1px solid #f2f2f2; }
-                    .metric .icon { width: 44px; height: 44px; border-radius: 10px; margin: 0 auto 16px; display: flex; align-items: center; justify-content: center; font-size: 1.5rem; }
-                    .total .icon { background: linear-gradient(135deg, #007aff, #5856d6); }
-                    .passed .icon { background: linear-gradient(135deg, #34c759, #30d158); }
-                    .failed .icon { background: linear-gradient(135deg, #ff3b30, #ff6b6b); }
-                    .skipped .icon { background: linear-gradient(135deg, #ff9500, #ffb340); }
-                    .metric h3 { font-size: 2.5rem; font-weight: 700; color: #1d1d1f; margin-bottom: 8px; letter-spacing: -0.04em; }
-                    .metric p { font-size: 1rem; color: #86868b; font-weight: 600; text-transform: uppercase; letter-spacing: 0.06em; }
-                    .progress-section { padding: 0 40px 40px; }
-                    .progress-label { font-size: 1.1rem; font-weight: 600; color: #1d1d1f; margin-bottom: 12px; text-align: center; }
-                    .progress-bar { height: 8px; background: #f2f2f2; border-radius: 4px; overflow: hidden; position: relative; }
-                    .progress-fill { height: 100%%; background: linear-gradient(90deg, #34c759, #30d158); width: %s%%; border-radius: 4px; }
-                    .info-section { padding: 40px; background: #fbfbfd; border-top: 1px solid #f2f2f2; }
-                    .info-section h2 { font-size: 1.75rem; font-weight: 700; color: #1d1d1f; margin-bottom: 32px; text-align: center; letter-spacing: -0.022em; }
-                    .info-grid { display: grid; grid-template-columns: repeat(auto-fit, minmax(280px, 1fr)); gap: 20px; }
-                    .info-card { background: #ffffff; padding: 24px; border-radius: 12px; border: 1px solid #f2f2f2; }
-                    .info-card .label { font-size: 0.85rem; color: #86868b; font-weight: 600; text-transform: uppercase; letter-spacing: 0.06em; margin-bottom: 8px; }
-                    .info-card .value { font-size: 1.25rem; color: #1d1d1f; font-weight: 600; letter-spacing: -0.022em; }
-                    .footer { background: #1d1d1f; color: #f5f5f7; padding: 40px; text-align: center; }
-                    .footer p { margin: 8px 0; font-size: 0.95rem; color: #a1a1a6; font-weight: 400; }
-                    .footer .highlight { color: #007aff; font-weight: 600; }
-                    .screenshots-grid { display: grid; grid-template-columns: repeat(auto-fit, minmax(300px, 1fr)); gap: 20px; }
-                    .screenshot-card { background: #ffffff; padding: 20px; border-radius: 12px; border: 1px solid #f2f2f2; text-align: center; }
-                    .screenshot-header h4 { color: #1d1d1f; margin-bottom: 8px; font-size: 1.1rem; }
-                    .screenshot-header .timestamp { color: #86868b; font-size: 0.9rem; }
-                    @media (max-width: 768px) { .summary { grid-template-columns: repeat(2, 1fr); padding: 30px 20px; } .info-grid { grid-template-columns: 1fr; } .screenshots-grid { grid-template-columns: 1fr; } }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>Test Execution Report</h1>
-                        <p class="subtitle">Comprehensive automation results with detailed insights</p>
-                        <div style="margin: 20px 0; padding: 15px; background: linear-gradient(135deg, #007aff, #5856d6); border-radius: 12px;">
-                            <a href="%s" target="_blank" style="color: white; text-decoration: none; font-weight: 600; font-size: 1.1rem;">
-                                📊 View Detailed HTML Report (Click to Open)
-                            </a>
-                        </div>
-                        <div class="watermark">Nilesh Patil</div>
+    private static final HtmlTemplate REPORT = HtmlTemplate.compile("""
+        <!DOCTYPE html>
+        <html>
+        <head>
+            <meta charset="UTF-8">
+            <title>Test Execution Report</title>
+            <style>
+                * { margin: 0; padding: 0; box-sizing: border-box; }
+                body { font-family: -apple-system, BlinkMacSystemFont, 'SF Pro Display', 'SF Pro Text', Helvetica, Arial, sans-serif; background: #f5f5f7; line-height: 1.47059; font-weight: 400; letter-spacing: -0.022em; min-height: 100vh; padding: 20px; }
+                .container { max-width: 1200px; margin: 0 auto; background: #ffffff; border-radius: 18px; box-shadow: 0 4px 60px rgba(0, 0, 0, 0.07); overflow: hidden; }
+                .header { background: linear-gradient(180deg, #ffffff 0%, #f5f5f7 100%); padding: 60px 40px 40px; text-align: center; position: relative; border-bottom: 1px solid #d2d2d7; }
+                .header h1 { font-size: 3rem; font-weight: 700; color: #1d1d1f; margin-bottom: 12px; letter-spacing: -0.04em; }
+                .header .subtitle { font-size: 1.25rem; color: #6e6e73; font-weight: 400; margin-bottom: 30px; }
+                .watermark { position: absolute; bottom: -10px; left: 50%; transform: translateX(-50%); background: linear-gradient(135deg, #007aff 0%, #5856d6 50%, #af52de 100%); -webkit-background-clip: text; -webkit-text-fill-color: transparent; background-clip: text; font-size: 1.1rem; font-weight: 700; letter-spacing: 0.5px; text-transform: uppercase; }
+                .watermark::before { content: '✨ Crafted by '; background: linear-gradient(135deg, #ff9500 0%, #ff6b6b 100%); -webkit-background-clip: text; -webkit-text-fill-color: transparent; background-clip: text; }
+                .watermark::after { content: ' ✨'; background: linear-gradient(135deg, #ff9500 0%, #ff6b6b 100%); -webkit-background-clip: text; -webkit-text-fill-color: transparent; background-clip: text; }
+                .summary { display: grid; grid-template-columns: repeat(4, 1fr); padding: 40px; gap: 20px; }
+                .metric { background: #ffffff; padding: 32px 24px; border-radius: 12px; text-align: center; border: 1px solid #f2f2f2; }
+                .metric .icon { width: 44px; height: 44px; border-radius: 10px; margin: 0 auto 16px; display: flex; align-items: center; justify-content: center; font-size: 1.5rem; }
+                .total .icon { background: linear-gradient(135deg, #007aff, #5856d6); }
+                .passed .icon { background: linear-gradient(135deg, #34c759, #30d158); }
+                .failed .icon { background: linear-gradient(135deg, #ff3b30, #ff6b6b); }
+                .skipped .icon { background: linear-gradient(135deg, #ff9500, #ffb340); }
+                .metric h3 { font-size: 2.5rem; font-weight: 700; color: #1d1d1f; margin-bottom: 8px; letter-spacing: -0.04em; }
+                .metric p { font-size: 1rem; color: #86868b; font-weight: 600; text-transform: uppercase; letter-spacing: 0.06em; }
+                .progress-section { padding: 0 40px 40px; }
+                .progress-label { font-size: 1.1rem; font-weight: 600; color: #1d1d1f; margin-bottom: 12px; text-align: center; }
+                .progress-bar { height: 8px; background: #f2f2f2; border-radius: 4px; overflow: hidden; position: relative; }
+                .progress-fill { height: 100%; background: linear-gradient(90deg, #34c759, #30d158); width: {{successRate}}%; border-radius: 4px; }
+                .info-section { padding: 40px; background: #fbfbfd; border-top: 1px solid #f2f2f2; }
+                .info-section h2 { font-size: 1.75rem; font-weight: 700; color: #1d1d1f; margin-bottom: 32px; text-align: center; letter-spacing: -0.022em; }
+                .info-grid { display: grid; grid-template-columns: repeat(auto-fit, minmax(280px, 1fr)); gap: 20px; }
+                .info-card { background: #ffffff; padding: 24px; border-radius: 12px; border: 1px solid #f2f2f2; }
+                .info-card .label { font-size: 0.85rem; color: #86868b; font-weight: 600; text-transform: uppercase; letter-spacing: 0.06em; margin-bottom: 8px; }
+                .info-card .value { font-size: 1.25rem; color: #1d1d1f; font-weight: 600; letter-spacing: -0.022em; }
+                .footer { background: #1d1d1f; color: #f5f5f7; padding: 40px; text-align: center; }
+                .footer p { margin: 8px 0; font-size: 0.95rem; color: #a1a1a6; font-weight: 400; }
+                .footer .highlight { color: #007aff; font-weight: 600; }
+                .screenshots-grid { display: grid; grid-template-columns: repeat(auto-fit, minmax(300px, 1fr)); gap: 20px; }
+                .screenshot-card { background: #ffffff; padding: 20px; border-radius: 12px; border: 1px solid #f2f2f2; text-align: center; }
+                .screenshot-header h4 { color: #1d1d1f; margin-bottom: 8px; font-size: 1.1rem; }
+                .screenshot-header .timestamp { color: #86868b; font-size: 0.9rem; }
+                @media (max-width: 768px) { .summary { grid-template-columns: repeat(2, 1fr); padding: 30px 20px; } .info-grid { grid-template-columns: 1fr; } .screenshots-grid { grid-template-columns: 1fr; } }
+            </style>
+        </head>
+        <body>
+            <div class="container">
+                <div class="header">
+                    <h1>Test Execution Report</h1>
+                    <p class="subtitle">Comprehensive automation results with detailed insights</p>
+                    <div style="margin: 20px 0; padding: 15px; background: linear-gradient(135deg, #007aff, #5856d6); border-radius: 12px;">
+                        <a href="{{reportLink}}" target="_blank" style="color: white; text-decoration: none; font-weight: 600; font-size: 1.1rem;">
+                            📊 View Detailed HTML Report (Click to Open)
+                        </a>
                     </div>
-                    
-                    <div class="summary">
-                        <div class="metric total">
-                            <div class="icon">📊</div>
-                            <h3>%d</h3>
-                            <p>Total Tests</p>
-                        </div>
-                        <div class="metric passed">
-                            <div class="icon">✅</div>
-                            <h3>%d</h3>
-                            <p>Passed</p>
+                    <div class="watermark">Nilesh Patil</div>
+                </div>
+
+                <div class="summary">
+                    <div class="metric total">
+                        <div class="icon">📊</div>
+                        <h3>{{total}}</h3>
+                        <p>Total Tests</p>
+                    </div>
+                    <div class="metric passed">
+                        <div class="icon">✅</div>
+                        <h3>{{passed}}</h3>
+                        <p>Passed</p>
+                    </div>
+                    <div class="metric failed">
+                        <div class="icon">❌</div>
+                        <h3>{{failed}}</h3>
+                        <p>Failed</p>
+                    </div>
+                    <div class="metric skipped">
+                        <div class="icon">⏭️</div>
+                        <h3>{{skipped}}</h3>
+                        <p>Skipped</p>
+                    </div>
+                </div>
+
+                <div class="progress-section">
+                    <div class="progress-label">Success Rate: {{successRate}}%</div>
+                    <div class="progress-bar">
+                        <div class="progress-fill"></div>
+                    </div>
+                </div>
+
+                <div class="info-section">
+                    <h2>Execution Environment</h2>
+                    <div class="info-grid">
+                        <div class="info-card">
+                            <div class="label">Environment</div>
+                            <div class="value">{{environment}}</div>
                         </div>
-                        <div class="metric failed">
-                            <div class="icon">❌</div>
-                            <h3>%d</h3>
-                            <p>Failed</p>
+                        <div class="info-card">
+                            <div class="label">Browser</div>
+                            <div class="value">{{browser}}</div>
                         </div>
-                        <div class="metric skipped">
-                            <div class="icon">⏭️</div>
-                            <h3>%d</h3>
-                            <p>Skipped</p>
+                        <div class="info-card">
+                            <div class="label">Duration</div>
+                            <div class="value">{{executionTime}}</div>
                         </div>
-                    </div>
-                    
-                    <div class="progress-section">
-                        <div class="progress-label">Success Rate: %.1f%%</div>
-                        <div class="progress-bar">
-                            <div class="progress-fill"></div>
+                        <div class="info-card">
+                            <div class="label">Success Rate</div>
+                            <div class="value">{{successRate}}%</div>
                         </div>
-                    </div>
-                    
-                    <div class="info-section">
-                        <h2>Execution Environment</h2>
-                        <div class="info-grid">
-                            <div class="info-card">
-                                <div class="label">Environment</div>
-                                <div class="value">%s</div>
-                            </div>
-                            <div class="info-card">
-                                <div class="label">Browser</div>
-                                <div class="value">%s</div>
-                            </div>
-                            <div class="info-card">
-                                <div class="label">Duration</div>
-                                <div class="value">%s</div>
-                            </div>
-                            <div class="info-card">
-                                <div class="label">Success Rate</div>
-                                <div class="value">%.1f%%</div>
-                            </div>
-                            <div class="info-card">
-                                <div class="label">Completed</div>
-                                <div class="value">%s</div>
-                            </div>
+                        <div class="info-card">
+                            <div class="label">Completed</div>
+                            <div class="value">{{completed}}</div>
                         </div>
                     </div>
-                    
-                    %s
-                    
-                    <div class="footer">
-                        <p>Automated testing powered by <span class="highlight">JSD Framework</span> - By Nilesh Patil</p>
-                        <p>Built with precision and attention to detail</p>
-                    </div>
                 </div>
-            </body>
-            </html>
-            """;
-        
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+                {{shards}}
+
+                {{screenshots}}
+
+                <div class="footer">
+                    <p>Automated testing powered by <span class="highlight">JSD Framework</span> - By Nilesh Patil</p>
+                    <p>Built with precision and attention to detail</p>
+                </div>
+            </div>
+        </body>
+        </html>
+        """);
+    
+    private static final HtmlTemplate SCREENSHOT_CARD = HtmlTemplate.compile("""
+        <div class="screenshot-card">
+        <div class="screenshot-header">
+        <h4>{{testName}}</h4>
+        <span class="timestamp">Failed at {{timestamp}}</span>
+        </div>
+        <div style="background: #f8f9fa; padding: 15px; border-radius: 8px; text-align: center;">
+        {{image}}</div>
+        </div>
+        """);
+    
+    private static final HtmlTemplate EMBEDDED_IMAGE = HtmlTemplate.compile(
+        "<img style=\"max-width: 100%; border-radius: 6px;\" alt=\"Failure screenshot\" src=\"data:{{mimeType}};base64,{{data}}\">\n");
+    
+    private static final HtmlTemplate INLINE_THUMBNAIL = HtmlTemplate.compile(
+        "<img style=\"max-width: 100%; border-radius: 6px;\" alt=\"Failure screenshot\" src=\"cid:{{contentId}}\">\n");
+    
+    private static final HtmlTemplate SHARD_CARD = HtmlTemplate.compile("""
+        <div class="info-card" style="{{style}}">
+        <div class="label">{{label}}</div>
+        <div class="value">{{duration}}</div>
+        <div style="font-size: 0.85rem; color: #86868b; margin-top: 6px;">{{tests}} tests, {{failed}} failed{{note}}</div>
+        </div>
+        """);
+    
+    private static final HtmlTemplate ATTACHMENT_NOTE = HtmlTemplate.compile(
+        "<li style=\"font-size: 12px; color: #666; margin: 4px 0;\">{{note}}</li>\n");
+    
+    private static final String SCREENSHOT_NOTICE = """
+        <p style="color: #666; margin-bottom: 10px;">📸 Screenshot captured for test failure</p>
+        <div style="background: #ff3b30; color: white; padding: 10px; border-radius: 6px; display: inline-block;">
+        <strong>❌ Test Failed - Screenshot Available</strong>
+        </div>
+        <p style="font-size: 12px; color: #999; margin-top: 8px;">Click 'View Detailed HTML Report' above to see screenshots</p>
+        """;
+    
+    public static String generateHTMLReport(int totalTests, int passed, int failed, int skipped, 
+                                          String executionTime, String environment, String browser, 
+                                          List<FailedTestScreenshot> screenshots) {
+        return generateHTMLReport(totalTests, passed, failed, skipped, executionTime, environment, browser,
+            screenshots, AttachmentPlanner.Plan.empty());
+    }
+    
+    /**
+     * Same as above, for an email sent with {@link EmailSender#sendEmailWithPlan}: the email body
+     * shows the planned inline thumbnails and notes which screenshots were left out and why.
+     */
+    public static String generateHTMLReport(int totalTests, int passed, int failed, int skipped, 
+                                          String executionTime, String environment, String browser, 
+                                          List<FailedTestScreenshot> screenshots, AttachmentPlanner.Plan plan) {
+        return generateHTMLReport(totalTests, passed, failed, skipped, executionTime, environment, browser,
+            screenshots, plan, List.of());
+    }
+    
+    private static String generateHTMLReport(int totalTests, int passed, int failed, int skipped, 
+                                           String executionTime, String environment, String browser, 
+                                           List<FailedTestScreenshot> screenshots, AttachmentPlanner.Plan plan,
+                                           List<ResultsMerger.Shard> shards) {
+        return REPORT.render(emailBodyValues(totalTests, passed, failed, skipped, executionTime, environment, browser,
+            screenshots, plan, shards));
+    }
+    
+    /** Saves the full report, then returns the values of the email body that links to it. */
+    private static Map<String, Object> emailBodyValues(int totalTests, int passed, int failed, int skipped, 
+                                                       String executionTime, String environment, String browser, 
+                                                       List<FailedTestScreenshot> screenshots, AttachmentPlanner.Plan plan,
+                                                       List<ResultsMerger.Shard> shards) {
         double successRate = totalTests > 0 ? Math.min((double) passed / totalTests * 100, 100.0) : 0;
         
-        // Generate screenshots section
-        String screenshotsSection = generateScreenshotsSection(screenshots);
-        
-        // Generate report file path for link (will be updated after saving)
-        String reportLink = "#"; // Placeholder, will be updated after saving
+        Map<String, Object> values = new HashMap<>();
+        values.put("successRate", String.format("%.1f", successRate));
+        values.put("total", totalTests);
+        values.put("passed", passed);
+        values.put("failed", failed);
+        values.put("skipped", skipped);
+        values.put("environment", environment);
+        values.put("browser", browser);
+        values.put("executionTime", executionTime);
+        values.put("completed", LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
+        values.put("shards", (HtmlTemplate.Section) out -> writeShardsSection(shards, out));
         
-        String htmlContent = String.format(htmlTemplate, 
-            reportLink, String.format("%.1f", successRate), totalTests, passed, failed, skipped, successRate,
-            environment, browser, executionTime, successRate, 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-            screenshotsSection);
+        // Saved report: links to itself, screenshots embedded by streaming them from disk
+        values.put("reportLink", "#");
+        values.put("screenshots", (HtmlTemplate.Section) out -> writeScreenshotsSection(screenshots, out, true, plan));
+        String actualReportPath = saveHTMLReport(values);
         
-        // Save HTML report to file and get the actual path
-        String actualReportPath = saveHTMLReport(htmlContent);
-        
-        // Update the link in HTML content with actual file path
-        if (actualReportPath != null) {
-            htmlContent = htmlContent.replace("#", "file://" + actualReportPath.replace("\\", "/"));
+        // The email body links to the saved report; it shows the planned thumbnails, full images stay in the file
+        values.put("reportLink", actualReportPath != null ? "file://" + actualReportPath.replace("\\", "/") : "#");
+        values.put("screenshots", (HtmlTemplate.Section) out -> writeScreenshotsSection(screenshots, out, false, plan));
+        return values;
+    }
+    
+    /**
+     * Report of journaled results (see {@link ResultsJournal}): counts, duration and failure
+     * screenshots are taken from the final attempt of each test.
+     */
+    public static String generateHTMLReport(List<ResultsJournal.Entry> entries, String environment, String browser,
+                                          AttachmentPlanner.Plan plan) {
+        return generateHTMLReport(entries, environment, browser, plan, List.of());
+    }
+    
+    /**
+     * Report of merged results (see {@link ResultsMerger}), with a card per shard or fork,
+     * longest first.
+     */
+    public static String generateHTMLReport(List<ResultsJournal.Entry> entries, String environment, String browser,
+                                          AttachmentPlanner.Plan plan, List<ResultsMerger.Shard> shards) {
+        return REPORT.render(emailBodyValues(entries, environment, browser, plan, shards));
+    }
+    
+    /**
+     * Same as above, streamed into a writer (e.g. the spool file the email body is sent from)
+     * instead of being built as one String.
+     */
+    public static void writeHTMLReport(List<ResultsJournal.Entry> entries, String environment, String browser,
+                                       AttachmentPlanner.Plan plan, List<ResultsMerger.Shard> shards, Writer out)
+            throws IOException {
+        REPORT.render(out, emailBodyValues(entries, environment, browser, plan, shards));
+    }
+    
+    private static Map<String, Object> emailBodyValues(List<ResultsJournal.Entry> entries, String environment,
+                                                       String browser, AttachmentPlanner.Plan plan,
+                                                       List<ResultsMerger.Shard> shards) {
+        int passed = 0, failed = 0, skipped = 0;
+        long start = Long.MAX_VALUE, end = Long.MIN_VALUE;
+        List<FailedTestScreenshot> screenshots = new ArrayList<>();
+        DateTimeFormatter time = DateTimeFormatter.ofPattern("HH:mm:ss");
+        for (ResultsJournal.Entry entry : entries) {
+            start = Math.min(start, entry.startMillis());
+            end = Math.max(end, entry.endMillis());
+            switch (entry.status()) {
+                case PASSED -> passed++;
+                case FAILED -> failed++;
+                case SKIPPED -> skipped++;
+                case RETRIED -> {
+                    continue;
+                }
+            }
+            if (entry.status() == ResultsJournal.Status.FAILED) {
+                String timestamp = Instant.ofEpochMilli(entry.endMillis()).atZone(ZoneId.systemDefault()).format(time);
+                for (String artifact : entry.artifacts()) {
+                    screenshots.add(new FailedTestScreenshot(entry.name(), timestamp, Paths.get(artifact)));
+                }
+            }
         }
-        
-        return htmlContent;
+        long seconds = entries.isEmpty() ? 0 : (end - start) / 1000;
+        return emailBodyValues(passed + failed + skipped, passed, failed, skipped,
+            String.format("%dm %ds", seconds / 60, seconds % 60), environment, browser, screenshots, plan, shards);
     }
     
-    private static String saveHTMLReport(String htmlContent) {
+    private static String saveHTMLReport(Map<String, Object> values) {
         try {
             Path reportDir = Paths.get(System.getProperty("user.dir"), "test-output", "email-reports");
             if (!Files.exists(reportDir)) {
@@ -191,7 +355,9 @@ public class EmailReportGenerator {
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + ".html";
             Path reportFile = reportDir.resolve(fileName);
             
-            Files.write(reportFile, htmlContent.getBytes());
+            try (Writer out = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+                REPORT.render(out, values);
+            }
             log.info("HTML email report saved to: {}", reportFile.toString());
             
             return reportFile.toAbsolutePath().toString();
@@ -202,38 +368,62 @@ public class EmailReportGenerator {
         }
     }
     
-    private static String generateScreenshotsSection(java.util.List<FailedTestScreenshot> screenshots) {
+    /** Wall-clock time of every shard; the longest one, which decided the run time, is marked. */
+    private static void writeShardsSection(List<ResultsMerger.Shard> shards, Writer out) throws IOException {
+        if (shards.size() < 2) {
+            return;
+        }
+        out.write("<div class=\"info-section\">\n<h2>Shards</h2>\n<div class=\"info-grid\">\n");
+        Map<String, Object> card = new HashMap<>();
+        for (ResultsMerger.Shard shard : shards) {
+            boolean longest = shard == shards.get(0);
+            long seconds = shard.durationMillis() / 1000;
+            card.put("style", longest ? "border: 2px solid #ff9500;" : "");
+            card.put("label", shard.label());
+            card.put("duration", String.format("%dm %ds", seconds / 60, seconds % 60));
+            card.put("tests", shard.tests());
+            card.put("failed", shard.failed());
+            card.put("note", longest ? " - longest" : "");
+            SHARD_CARD.render(out, card);
+        }
+        out.write("</div>\n</div>\n");
+    }
+    
+    /**
+     * Writes the screenshot cards. With embedImages each spooled file is streamed through Base64
+     * into the output; otherwise the cards show the plan's inline thumbnail or point to the saved
+     * report (email body), followed by the plan's notes.
+     */
+    private static void writeScreenshotsSection(List<FailedTestScreenshot> screenshots, Writer out, boolean embedImages,
+                                                AttachmentPlanner.Plan plan) throws IOException {
         if (screenshots == null || screenshots.isEmpty()) {
-            return "";
+            return;
         }
         
-        StringBuilder section = new StringBuilder();
-        section.append("<div class=\"info-section\">\n");
-        section.append("<h2>Failed Test Screenshots</h2>\n");
-        section.append("<div class=\"screenshots-grid\">\n");
-        
+        out.write("<div class=\"info-section\">\n<h2>Failed Test Screenshots</h2>\n<div class=\"screenshots-grid\">\n");
         for (FailedTestScreenshot screenshot : screenshots) {
-            section.append(String.format(
-                "<div class=\"screenshot-card\">\n" +
-                "<div class=\"screenshot-header\">\n" +
-                "<h4>%s</h4>\n" +
-                "<span class=\"timestamp\">Failed at %s</span>\n" +
-                "</div>\n" +
-                "<div style=\"background: #f8f9fa; padding: 15px; border-radius: 8px; text-align: center;\">\n" +
-                "<p style=\"color: #666; margin-bottom: 10px;\">📸 Screenshot captured for test failure</p>\n" +
-                "<div style=\"background: #ff3b30; color: white; padding: 10px; border-radius: 6px; display: inline-block;\">\n" +
-                "<strong>❌ Test Failed - Screenshot Available</strong>\n" +
-                "</div>\n" +
-                "<p style=\"font-size: 12px; color: #999; margin-top: 8px;\">Click 'View Detailed HTML Report' above to see screenshots</p>\n" +
-                "</div>\n" +
-                "</div>\n",
-                screenshot.testName, screenshot.timestamp
-            ));
+            boolean embed = embedImages && Files.isReadable(screenshot.filePath);
+            String contentId = embedImages ? null : plan.thumbnailId(screenshot.filePath);
+            HtmlTemplate.Section image;
+            if (embed) {
+                image = section -> EMBEDDED_IMAGE.render(section, Map.of("mimeType", screenshot.getMimeType(),
+                    "data", (HtmlTemplate.Section) screenshot::writeBase64));
+            } else if (contentId != null) {
+                image = section -> INLINE_THUMBNAIL.render(section, Map.of("contentId", contentId));
+            } else {
+                image = section -> section.write(SCREENSHOT_NOTICE);
+            }
+            SCREENSHOT_CARD.render(out, Map.of("testName", screenshot.testName, "timestamp", screenshot.timestamp,
+                "image", image));
         }
-        
-        section.append("</div>\n");
-        section.append("</div>\n");
-        
-        return section.toString();
+        out.write("</div>\n");
+        if (!embedImages && !plan.notes().isEmpty()) {
+            out.write("<ul style=\"margin-top: 15px; padding-left: 20px;\">\n");
+            for (String note : plan.notes()) {
+                ATTACHMENT_NOTE.render(out, Map.of("note", note));
+            }
+            out.write("</ul>\n");
+        }
+        out.write("</div>\n");
     }
-}
\ No newline at end of file
+}
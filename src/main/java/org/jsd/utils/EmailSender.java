@@ -7,97 +7,126 @@ import javax.activation.DataHandler;
 import javax.activation.FileDataSource;
 import javax.mail.*;
 import javax.mail.internet.*;
+import javax.mail.util.ByteArrayDataSource;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Builds report emails and queues them on the default {@link MailDispatcher}.
+ *
+ * The send methods return as soon as the message is queued; the returned future completes
+ * when the server accepted it. Configuration errors (no EMAIL_PASSWORD, no recipients) are
+ * still thrown on the calling thread.
+ */
 public class EmailSender {
     private static final Logger log = LogManager.getLogger(EmailSender.class);
-    
-    public static void sendSimpleEmail(String subject, String htmlContent) throws Exception {
-        String smtpHost = ConfigReader.getProperty("email.smtp.host");
-        String smtpPort = ConfigReader.getProperty("email.smtp.port");
-        String fromEmail = ConfigReader.getProperty("email.from");
-        String password = System.getenv("EMAIL_PASSWORD");
-        String toEmails = ConfigReader.getProperty("email.to");
-        
-        if (password == null) {
-            throw new IllegalArgumentException("EMAIL_PASSWORD environment variable not set");
-        }
-        
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", smtpHost);
-        props.put("mail.smtp.port", smtpPort);
-        
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(fromEmail, password);
-            }
+
+    public static CompletableFuture<Void> sendSimpleEmail(String subject, String htmlContent) throws Exception {
+        return dispatch(session -> {
+            Message message = newMessage(session, subject);
+            message.setContent(htmlContent, "text/html; charset=utf-8");
+            return message;
         });
-        
-        Message message = new MimeMessage(session);
-        message.setFrom(new InternetAddress(fromEmail));
-        
-        String[] recipients = toEmails.split(",");
-        InternetAddress[] addresses = new InternetAddress[recipients.length];
-        for (int i = 0; i < recipients.length; i++) {
-            addresses[i] = new InternetAddress(recipients[i].trim());
-        }
-        message.setRecipients(Message.RecipientType.TO, addresses);
-        
-        message.setSubject(subject);
-        message.setContent(htmlContent, "text/html; charset=utf-8");
-        
-        Transport.send(message);
-        log.info("Simple email sent successfully to: {}", toEmails);
     }
-    
-    public static void sendEmailWithAttachments(String subject, String htmlContent, List<String> screenshotPaths) throws Exception {
-        String smtpHost = ConfigReader.getProperty("email.smtp.host");
-        String smtpPort = ConfigReader.getProperty("email.smtp.port");
-        String fromEmail = ConfigReader.getProperty("email.from");
-        String password = System.getenv("EMAIL_PASSWORD");
-        String toEmails = ConfigReader.getProperty("email.to");
-        
-        if (password == null) {
-            throw new IllegalArgumentException("EMAIL_PASSWORD environment variable not set");
-        }
-        
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", smtpHost);
-        props.put("mail.smtp.port", smtpPort);
-        
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(fromEmail, password);
+
+    public static CompletableFuture<Void> sendEmailWithAttachments(String subject, String htmlContent,
+                                                                   List<String> screenshotPaths) throws Exception {
+        return dispatch(session -> {
+            MimeBodyPart htmlPart = new MimeBodyPart();
+            htmlPart.setContent(htmlContent, "text/html; charset=utf-8");
+            return newMultipartMessage(session, subject, htmlPart, screenshotPaths);
+        });
+    }
+
+    /**
+     * Sends an HTML body that was rendered to a file; the body is streamed from the file while
+     * the message is written to the SMTP connection, never held as a String.
+     */
+    public static CompletableFuture<Void> sendEmailWithAttachments(String subject, Path htmlBody,
+                                                                   List<String> screenshotPaths) throws Exception {
+        return dispatch(session -> {
+            return newMultipartMessage(session, subject, htmlPart(htmlBody), screenshotPaths);
+        });
+    }
+
+    /**
+     * Sends an HTML body with the attachments of a plan: thumbnails inline, referenced from the
+     * body as cid:&lt;contentId&gt;, and the full screenshots as one ZIP attachment.
+     */
+    public static CompletableFuture<Void> sendEmailWithPlan(String subject, Path htmlBody,
+                                                            AttachmentPlanner.Plan plan) throws Exception {
+        return dispatch(session -> {
+            Message message = newMessage(session, subject);
+
+            // multipart/related keeps the thumbnails with the body that references them
+            MimeMultipart related = new MimeMultipart("related");
+            related.addBodyPart(htmlPart(htmlBody));
+            for (AttachmentPlanner.Attachment attachment : plan.attachments()) {
+                if (attachment.thumbnail() != null) {
+                    MimeBodyPart thumbnailPart = new MimeBodyPart();
+                    thumbnailPart.setDataHandler(new DataHandler(new ByteArrayDataSource(attachment.thumbnail(), "image/jpeg")));
+                    thumbnailPart.setContentID("<" + attachment.contentId() + ">");
+                    thumbnailPart.setDisposition(Part.INLINE);
+                    thumbnailPart.setFileName(attachment.contentId() + ".jpg");
+                    related.addBodyPart(thumbnailPart);
+                }
+            }
+            if (plan.archive() == null) {
+                message.setContent(related);
+                return message;
             }
+
+            Multipart multipart = new MimeMultipart();
+            MimeBodyPart relatedPart = new MimeBodyPart();
+            relatedPart.setContent(related);
+            multipart.addBodyPart(relatedPart);
+
+            // The archive is read from disk while the message is written to the connection
+            MimeBodyPart archivePart = new MimeBodyPart();
+            archivePart.setDataHandler(new DataHandler(new FileDataSource(plan.archive().toFile()) {
+                @Override
+                public String getContentType() {
+                    return "application/zip";
+                }
+            }));
+            archivePart.setFileName(plan.archive().getFileName().toString());
+            multipart.addBodyPart(archivePart);
+            log.info("Added screenshot archive: {} ({} KB)", plan.archive().getFileName(), plan.archiveBytes() / 1024);
+
+            message.setContent(multipart);
+            return message;
         });
-        
-        Message message = new MimeMessage(session);
-        message.setFrom(new InternetAddress(fromEmail));
-        
-        String[] recipients = toEmails.split(",");
-        InternetAddress[] addresses = new InternetAddress[recipients.length];
-        for (int i = 0; i < recipients.length; i++) {
-            addresses[i] = new InternetAddress(recipients[i].trim());
+    }
+
+    public static CompletableFuture<Void> sendTestReport(String htmlContent, int totalTests, int passed, int failed) throws Exception {
+        // Set subject with test results
+        String emailSubject = String.format("%s - %d Tests (%d Passed, %d Failed)",
+            ConfigReader.getProperty("email.subject"), totalTests, passed, failed);
+        return sendSimpleEmail(emailSubject, htmlContent);
+    }
+
+    private static CompletableFuture<Void> dispatch(MailDispatcher.MessageFactory factory) {
+        // Validate configuration before queueing, so mistakes surface in the caller
+        if (ConfigReader.getProperty("email.from") == null || ConfigReader.getProperty("email.to") == null) {
+            throw new IllegalArgumentException("Email configuration missing in config.properties");
         }
-        message.setRecipients(Message.RecipientType.TO, addresses);
-        message.setSubject(subject);
-        
+        CompletableFuture<Void> delivery = MailDispatcher.getDefault().submit(factory);
+        log.info("Email queued for: {}", ConfigReader.getProperty("email.to"));
+        return delivery;
+    }
+
+    private static Message newMultipartMessage(Session session, String subject, MimeBodyPart htmlPart,
+                                               List<String> screenshotPaths) throws MessagingException {
+        Message message = newMessage(session, subject);
+
         // Create multipart message
         Multipart multipart = new MimeMultipart();
-        
+
         // Add HTML content
-        MimeBodyPart htmlPart = new MimeBodyPart();
-        htmlPart.setContent(htmlContent, "text/html; charset=utf-8");
         multipart.addBodyPart(htmlPart);
-        
+
         // Add screenshot attachments
         if (screenshotPaths != null && !screenshotPaths.isEmpty()) {
             for (String screenshotPath : screenshotPaths) {
@@ -112,72 +141,38 @@ public class EmailSender {
                 }
             }
         }
-        
+
         message.setContent(multipart);
-        Transport.send(message);
-        log.info("Email with attachments sent successfully to: {}", toEmails);
+        return message;
     }
-    
-    public static void sendTestReport(String htmlContent, int totalTests, int passed, int failed) throws Exception {
-        // Get email configuration
-        String smtpHost = ConfigReader.getProperty("email.smtp.host");
-        String smtpPort = ConfigReader.getProperty("email.smtp.port");
-        String fromEmail = ConfigReader.getProperty("email.from");
-        String password = System.getenv("EMAIL_PASSWORD");
-        String toEmails = ConfigReader.getProperty("email.to");
-        String subject = ConfigReader.getProperty("email.subject");
-        
 
-        if (password == null) {
-            throw new IllegalArgumentException("EMAIL_PASSWORD environment variable not set. Please set Gmail App Password.");
-        }
-        
-        // Validate configuration
-        if (smtpHost == null || fromEmail == null || toEmails == null) {
-            throw new IllegalArgumentException("Email configuration missing in config.properties");
-        }
-        
-        // Setup mail properties for Gmail
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.starttls.required", "true");
-        props.put("mail.smtp.ssl.protocols", "TLSv1.2");
-        props.put("mail.smtp.host", smtpHost);
-        props.put("mail.smtp.port", smtpPort);
-
-        
-        // Create session
-        Session session = Session.getInstance(props, new Authenticator() {
+    /** HTML part streamed from a rendered file. */
+    private static MimeBodyPart htmlPart(Path htmlBody) throws MessagingException {
+        MimeBodyPart htmlPart = new MimeBodyPart();
+        htmlPart.setDataHandler(new DataHandler(new FileDataSource(htmlBody.toFile()) {
             @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(fromEmail, password);
+            public String getContentType() {
+                return "text/html; charset=utf-8";
             }
-        });
-        
-        // Create message
+        }));
+        return htmlPart;
+    }
+
+    /** Message with sender, recipients and subject from the configuration. */
+    private static Message newMessage(Session session, String subject) throws MessagingException {
+        String fromEmail = ConfigReader.getProperty("email.from");
+        String toEmails = ConfigReader.getProperty("email.to");
+
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(fromEmail));
-        
-        // Add recipients
+
         String[] recipients = toEmails.split(",");
         InternetAddress[] addresses = new InternetAddress[recipients.length];
         for (int i = 0; i < recipients.length; i++) {
             addresses[i] = new InternetAddress(recipients[i].trim());
         }
         message.setRecipients(Message.RecipientType.TO, addresses);
-        
-        // Set subject with test results
-        String emailSubject = String.format("%s - %d Tests (%d Passed, %d Failed)", 
-            subject, totalTests, passed, failed);
-        message.setSubject(emailSubject);
-        
-        // Set HTML content
-        message.setContent(htmlContent, "text/html; charset=utf-8");
-        
-        // Send email
-        log.info("Attempting to send email...");
-        Transport.send(message);
-        log.info("Email sent successfully to: {}", toEmails);
+        message.setSubject(subject);
+        return message;
     }
 }
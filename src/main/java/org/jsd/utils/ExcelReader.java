@@ -7,6 +7,8 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -15,14 +17,27 @@ import java.util.Map;
 public class ExcelReader {
     private static final Logger log = LogManager.getLogger(ExcelReader.class);
     
+    /** Header row and data rows of a sheet, read from one opened workbook */
+    private record SheetData(String[] headers, Object[][] rows) { }
+    
     public static Object[][] readExcelData(String filePath, String sheetName) {
+        return readSheet(filePath, sheetName).rows();
+    }
+    
+    private static SheetData readSheet(String filePath, String sheetName) {
         String resolvedPath = resolvePath(filePath);
         try (FileInputStream fis = new FileInputStream(resolvedPath);
              Workbook workbook = new XSSFWorkbook(fis)) {
             
             Sheet sheet = workbook.getSheet(sheetName);
             int rowCount = sheet.getLastRowNum();
-            int colCount = sheet.getRow(0).getLastCellNum();
+            Row headerRow = sheet.getRow(0);
+            int colCount = headerRow.getLastCellNum();
+            
+            String[] headers = new String[colCount];
+            for (int j = 0; j < colCount; j++) {
+                headers[j] = getCellValue(headerRow.getCell(j)).toString().trim();
+            }
             
             Object[][] data = new Object[rowCount][colCount];
             
@@ -35,7 +50,7 @@ public class ExcelReader {
             }
             
             log.info("Excel data read successfully from: {}", filePath);
-            return data;
+            return new SheetData(headers, data);
             
         } catch (IOException e) {
             log.error("Failed to read Excel file: {}", filePath, e);
@@ -43,6 +58,40 @@ public class ExcelReader {
         }
     }
     
+    public static Object[][] readShardedExcelData(String filePath, String sheetName) {
+        return shard(filePath, sheetName, readExcelData(filePath, sheetName));
+    }
+    
+    private static Object[][] shard(String filePath, String sheetName, Object[][] rows) {
+        String datasetName = Paths.get(filePath).getFileName() + "#" + sheetName;
+        return DataSharder.shard(datasetName, rows);
+    }
+    
+    public static String[] readExcelHeader(String filePath, String sheetName) {
+        String resolvedPath = resolvePath(filePath);
+        try (FileInputStream fis = new FileInputStream(resolvedPath);
+             Workbook workbook = new XSSFWorkbook(fis)) {
+            
+            Row headerRow = workbook.getSheet(sheetName).getRow(0);
+            String[] headers = new String[headerRow.getLastCellNum()];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = getCellValue(headerRow.getCell(i)).toString().trim();
+            }
+            return headers;
+            
+        } catch (IOException e) {
+            log.error("Failed to read Excel header: {}", filePath, e);
+            throw new RuntimeException("Excel file not found or corrupted", e);
+        }
+    }
+    
+    // Read this shard's rows and bind them to the test method's parameters by header (see RowBinder)
+    public static Object[][] readBoundExcelData(String filePath, String sheetName, Method testMethod) {
+        // Header and rows come from the same opened workbook
+        SheetData sheet = readSheet(filePath, sheetName);
+        return RowBinder.bind(testMethod, sheet.headers(), shard(filePath, sheetName, sheet.rows()));
+    }
+    
     public static List<Map<String, String>> readExcelAsMap(String filePath, String sheetName) {
         List<Map<String, String>> data = new ArrayList<>();
         String resolvedPath = resolvePath(filePath);
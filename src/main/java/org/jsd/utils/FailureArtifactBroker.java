@@ -0,0 +1,268 @@
+package org.jsd.utils;
+
+import io.qameta.allure.Allure;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Captures failure artifacts exactly once per failed test and fans them out to consumers.
+ *
+ * Several listeners react to the same failure (Allure, screenshot, email). Each of them
+ * asks the broker for the artifacts of the failing test; the first call takes the
+ * screenshot, URL, page source and browser logs while the session is still alive,
+ * publishes them to every registered consumer, and later calls get the same instance.
+ *
+ * Built-in consumers, registered by default:
+ * - ALLURE : attaches screenshot, URL, page source and browser logs to the current test
+ *            (screenshot encoded with the capture.allure.* policy)
+ * - DISK   : stores the screenshot in the {@link ArtifactStore} (path kept for email,
+ *            encoded with the capture.email.* policy); the journal and the email read that
+ *            file, so it stays referenced for the rest of the run
+ * - SCREENCAST : writes the frames recorded before the failure (see {@link ScreencastRecorder})
+ * Both only hand the bytes to {@link ArtifactPipeline}; encoding and I/O happen off the
+ * test thread, and the files are complete once ArtifactPipeline.flush() returns.
+ * Identical screenshots from different tests share one stored file and one attachment.
+ *
+ * The email report reads {@link #getCaptured()} at the end of the suite instead of
+ * taking its own screenshots after the drivers have quit; {@link #getFailedScreenshots()}
+ * indexes the stored failure screenshots of those captures.
+ *
+ * Usage (from a listener, on the test thread):
+ * FailureArtifacts artifacts = FailureArtifactBroker.capture(testKey, testName, driver);
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class FailureArtifactBroker {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(FailureArtifactBroker.class);
+    private static final int MAX_LOG_ENTRIES = 200;
+
+    /** Receives the artifacts of each failure once. */
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(FailureArtifacts artifacts) throws Exception;
+    }
+
+    public static final Consumer ALLURE = FailureArtifactBroker::attachToAllure;
+    public static final Consumer DISK = FailureArtifactBroker::saveToDisk;
+    public static final Consumer SCREENCAST = FailureArtifactBroker::saveScreencast;
+
+    /** One future per test key: the first caller claims the key and completes it after capturing */
+    private static final Map<String, CompletableFuture<FailureArtifacts>> captured = new ConcurrentHashMap<>();
+    private static final List<FailureArtifacts> capturedInOrder = new CopyOnWriteArrayList<>();
+    private static final List<Consumer> consumers = new CopyOnWriteArrayList<>(List.of(DISK, ALLURE, SCREENCAST));
+
+    public static void registerConsumer(Consumer consumer) {
+        consumers.add(consumer);
+    }
+
+    /**
+     * Returns the artifacts for a failed test, capturing and publishing them on the first call.
+     *
+     * @param testKey Unique key of the test invocation (retries and data rows get their own key)
+     * @param testName Human readable test name used for file and attachment names
+     * @param driver Session of the failing test; must still be alive on the first call
+     * @return The captured artifacts, or null if no driver is available and nothing was captured
+     */
+    public static FailureArtifacts capture(String testKey, String testName, WebDriver driver) {
+        CompletableFuture<FailureArtifacts> existing = captured.get(testKey);
+        if (existing != null) {
+            log.debug("Reusing failure artifacts for {}", testKey);
+            return await(existing);
+        }
+        if (driver == null) {
+            log.warn("WebDriver is null, cannot capture failure artifacts for test: {}", testName);
+            return null;
+        }
+
+        CompletableFuture<FailureArtifacts> claim = new CompletableFuture<>();
+        existing = captured.putIfAbsent(testKey, claim);
+        if (existing != null) {
+            return await(existing);
+        }
+        // This caller owns the key. Browser I/O and publishing run outside the map, so other keys never wait on them
+        try {
+            FailureArtifacts artifacts = captureFrom(testKey, testName, driver);
+            capturedInOrder.add(artifacts);
+            publish(artifacts);
+            // Consumers have spooled what they need; keep only the lightweight record for the rest of the suite
+            artifacts.releasePayload();
+            claim.complete(artifacts);
+            return artifacts;
+        } catch (RuntimeException e) {
+            captured.remove(testKey, claim);
+            claim.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Artifacts captured for a test key, waiting for a capture in progress; null if none was taken. */
+    public static FailureArtifacts get(String testKey) {
+        CompletableFuture<FailureArtifacts> artifacts = captured.get(testKey);
+        return artifacts == null ? null : await(artifacts);
+    }
+
+    /** Result of another caller's capture; null if that capture failed (the caller already logged it). */
+    private static FailureArtifacts await(CompletableFuture<FailureArtifacts> artifacts) {
+        try {
+            return artifacts.join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    /** All failures captured so far, in capture order. */
+    public static List<FailureArtifacts> getCaptured() {
+        return Collections.unmodifiableList(capturedInOrder);
+    }
+
+    /**
+     * Stored failure screenshots in capture order, as lightweight references for the email report.
+     * Files are complete after ArtifactPipeline.flush().
+     */
+    public static List<EmailReportGenerator.FailedTestScreenshot> getFailedScreenshots() {
+        DateTimeFormatter time = DateTimeFormatter.ofPattern("HH:mm:ss");
+        List<EmailReportGenerator.FailedTestScreenshot> screenshots = new ArrayList<>();
+        for (FailureArtifacts artifacts : capturedInOrder) {
+            if (artifacts.getScreenshotPath() != null) {
+                screenshots.add(new EmailReportGenerator.FailedTestScreenshot(artifacts.getTestName(),
+                    artifacts.getCapturedAt().format(time), Paths.get(artifacts.getScreenshotPath())));
+            }
+        }
+        return screenshots;
+    }
+
+    public static void clear() {
+        captured.clear();
+        capturedInOrder.clear();
+    }
+
+    private static FailureArtifacts captureFrom(String testKey, String testName, WebDriver driver) {
+        long start = System.nanoTime();
+        byte[] screenshot = null;
+        String url = null;
+        String pageSource = null;
+        List<String> browserLogs = new ArrayList<>();
+
+        try {
+            screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+        } catch (Exception e) {
+            log.warn("Failed to capture screenshot for {}: {}", testName, e.getMessage());
+        }
+        try {
+            url = driver.getCurrentUrl();
+        } catch (Exception e) {
+            log.debug("Failed to read URL for {}: {}", testName, e.getMessage());
+        }
+        try {
+            pageSource = driver.getPageSource();
+        } catch (Exception e) {
+            log.debug("Failed to read page source for {}: {}", testName, e.getMessage());
+        }
+        try {
+            // Supported by Chromium browsers; other drivers throw and we simply skip logs
+            for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+                if (browserLogs.size() >= MAX_LOG_ENTRIES) break;
+                browserLogs.add(entry.toString());
+            }
+        } catch (Exception e) {
+            log.debug("Browser logs not available for {}: {}", testName, e.getMessage());
+        }
+
+        List<ScreencastRecorder.Frame> screencast = ScreencastRecorder.snapshot(driver);
+
+        log.info("Captured failure artifacts for {} in {} ms", testName, (System.nanoTime() - start) / 1_000_000);
+        return new FailureArtifacts(testKey, testName, LocalDateTime.now(), screenshot, url, pageSource, browserLogs,
+            screencast);
+    }
+
+    private static void publish(FailureArtifacts artifacts) {
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.accept(artifacts);
+            } catch (Exception e) {
+                log.warn("Failure artifact consumer failed for {}: {}", artifacts.getTestName(), e.getMessage());
+            }
+        }
+    }
+
+    private static void attachToAllure(FailureArtifacts artifacts) {
+        // Attachments are registered here on the test thread; content is written by the pipeline.
+        // Screenshots and page sources go through the artifact store, so identical ones share one source file.
+        if (artifacts.getScreenshot() != null) {
+            ArtifactStore.attachToAllure(artifacts.getScreenshot(), "Failure Screenshot",
+                CapturePolicy.forScope("allure"), artifacts.getTestKey());
+        }
+        if (artifacts.getUrl() != null) {
+            ArtifactPipeline.attachToAllure("Failure URL", "text/uri-list", "txt",
+                artifacts.getUrl().getBytes(StandardCharsets.UTF_8));
+        }
+        if (artifacts.getPageSource() != null) {
+            ArtifactStore.attachToAllure(artifacts.getPageSource().getBytes(StandardCharsets.UTF_8),
+                "Page Source", "text/html", "html", artifacts.getTestKey());
+        }
+        if (!artifacts.getBrowserLogs().isEmpty()) {
+            ArtifactPipeline.attachToAllure("Browser Logs", "text/plain", "txt",
+                String.join(System.lineSeparator(), artifacts.getBrowserLogs()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void saveScreencast(FailureArtifacts artifacts) {
+        List<ScreencastRecorder.Frame> frames = artifacts.getScreencast();
+        if (frames.isEmpty()) {
+            return;
+        }
+        String format = System.getProperty("screencast.format", ConfigReader.getProperty("screencast.format", "gif"));
+        if (format.equalsIgnoreCase("frames")) {
+            // Frames are already JPEG: write them as they are, no decoding
+            Path dir = Paths.get("test-output", "screencasts", ArtifactPipeline.uniqueFileName(artifacts.getTestName(), "frames"));
+            for (int i = 0; i < frames.size(); i++) {
+                ArtifactPipeline.writeFile(dir.resolve(String.format("frame-%03d.jpg", i)), frames.get(i).jpeg());
+            }
+            log.info("Screencast of {} frames queued for {}: {}", frames.size(), artifacts.getTestName(), dir);
+            return;
+        }
+
+        // Registered now so it belongs to the failing test; GIF encoding happens on the pipeline
+        String source = Allure.getLifecycle().prepareAttachment("Screencast before failure", "image/gif", "gif");
+        ArtifactPipeline.submit("screencast " + artifacts.getTestName(), () -> {
+            byte[] gif = ScreencastRecorder.toAnimatedGif(frames);
+            Allure.getLifecycle().writeAttachment(source, new ByteArrayInputStream(gif));
+            // Already published to Allure, so the stored copy may go when retention needs the space
+            ArtifactStore.put(gif, "gif", artifacts.getTestKey());
+            ArtifactStore.release(artifacts.getTestKey());
+        });
+    }
+
+    private static void saveToDisk(FailureArtifacts artifacts) {
+        if (artifacts.getScreenshot() == null) {
+            return;
+        }
+        // Own owner: releasing the test's Allure copies must not release the file the reports link to
+        ArtifactStore.StoredArtifact stored = ArtifactStore.put(artifacts.getScreenshot(),
+            CapturePolicy.forScope("email"), "report:" + artifacts.getTestKey());
+        artifacts.setScreenshotPath(stored.path().toAbsolutePath().toString());
+        log.info("Screenshot for {} stored as: {}", artifacts.getTestName(), stored.path());
+    }
+}
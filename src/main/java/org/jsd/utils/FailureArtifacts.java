@@ -0,0 +1,89 @@
+package org.jsd.utils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Everything captured from a browser session at the moment a test failed.
+ * Filled once by {@link FailureArtifactBroker} and shared with every consumer.
+ *
+ * The payload (screenshot bytes, page source, browser logs, screencast frames) is only available while the
+ * broker publishes it to its consumers. Afterwards it is released so that a suite with
+ * many failures keeps only these lightweight records; the screenshot lives on in the
+ * spooled file at {@link #getScreenshotPath()}.
+ */
+public class FailureArtifacts {
+    private final String testKey;
+    private final String testName;
+    private final LocalDateTime capturedAt;
+    private final String url;
+    private volatile byte[] screenshot;
+    private volatile String pageSource;
+    private volatile List<String> browserLogs;
+    private volatile List<ScreencastRecorder.Frame> screencast;
+    private volatile String screenshotPath;
+
+    public FailureArtifacts(String testKey, String testName, LocalDateTime capturedAt, byte[] screenshot,
+                            String url, String pageSource, List<String> browserLogs,
+                            List<ScreencastRecorder.Frame> screencast) {
+        this.testKey = testKey;
+        this.testName = testName;
+        this.capturedAt = capturedAt;
+        this.screenshot = screenshot;
+        this.url = url;
+        this.pageSource = pageSource;
+        this.browserLogs = browserLogs;
+        this.screencast = screencast;
+    }
+
+    public String getTestKey() {
+        return testKey;
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public LocalDateTime getCapturedAt() {
+        return capturedAt;
+    }
+
+    /** PNG bytes, or null if the screenshot could not be taken or the payload was released */
+    public byte[] getScreenshot() {
+        return screenshot;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    public List<String> getBrowserLogs() {
+        return browserLogs;
+    }
+
+    /** Frames recorded before the failure, oldest first; empty unless screencast recording is on */
+    public List<ScreencastRecorder.Frame> getScreencast() {
+        return screencast;
+    }
+
+    /** Drops the in-memory payload once every consumer has received it. */
+    void releasePayload() {
+        screenshot = null;
+        pageSource = null;
+        browserLogs = List.of();
+        screencast = List.of();
+    }
+
+    /** Where the disk consumer saved the screenshot, or null if it was not saved */
+    public String getScreenshotPath() {
+        return screenshotPath;
+    }
+
+    public void setScreenshotPath(String screenshotPath) {
+        this.screenshotPath = screenshotPath;
+    }
+}
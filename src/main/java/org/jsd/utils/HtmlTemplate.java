@@ -0,0 +1,157 @@
+package org.jsd.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal HTML template compiled once into literal and placeholder segments, rendered by streaming.
+ *
+ * Placeholders:
+ * - {{name}}   : value HTML-escaped
+ * - {{{name}}} : value written as is (pre-built markup)
+ * A value that is a {@link Section} is called with the output writer instead, so large parts of
+ * a report (thousands of result rows, Base64 images) are written straight to the file or mail
+ * body without being assembled in memory first. Anything else is written via toString().
+ *
+ * Unlike String.format, literal text needs no escaping: CSS colours and percentages are
+ * copied verbatim.
+ *
+ * Usage:
+ * private static final HtmlTemplate ROW = HtmlTemplate.compile("<tr><td>{{name}}</td><td>{{status}}</td></tr>");
+ * ROW.render(writer, Map.of("name", testName, "status", "PASSED"));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class HtmlTemplate {
+    /** Streamed placeholder value. */
+    @FunctionalInterface
+    public interface Section {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    private final String[] literals;
+    private final String[] names;
+    private final boolean[] raw;
+
+    private HtmlTemplate(String[] literals, String[] names, boolean[] raw) {
+        this.literals = literals;
+        this.names = names;
+        this.raw = raw;
+    }
+
+    /**
+     * Splits the source into segments. literals[i] is written before names[i]; the last literal
+     * follows the last placeholder.
+     */
+    public static HtmlTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            boolean triple = source.startsWith("{{{", open);
+            String closing = triple ? "}}}" : "}}";
+            int close = source.indexOf(closing, open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + closing.length(), close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty placeholder at offset " + open);
+            }
+            literals.add(source.substring(position, open));
+            names.add(name);
+            raw.add(triple);
+            position = close + closing.length();
+        }
+        literals.add(source.substring(position));
+        boolean[] rawFlags = new boolean[raw.size()];
+        for (int i = 0; i < rawFlags.length; i++) {
+            rawFlags[i] = raw.get(i);
+        }
+        return new HtmlTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), rawFlags);
+    }
+
+    /**
+     * Writes the template with the given values. Every placeholder needs a value.
+     */
+    public void render(Writer out, Map<String, ?> values) throws IOException {
+        for (int i = 0; i < names.length; i++) {
+            out.write(literals[i]);
+            if (!values.containsKey(names[i])) {
+                throw new IllegalArgumentException("No value for placeholder {{" + names[i] + "}}");
+            }
+            Object value = values.get(names[i]);
+            if (value instanceof Section section) {
+                section.writeTo(out);
+            } else if (raw[i]) {
+                out.write(String.valueOf(value));
+            } else {
+                escape(String.valueOf(value), out);
+            }
+        }
+        out.write(literals[names.length]);
+    }
+
+    /** Renders into a string, for small templates and mail bodies that must be a String. */
+    public String render(Map<String, ?> values) {
+        StringWriter out = new StringWriter();
+        try {
+            render(out, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // sections writing to a StringWriter do not fail on I/O
+        }
+        return out.toString();
+    }
+
+    /** Placeholder names in order of first use. */
+    public Set<String> placeholders() {
+        Set<String> placeholders = new LinkedHashSet<>();
+        Collections.addAll(placeholders, names);
+        return placeholders;
+    }
+
+    /** Writes text with &amp;, &lt;, &gt;, &quot; and &#39; escaped, without building a copy. */
+    public static void escape(String text, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                out.write(text, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(text, start, text.length() - start);
+    }
+
+    public static String escape(String text) {
+        StringWriter out = new StringWriter(text.length() + 16);
+        try {
+            escape(text, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,389 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Rectangle;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pixel comparison engine for visual tests.
+ *
+ * Both images are normalized to TYPE_INT_ARGB so their pixels are plain int[] rasters.
+ * The rasters are compared row-major in horizontal stripes on the common ForkJoin pool;
+ * each stripe counts differing pixels and writes its rows of the diff image in the same
+ * pass (differences in red, unchanged pixels copied from the baseline). No per-pixel
+ * getRGB/setRGB and no colour model conversion in the hot loop.
+ *
+ * When the sizes differ, the overlapping area is compared and every pixel outside it counts
+ * as different; ignore regions are left out in both cases.
+ *
+ * compareTiles() restricts the per-pixel pass to selected tiles (see TileHashes); the other
+ * tiles are either known to be identical or ignored.
+ *
+ * A pixel tolerance lets anti-aliasing noise through: pixels whose channels all differ by at
+ * most the tolerance count as equal.
+ *
+ * The per-pixel work is done by a DiffKernel chosen once from visual.diff.kernel
+ * (auto, scalar, vector or a class name); see DiffKernel.
+ *
+ * Usage:
+ * ImageComparator.Result result = ImageComparator.compare(baselineImage, actualImage, true);
+ * if (result.diffPercentage() > 1.0) { ImageIO.write(result.diffImage(), "PNG", diffFile); }
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class ImageComparator {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ImageComparator.class);
+    private static final String VECTOR_KERNEL = "org.jsd.utils.VectorDiffKernel";
+
+    /** Colour used for differing pixels in the diff image */
+    public static final int DIFF_COLOR = 0xFFFF0000;
+    /** Smallest stripe worth a separate task */
+    private static final int MIN_STRIPE_ROWS = 32;
+
+    private static volatile DiffKernel kernel;
+
+    /**
+     * Outcome of a comparison.
+     *
+     * @param diffImage Diff image over the overlapping area, or null if not requested
+     */
+    public record Result(int width, int height, boolean sameSize, long diffPixels, long totalPixels,
+                         BufferedImage diffImage) {
+        public double diffPercentage() {
+            return totalPixels == 0 ? 0 : (double) diffPixels / totalPixels * 100;
+        }
+
+        public boolean matches(double maxDiffPercentage) {
+            return sameSize && diffPercentage() <= maxDiffPercentage;
+        }
+    }
+
+    /**
+     * Compares two images pixel by pixel.
+     *
+     * @param baseline Expected image
+     * @param actual Captured image
+     * @param buildDiff Whether to produce the diff image
+     */
+    public static Result compare(BufferedImage baseline, BufferedImage actual, boolean buildDiff) {
+        return compare(baseline, actual, 0, buildDiff);
+    }
+
+    /**
+     * Compares two images pixel by pixel.
+     *
+     * @param baseline Expected image
+     * @param actual Captured image
+     * @param tolerance Largest per-channel difference (0-255) still treated as equal
+     * @param buildDiff Whether to produce the diff image
+     */
+    public static Result compare(BufferedImage baseline, BufferedImage actual, int tolerance, boolean buildDiff) {
+        int width = Math.min(baseline.getWidth(), actual.getWidth());
+        int height = Math.min(baseline.getHeight(), actual.getHeight());
+        boolean sameSize = baseline.getWidth() == actual.getWidth() && baseline.getHeight() == actual.getHeight();
+
+        int[] base = pixels(toArgb(baseline));
+        int[] act = pixels(toArgb(actual));
+        BufferedImage diff = buildDiff ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB) : null;
+        int[] diffPixels = diff == null ? null : pixels(diff);
+
+        // About four stripes per core, so uneven stripes still balance out
+        int stripeRows = Math.max(MIN_STRIPE_ROWS, height / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        long differing = ForkJoinPool.commonPool().invoke(new Stripe(kernel(),
+            base, baseline.getWidth(), act, actual.getWidth(), diffPixels, width, tolerance, stripeRows, 0, height));
+
+        // Pixels that exist in only one image are differences too
+        long totalPixels = (long) Math.max(baseline.getWidth(), actual.getWidth())
+            * Math.max(baseline.getHeight(), actual.getHeight());
+        differing += totalPixels - (long) width * height;
+
+        return new Result(width, height, sameSize, differing, totalPixels, diff);
+    }
+
+    /**
+     * Compares two images of the same size, looking only at the given tiles; all other tiles
+     * count as equal. The diff image is the baseline with differing pixels in red, and
+     * totalPixels excludes the ignored tiles.
+     *
+     * @param tiles Tile grid of the images (the hashes themselves are not used)
+     * @param selected Tiles to compare pixel by pixel
+     * @param ignored Tiles left out of the pixel total
+     */
+    public static Result compareTiles(BufferedImage baseline, BufferedImage actual, TileHashes tiles,
+                                      BitSet selected, BitSet ignored, int tolerance, boolean buildDiff) {
+        int width = baseline.getWidth();
+        int height = baseline.getHeight();
+        if (width != actual.getWidth() || height != actual.getHeight()
+                || width != tiles.width() || height != tiles.height()) {
+            throw new IllegalArgumentException("Tiled comparison needs images matching the tile grid");
+        }
+        int[] base = pixels(toArgb(baseline));
+        int[] act = pixels(toArgb(actual));
+        BufferedImage diff = null;
+        int[] diffPixels = null;
+        if (buildDiff) {
+            diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            diffPixels = pixels(diff);
+            System.arraycopy(base, 0, diffPixels, 0, base.length);
+        }
+
+        int tileSize = tiles.tileSize();
+        int columns = tiles.columns();
+        int[] diffRaster = diffPixels;
+        DiffKernel diffKernel = kernel();
+        LongAdder differing = new LongAdder();
+        selected.stream().parallel().forEach(tile -> {
+            int left = tile % columns * tileSize;
+            int top = tile / columns * tileSize;
+            int length = Math.min(width, left + tileSize) - left;
+            int bottom = Math.min(height, top + tileSize);
+            long count = 0;
+            for (int y = top; y < bottom; y++) {
+                int start = y * width + left;
+                count += diffKernel.diff(base, start, act, start, diffRaster, start, length, tolerance);
+            }
+            differing.add(count);
+        });
+
+        long totalPixels = (long) width * height;
+        for (int tile = ignored.nextSetBit(0); tile >= 0; tile = ignored.nextSetBit(tile + 1)) {
+            totalPixels -= tiles.pixelsIn(tile);
+        }
+        return new Result(width, height, true, differing.sum(), totalPixels, diff);
+    }
+
+    /**
+     * Compares a screenshot with a baseline file the way visual tests do. Tiles whose hashes match
+     * the baseline's .tiles sidecar are skipped (unless options.fullScan() is set), tiles touched by
+     * an ignore region are left out, and the baseline is only decoded when some tile changed.
+     * Images of different sizes are compared over their overlap, with the ignore regions left out
+     * as well.
+     *
+     * @param actualTiles Tile hashes of the actual image, with the options' tile size
+     * @param ignoredRegions Regions in screenshot pixels
+     */
+    public static Result compareToBaseline(Path baselinePath, BufferedImage actualImage, TileHashes actualTiles,
+                                           List<Rectangle> ignoredRegions, VisualCompareOptions options)
+            throws IOException {
+        TileHashes baselineTiles = TileHashes.forBaseline(baselinePath, options.getTileSize());
+        if (!baselineTiles.sameGrid(actualTiles)) {
+            // Different sizes: nothing to line up tile by tile, compare the overlap
+            log.warn("Image dimensions differ for '{}': Baseline({}x{}), Actual({}x{})", baselinePath.getFileName(),
+                baselineTiles.width(), baselineTiles.height(), actualImage.getWidth(), actualImage.getHeight());
+            BufferedImage baselineImage = BaselineStore.load(baselinePath);
+            return compareIgnoring(baselineImage, actualImage, ignoredRegions, options.getPixelTolerance());
+        }
+
+        BitSet ignored = actualTiles.tilesCovering(ignoredRegions);
+        BitSet selected;
+        if (options.isTileHashing()) {
+            selected = baselineTiles.mismatchedTiles(actualTiles, ignored);
+        } else {
+            selected = new BitSet(actualTiles.tileCount());
+            selected.set(0, actualTiles.tileCount());
+            selected.andNot(ignored);
+        }
+        log.debug("Comparing {} of {} tiles ({} ignored)", selected.cardinality(), actualTiles.tileCount(),
+            ignored.cardinality());
+
+        if (selected.isEmpty()) {
+            long comparedPixels = (long) actualImage.getWidth() * actualImage.getHeight();
+            for (int tile = ignored.nextSetBit(0); tile >= 0; tile = ignored.nextSetBit(tile + 1)) {
+                comparedPixels -= actualTiles.pixelsIn(tile);
+            }
+            return new Result(actualImage.getWidth(), actualImage.getHeight(), true, 0, comparedPixels, null);
+        }
+        BufferedImage baselineImage = BaselineStore.load(baselinePath);
+        return compareTiles(baselineImage, actualImage, actualTiles, selected, ignored,
+            options.getPixelTolerance(), true);
+    }
+
+    /**
+     * compare() for images of any size with the given regions left out: inside the overlap the
+     * ignored pixels are copied from the baseline so they compare equal, outside it they no longer
+     * count as different, and either way they are dropped from the pixel total.
+     */
+    private static Result compareIgnoring(BufferedImage baseline, BufferedImage actual, List<Rectangle> regions,
+                                          int tolerance) {
+        if (regions.isEmpty()) {
+            return compare(baseline, actual, tolerance, true);
+        }
+        int unionWidth = Math.max(baseline.getWidth(), actual.getWidth());
+        int unionHeight = Math.max(baseline.getHeight(), actual.getHeight());
+        int overlapWidth = Math.min(baseline.getWidth(), actual.getWidth());
+        int overlapHeight = Math.min(baseline.getHeight(), actual.getHeight());
+
+        BitSet ignored = new BitSet(unionWidth * unionHeight);
+        for (Rectangle region : regions) {
+            int left = Math.max(0, region.getX());
+            int top = Math.max(0, region.getY());
+            int right = Math.min(unionWidth, region.getX() + region.getWidth());
+            int bottom = Math.min(unionHeight, region.getY() + region.getHeight());
+            for (int y = top; y < bottom && left < right; y++) {
+                ignored.set(y * unionWidth + left, y * unionWidth + right);
+            }
+        }
+
+        // Masked copy: the caller's image is left as it is
+        BufferedImage masked = new BufferedImage(actual.getWidth(), actual.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        int[] act = pixels(masked);
+        System.arraycopy(pixels(toArgb(actual)), 0, act, 0, act.length);
+        int[] base = pixels(toArgb(baseline));
+        long ignoredOutside = 0;
+        for (int i = ignored.nextSetBit(0); i >= 0; i = ignored.nextSetBit(i + 1)) {
+            int x = i % unionWidth;
+            int y = i / unionWidth;
+            if (x < overlapWidth && y < overlapHeight) {
+                act[y * actual.getWidth() + x] = base[y * baseline.getWidth() + x];
+            } else {
+                ignoredOutside++;
+            }
+        }
+
+        Result result = compare(baseline, masked, tolerance, true);
+        return new Result(result.width(), result.height(), result.sameSize(), result.diffPixels() - ignoredOutside,
+            result.totalPixels() - ignored.cardinality(), result.diffImage());
+    }
+
+    /**
+     * The kernel used for all comparisons, selected from visual.diff.kernel on first use.
+     */
+    public static DiffKernel kernel() {
+        DiffKernel selected = kernel;
+        if (selected == null) {
+            synchronized (ImageComparator.class) {
+                if (kernel == null) {
+                    String name = System.getProperty("visual.diff.kernel",
+                        ConfigReader.getProperty("visual.diff.kernel", "auto"));
+                    kernel = selectKernel(name);
+                    log.info("Visual diff kernel: {}", kernel.name());
+                }
+                selected = kernel;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Resolves a kernel name. The vector kernel is loaded reflectively, so a JVM started without
+     * jdk.incubator.vector gets the scalar kernel instead of a linkage error.
+     */
+    static DiffKernel selectKernel(String name) {
+        String choice = name == null ? "auto" : name.trim();
+        return switch (choice.toLowerCase()) {
+            case "scalar" -> ScalarDiffKernel.INSTANCE;
+            case "auto" -> loadKernel(VECTOR_KERNEL, false);
+            case "vector" -> loadKernel(VECTOR_KERNEL, true);
+            default -> loadKernel(choice, true);
+        };
+    }
+
+    private static DiffKernel loadKernel(String className, boolean requested) {
+        try {
+            DiffKernel loaded = (DiffKernel) Class.forName(className).getDeclaredConstructor().newInstance();
+            // Touch the kernel once so a missing module fails here rather than mid-comparison
+            loaded.diff(new int[1], 0, new int[1], 0, null, 0, 1, 0);
+            return loaded;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            if (requested) {
+                log.warn("Diff kernel '{}' is not available ({}); using the scalar kernel", className, e.toString());
+            } else {
+                log.debug("Vector diff kernel not available ({}); using the scalar kernel", e.toString());
+            }
+            return ScalarDiffKernel.INSTANCE;
+        }
+    }
+
+    /**
+     * Returns the image as TYPE_INT_ARGB backed by a plain int[] of width x height,
+     * copying only when the image is of another type or is a sub-image.
+     */
+    public static BufferedImage toArgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                && image.getRaster().getDataBuffer().getSize() == image.getWidth() * image.getHeight()
+                && image.getRaster().getSampleModelTranslateX() == 0
+                && image.getRaster().getSampleModelTranslateY() == 0) {
+            return image;
+        }
+        BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = argb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return argb;
+    }
+
+    /** Backing raster of a TYPE_INT_ARGB image. */
+    public static int[] pixels(BufferedImage argb) {
+        return ((DataBufferInt) argb.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Compares rows [fromRow, toRow) and writes the same rows of the diff raster. */
+    private static final class Stripe extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        /** Stripes only ever run on the pool and are never serialized */
+        private final transient DiffKernel kernel;
+        private final int[] base;
+        private final int baseStride;
+        private final int[] actual;
+        private final int actualStride;
+        private final int[] diff;
+        private final int width;
+        private final int tolerance;
+        private final int stripeRows;
+        private final int fromRow;
+        private final int toRow;
+
+        Stripe(DiffKernel kernel, int[] base, int baseStride, int[] actual, int actualStride, int[] diff, int width,
+               int tolerance, int stripeRows, int fromRow, int toRow) {
+            this.kernel = kernel;
+            this.base = base;
+            this.baseStride = baseStride;
+            this.actual = actual;
+            this.actualStride = actualStride;
+            this.diff = diff;
+            this.width = width;
+            this.tolerance = tolerance;
+            this.stripeRows = stripeRows;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected Long compute() {
+            int rows = toRow - fromRow;
+            if (rows > stripeRows) {
+                int middle = fromRow + rows / 2;
+                Stripe top = new Stripe(kernel, base, baseStride, actual, actualStride, diff, width, tolerance, stripeRows,
+                    fromRow, middle);
+                Stripe bottom = new Stripe(kernel, base, baseStride, actual, actualStride, diff, width, tolerance, stripeRows,
+                    middle, toRow);
+                top.fork();
+                long bottomCount = bottom.compute();
+                return top.join() + bottomCount;
+            }
+
+            long count = 0;
+            for (int y = fromRow; y < toRow; y++) {
+                count += kernel.diff(base, y * baseStride, actual, y * actualStride, diff, y * width, width, tolerance);
+            }
+            return count;
+        }
+    }
+}
@@ -5,8 +5,17 @@ import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class JsonReader {
@@ -14,21 +23,29 @@ public class JsonReader {
     private static final ObjectMapper mapper = new ObjectMapper();
     private static final String TEST_DATA_PATH = "src/test/resources/testdata/testdata.json";
     
-    private static JsonNode testData;
+    private static volatile JsonNode testData;
     
-    static {
-        try {
-            testData = mapper.readTree(new File(TEST_DATA_PATH));
-            log.info("Test data loaded successfully from: {}", TEST_DATA_PATH);
-        } catch (IOException e) {
-            log.error("Failed to load test data file: {}", TEST_DATA_PATH, e);
-            throw new RuntimeException("Test data file not found", e);
+    // Loaded on first use so the JSON Lines readers work without testdata.json
+    private static JsonNode getTestData() {
+        if (testData == null) {
+            synchronized (JsonReader.class) {
+                if (testData == null) {
+                    try {
+                        testData = mapper.readTree(new File(TEST_DATA_PATH));
+                        log.info("Test data loaded successfully from: {}", TEST_DATA_PATH);
+                    } catch (IOException e) {
+                        log.error("Failed to load test data file: {}", TEST_DATA_PATH, e);
+                        throw new RuntimeException("Test data file not found", e);
+                    }
+                }
+            }
         }
+        return testData;
     }
 
     public static <T> T getData(String key, Class<T> valueType) {
         try {
-            JsonNode node = testData.get(key);
+            JsonNode node = getTestData().get(key);
             if (node == null) {
                 log.warn("Test data key not found: {}", key);
                 return null;
@@ -42,7 +59,7 @@ public class JsonReader {
 
     public static Map<String, Object> getDataAsMap(String key) {
         try {
-            JsonNode node = testData.get(key);
+            JsonNode node = getTestData().get(key);
             if (node == null) {
                 log.warn("Test data key not found: {}", key);
                 return null;
@@ -53,4 +70,56 @@ public class JsonReader {
             throw new RuntimeException("Error converting test data", e);
         }
     }
+
+    // Read a JSON Lines file (one object per line) into TestNG data provider format,
+    // with columns in the field order of each object
+    public static Object[][] readJsonLinesData(String filePath) {
+        List<Map<String, String>> rows = readJsonLinesAsMap(filePath);
+        Object[][] result = new Object[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            result[i] = rows.get(i).values().toArray();
+        }
+        return result;
+    }
+
+    // Read a JSON Lines file and bind each object's fields to the test method's parameters (see RowBinder)
+    public static Object[][] readBoundJsonLinesData(String filePath, Method testMethod) {
+        List<Map<String, String>> rows = readJsonLinesAsMap(filePath);
+        if (rows.isEmpty()) {
+            return new Object[0][0];
+        }
+        String[] headers = rows.get(0).keySet().toArray(new String[0]);
+        Object[][] data = new Object[rows.size()][headers.length];
+        for (int i = 0; i < rows.size(); i++) {
+            for (int j = 0; j < headers.length; j++) {
+                data[i][j] = rows.get(i).get(headers[j]);
+            }
+        }
+        return RowBinder.bind(testMethod, headers, DataSharder.shard(Paths.get(filePath).getFileName().toString(), data));
+    }
+
+    public static List<Map<String, String>> readJsonLinesAsMap(String filePath) {
+        List<Map<String, String>> rows = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                Map<String, String> row = new LinkedHashMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    row.put(field.getKey(), field.getValue().asText());
+                }
+                rows.add(row);
+            }
+            log.info("Successfully read {} rows from JSON Lines file: {}", rows.size(), filePath);
+        } catch (IOException e) {
+            log.error("Failed to read JSON Lines file: {}", filePath, e);
+            throw new RuntimeException("Error reading JSON Lines data", e);
+        }
+        return rows;
+    }
 }
@@ -0,0 +1,280 @@
+package org.jsd.utils;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends mail in the background over one SMTP connection that is reused across messages.
+ *
+ * Transport.send opens, authenticates and closes a connection per message and runs on the
+ * caller's thread. The dispatcher instead keeps one configured Session and one connected
+ * Transport on a single worker thread (a Transport is not thread-safe), reconnecting only
+ * when the server dropped the connection.
+ * - Non-blocking: submit() returns at once with a future of the delivery.
+ * - Retries: temporary failures (network errors, SMTP 4xx) are retried with exponential
+ *   backoff; permanent ones (SMTP 5xx, rejected addresses, failed login) fail immediately,
+ *   wherever they appear in the getNextException() chain.
+ * - Barrier: flush() waits for queued mail; the default dispatcher flushes on JVM shutdown.
+ *
+ * Configuration of the default dispatcher (system properties override config.properties):
+ * - email.smtp.host / email.smtp.port / email.from : server and login; password from EMAIL_PASSWORD
+ * - email.retry.attempts    : delivery attempts per message (default 3)
+ * - email.retry.backoff.ms  : wait before the first retry, doubled each time (default 2000)
+ * - email.smtp.timeout.ms   : connect and read timeout (default 30000)
+ * - mail.* system properties are passed to the Session as is
+ *
+ * Usage:
+ * MailDispatcher.getDefault().submit(session -> buildMessage(session));
+ * MailDispatcher.getDefault().flush(Duration.ofSeconds(60));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class MailDispatcher implements AutoCloseable {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(MailDispatcher.class);
+
+    private static MailDispatcher defaultDispatcher;
+
+    /** Builds a message on the dispatcher's session. */
+    @FunctionalInterface
+    public interface MessageFactory {
+        Message create(Session session) throws Exception;
+    }
+
+    /** Point-in-time view of the dispatcher counters. */
+    public record Metrics(int pending, long sent, long retried, long failed, long connections) { }
+
+    private final Session session;
+    private final String username;
+    private final String password;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final ExecutorService worker;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+    private final Object flushLock = new Object();
+    private Transport transport; // only used on the worker thread
+
+    /**
+     * @param mailProperties Session properties (mail.smtp.host, mail.smtp.port, ...)
+     * @param username SMTP login, or null to send without authentication
+     * @param password SMTP password, or null
+     * @param maxAttempts Delivery attempts per message, at least 1
+     * @param initialBackoff Wait before the first retry; doubled for each further retry
+     */
+    public MailDispatcher(Properties mailProperties, String username, String password, int maxAttempts,
+                          Duration initialBackoff) {
+        this.session = Session.getInstance(mailProperties);
+        this.username = username;
+        this.password = password;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "mail-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Dispatcher configured from config.properties, created on first use. Its queue is flushed
+     * and its connection closed when the JVM shuts down.
+     */
+    public static synchronized MailDispatcher getDefault() {
+        if (defaultDispatcher == null) {
+            String password = System.getenv("EMAIL_PASSWORD");
+            if (password == null) {
+                throw new IllegalArgumentException("EMAIL_PASSWORD environment variable not set");
+            }
+            String timeout = setting("email.smtp.timeout.ms", "30000");
+            Properties props = new Properties();
+            props.put("mail.smtp.auth", "true");
+            props.put("mail.smtp.starttls.enable", "true");
+            props.put("mail.smtp.ssl.protocols", "TLSv1.2");
+            props.put("mail.smtp.host", setting("email.smtp.host", "smtp.gmail.com"));
+            props.put("mail.smtp.port", setting("email.smtp.port", "587"));
+            props.put("mail.smtp.connectiontimeout", timeout);
+            props.put("mail.smtp.timeout", timeout);
+            props.put("mail.smtp.writetimeout", timeout);
+            System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("mail."))
+                .forEach(name -> props.put(name, System.getProperty(name)));
+
+            MailDispatcher dispatcher = new MailDispatcher(props, setting("email.from", null), password,
+                Integer.parseInt(setting("email.retry.attempts", "3")),
+                Duration.ofMillis(Long.parseLong(setting("email.retry.backoff.ms", "2000"))));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                dispatcher.flush(Duration.ofSeconds(60));
+                dispatcher.close();
+            }, "mail-dispatcher-flush"));
+            defaultDispatcher = dispatcher;
+        }
+        return defaultDispatcher;
+    }
+
+    /**
+     * Queues a message. The factory runs on the worker thread, so it may read files written
+     * by the caller just before submitting.
+     *
+     * @return Completes when the message was accepted by the server, or exceptionally once all
+     *         attempts failed
+     */
+    public CompletableFuture<Void> submit(MessageFactory factory) {
+        CompletableFuture<Void> delivery = new CompletableFuture<>();
+        pending.incrementAndGet();
+        worker.execute(() -> {
+            try {
+                Message message = factory.create(session);
+                message.saveChanges();
+                deliver(message);
+                sent.increment();
+                delivery.complete(null);
+            } catch (Exception e) {
+                failed.increment();
+                log.error("Mail delivery failed: {}", e.getMessage());
+                delivery.completeExceptionally(e);
+            } finally {
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (flushLock) {
+                        flushLock.notifyAll();
+                    }
+                }
+            }
+        });
+        return delivery;
+    }
+
+    private void deliver(Message message) throws MessagingException, InterruptedException {
+        long backoff = initialBackoff.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connected().sendMessage(message, message.getAllRecipients());
+                log.info("Mail '{}' sent{}", message.getSubject(), attempt > 1 ? " on attempt " + attempt : "");
+                return;
+            } catch (MessagingException e) {
+                if (permanent(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                // The connection may be in an unknown state after a failure; start over
+                closeTransport();
+                retried.increment();
+                log.warn("Mail attempt {} of {} failed ({}), retrying in {} ms", attempt, maxAttempts,
+                    e.getMessage(), backoff);
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private Transport connected() throws MessagingException {
+        if (transport == null || !transport.isConnected()) {
+            closeTransport();
+            transport = session.getTransport("smtp");
+            transport.connect(username, password);
+            connections.increment();
+        }
+        return transport;
+    }
+
+    /**
+     * SMTP 5xx replies, rejected addresses and failed logins will not succeed on a retry. JavaMail
+     * wraps the server's reply, e.g. a SendFailedException whose next exception is the
+     * SMTPAddressFailedException, so the whole chain is checked.
+     */
+    private static boolean permanent(MessagingException e) {
+        for (Exception cause = e; cause instanceof MessagingException failure; cause = failure.getNextException()) {
+            if (failure instanceof AuthenticationFailedException || failure instanceof SMTPAddressFailedException) {
+                return true;
+            }
+            if (failure instanceof SMTPSendFailedException smtp && smtp.getReturnCode() >= 500) {
+                return true;
+            }
+            if (failure instanceof SendFailedException send && send.getInvalidAddresses() != null
+                    && send.getInvalidAddresses().length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void closeTransport() {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Ignoring error while closing SMTP connection: {}", e.getMessage());
+            }
+            transport = null;
+        }
+    }
+
+    /**
+     * Blocks until every queued message was sent or failed, or the timeout expires.
+     *
+     * @return true if the queue is empty
+     */
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (flushLock) {
+            while (pending.get() > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    log.warn("Mail dispatcher flush timed out with {} messages pending", pending.get());
+                    return false;
+                }
+                try {
+                    flushLock.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(pending.get(), sent.sum(), retried.sum(), failed.sum(), connections.sum());
+    }
+
+    /** Closes the SMTP connection after the queued messages; later submissions are rejected. */
+    @Override
+    public void close() {
+        if (worker.isShutdown()) {
+            return;
+        }
+        worker.execute(this::closeTransport);
+        worker.shutdown();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Mail dispatcher closed: {}", getMetrics());
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,128 @@
+package org.jsd.utils;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 64-bit difference hash (dHash) and DCT hash (pHash) of an image.
+ *
+ * Both hashes are computed from one pass that averages the image into a 32x32 grayscale grid:
+ * dHash compares horizontally adjacent cells of a 9x8 reduction, pHash thresholds the low
+ * 8x8 frequencies of a 32x32 DCT at their median. Visually similar images have hashes a few
+ * bits apart whatever their exact pixels, so the Hamming distance is a cheap similarity
+ * measure: it finds the closest baseline and rules out clearly different pages before a
+ * pixel diff. Equal hashes do not imply equal pixels.
+ *
+ * Usage:
+ * PerceptualHash a = PerceptualHash.of(image);
+ * int bitsApart = a.distance(PerceptualHash.of(other)); // 0..128
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public record PerceptualHash(long dHash, long pHash) {
+    private static final int GRID = 32;
+    private static final int LOW = 8;
+    private static final double[][] COSINES = new double[LOW][GRID];
+
+    static {
+        for (int u = 0; u < LOW; u++) {
+            for (int x = 0; x < GRID; x++) {
+                COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * GRID));
+            }
+        }
+    }
+
+    public static PerceptualHash of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ImageComparator.pixels(ImageComparator.toArgb(image));
+        double[][] gray = new double[GRID][GRID];
+        int[][] counts = new int[GRID][GRID];
+        for (int y = 0; y < height; y++) {
+            int cy = (int) ((long) y * GRID / height);
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int argb = pixels[row + x];
+                int cx = (int) ((long) x * GRID / width);
+                gray[cy][cx] += ((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114;
+                counts[cy][cx]++;
+            }
+        }
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                gray[y][x] = counts[y][x] == 0 ? 0 : gray[y][x] / counts[y][x] / 1000;
+            }
+        }
+        return new PerceptualHash(dHash(gray), pHash(gray));
+    }
+
+    /** Hamming distance over both hashes, 0 (alike) to 128. */
+    public int distance(PerceptualHash other) {
+        return Long.bitCount(dHash ^ other.dHash) + Long.bitCount(pHash ^ other.pHash);
+    }
+
+    /** Hex form used in the baseline index. */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", dHash, pHash);
+    }
+
+    public static PerceptualHash parse(String hex) {
+        if (hex.length() != 32) {
+            throw new IllegalArgumentException("Not a perceptual hash: " + hex);
+        }
+        return new PerceptualHash(Long.parseUnsignedLong(hex.substring(0, 16), 16),
+            Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+
+    /** 9x8 reduction of the grid; bit set where a cell is brighter than its right neighbour. */
+    private static long dHash(double[][] gray) {
+        double[][] small = new double[8][9];
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                small[y * 8 / GRID][x * 9 / GRID] += gray[y][x];
+            }
+        }
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash = (hash << 1) | (small[y][x] > small[y][x + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /** Low 8x8 DCT coefficients of the grid, each bit set when above the median (DC excluded). */
+    private static long pHash(double[][] gray) {
+        // Separable DCT: rows first, then columns, only for the low frequencies
+        double[][] rows = new double[GRID][LOW];
+        for (int y = 0; y < GRID; y++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int x = 0; x < GRID; x++) {
+                    sum += gray[y][x] * COSINES[u][x];
+                }
+                rows[y][u] = sum;
+            }
+        }
+        double[] coefficients = new double[LOW * LOW];
+        for (int v = 0; v < LOW; v++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int y = 0; y < GRID; y++) {
+                    sum += rows[y][u] * COSINES[v][y];
+                }
+                coefficients[v * LOW + u] = sum;
+            }
+        }
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+        long hash = 0;
+        for (double coefficient : coefficients) {
+            hash = (hash << 1) | (coefficient > median ? 1 : 0);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,153 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Small HTTP endpoint showing the progress of the running suite, built on the JDK's HttpServer.
+ *
+ * Binds to the loopback address only and answers on one daemon thread; every request reads a
+ * {@link ProgressTracker#snapshot()}, so a slow or busy client never touches the test threads.
+ * - /              : HTML page that polls the JSON every two seconds
+ * - /progress.json : counts, in-flight tests per thread, elapsed time and ETA, driver pool
+ *                    usage and the slowest active steps
+ *
+ * Configuration (system properties override config.properties):
+ * - progress.server.enabled : start the endpoint with the suite (default false)
+ * - progress.server.port    : port on 127.0.0.1, 0 picks a free one (default 7070)
+ *
+ * Usage:
+ * try (ProgressServer server = ProgressServer.start(7070)) {
+ *     log.info("Progress at {}", server.getUrl());
+ * }
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class ProgressServer implements AutoCloseable {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ProgressServer.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String PAGE = """
+        <!DOCTYPE html>
+        <html><head><meta charset="utf-8"><title>Test progress</title>
+        <style>
+        body{font-family:Arial,sans-serif;margin:20px;color:#333}
+        .counts span{display:inline-block;margin-right:18px;font-size:18px}
+        table{border-collapse:collapse;margin-top:12px}
+        td,th{border:1px solid #ddd;padding:4px 8px;text-align:left;font-size:13px}
+        th{background:#f5f5f5}
+        </style></head>
+        <body>
+        <h2>Test progress</h2>
+        <div class="counts" id="counts">Loading...</div>
+        <h3>In flight</h3><table id="inflight"></table>
+        <h3>Slowest active steps</h3><table id="steps"></table>
+        <h3>Driver pools</h3><table id="pools"></table>
+        <script>
+        function time(ms){if(ms<0)return '?';var s=Math.round(ms/1000);return Math.floor(s/60)+'m '+(s%60)+'s';}
+        function esc(v){return String(v==null?'':v).replace(/[&<>]/g,function(c){return {'&':'&amp;','<':'&lt;','>':'&gt;'}[c];});}
+        function table(id,head,rows){document.getElementById(id).innerHTML='<tr>'+head.map(function(h){return '<th>'+h+'</th>';}).join('')+'</tr>'
+          +rows.map(function(r){return '<tr>'+r.map(function(c){return '<td>'+esc(c)+'</td>';}).join('')+'</tr>';}).join('');}
+        function refresh(){fetch('progress.json').then(function(r){return r.json();}).then(function(p){
+          var now=Date.now(),done=p.passed+p.failed+p.skipped;
+          document.getElementById('counts').innerHTML='<span>'+done+' / '+p.planned+' done</span><span style="color:#4CAF50">'+p.passed
+            +' passed</span><span style="color:#f44336">'+p.failed+' failed</span><span style="color:#FF9800">'+p.skipped
+            +' skipped</span><span>'+p.retried+' retried</span><span>elapsed '+time(p.elapsedMillis)+'</span><span>ETA '+time(p.etaMillis)+'</span>';
+          table('inflight',['Thread','Test','Running','Step'],p.inFlight.map(function(t){return [t.thread,t.test,time(now-t.startedMillis),t.step];}));
+          table('steps',['Step','Test','Running'],p.slowestSteps.map(function(t){return [t.step,t.test,time(now-t.stepStartedMillis)];}));
+          table('pools',['Browser','Size','Leased','Open'],p.pools.map(function(b){return [b.browser,b.size,b.leased,b.open];}));
+        }).catch(function(){document.getElementById('counts').textContent='Run finished or endpoint stopped';});}
+        refresh();setInterval(refresh,2000);
+        </script></body></html>
+        """;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private ProgressServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /** Starts serving on the loopback address; port 0 picks a free port. */
+    public static ProgressServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/progress.json", exchange -> respond(exchange, "application/json",
+            MAPPER.writeValueAsBytes(ProgressTracker.snapshot())));
+        server.createContext("/", exchange -> {
+            if ("/".equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, "text/html; charset=utf-8", PAGE.getBytes(StandardCharsets.UTF_8));
+            } else {
+                send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        ProgressServer progressServer = new ProgressServer(server, executor);
+        log.info("Progress endpoint: {}", progressServer.getUrl());
+        return progressServer;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(setting("progress.server.enabled", "false"));
+    }
+
+    public static int configuredPort() {
+        return Integer.parseInt(setting("progress.server.port", "7070"));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + getPort() + "/";
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, "text/plain", "Method not allowed".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        send(exchange, 200, contentType, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Stops at once; the page shows the run as finished on its next poll. */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        log.info("Progress endpoint stopped");
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,180 @@
+package org.jsd.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Live counters of the running suite, read by {@link ProgressServer}.
+ *
+ * Test threads only add to LongAdders and replace their own entry in a concurrent map of
+ * in-flight tests; readers build a snapshot from those without taking a lock, so serving the
+ * progress page never holds up a test.
+ * - Counts: started, passed, failed, skipped and retried attempts
+ * - In flight: the test and the innermost Allure step running on each thread
+ * - ETA: remaining tests times the mean test duration, divided by the peak parallelism seen
+ *   so far; until the first test finishes the mean comes from the {@link DurationHistory}
+ * - Driver pools: usage reported by the supplier set with {@link #setPoolUsage}
+ *
+ * Usage (from listeners):
+ * ProgressTracker.reset(plannedTests, historicalMeanMillis);
+ * ProgressTracker.addPlanned(moreTests, theirMeanMillis); // a suite starting while others run
+ * ProgressTracker.testStarted("LoginTest.validLogin");
+ * ProgressTracker.testFinished(ResultsJournal.Status.PASSED, durationMillis);
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class ProgressTracker {
+    private static final int SLOWEST_STEPS = 5;
+
+    /** Test running on one thread, replaced as a whole when its step changes. */
+    public record InFlight(String thread, String test, long startedMillis, String step, long stepStartedMillis) { }
+
+    public record PoolUsage(String browser, int size, int leased, int open) { }
+
+    private record Step(String name, long startedMillis) { }
+
+    /**
+     * @param planned Tests expected in this run; data rows are only known once they start, so
+     *                this grows when more tests start than were planned
+     * @param etaMillis Estimated time to finish, or -1 before the first test finished when
+     *                  there is no history
+     * @param slowestSteps In-flight steps that have been running longest
+     */
+    public record Snapshot(long elapsedMillis, long planned, long started, long passed, long failed, long skipped,
+                           long retried, long etaMillis, List<InFlight> inFlight, List<InFlight> slowestSteps,
+                           List<PoolUsage> pools) { }
+
+    private static final LongAdder started = new LongAdder();
+    private static final LongAdder passed = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LongAdder skipped = new LongAdder();
+    private static final LongAdder retried = new LongAdder();
+    private static final LongAdder finishedMillis = new LongAdder();
+    private static final AtomicInteger peakParallelism = new AtomicInteger();
+    private static final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Deque<Step>> steps = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static volatile long runStartMillis = System.currentTimeMillis();
+    private static volatile long planned;
+    private static volatile long historicalMeanMillis;
+    private static volatile Supplier<List<PoolUsage>> poolUsage = List::of;
+
+    private ProgressTracker() {
+    }
+
+    /**
+     * Starts a new run.
+     *
+     * @param meanMillis Mean duration of the planned tests in earlier runs, or -1 if unknown
+     */
+    public static synchronized void reset(long plannedTests, long meanMillis) {
+        started.reset();
+        passed.reset();
+        failed.reset();
+        skipped.reset();
+        retried.reset();
+        finishedMillis.reset();
+        peakParallelism.set(0);
+        inFlight.clear();
+        planned = plannedTests;
+        historicalMeanMillis = meanMillis;
+        runStartMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the tests of a suite that starts while the run is already going, without resetting
+     * the counts of the suites still running.
+     *
+     * @param meanMillis Mean duration of these tests in earlier runs, or -1 if unknown
+     */
+    public static synchronized void addPlanned(long plannedTests, long meanMillis) {
+        long before = planned;
+        planned = before + plannedTests;
+        if (meanMillis >= 0) {
+            historicalMeanMillis = historicalMeanMillis < 0 || before == 0
+                ? meanMillis
+                : (historicalMeanMillis * before + meanMillis * plannedTests) / (before + plannedTests);
+        }
+    }
+
+    public static void setPoolUsage(Supplier<List<PoolUsage>> supplier) {
+        poolUsage = supplier;
+    }
+
+    public static void testStarted(String test) {
+        started.increment();
+        steps.get().clear();
+        inFlight.put(Thread.currentThread().getName(),
+            new InFlight(Thread.currentThread().getName(), test, System.currentTimeMillis(), null, 0));
+        peakParallelism.accumulateAndGet(inFlight.size(), Math::max);
+    }
+
+    public static void testFinished(ResultsJournal.Status status, long durationMillis) {
+        switch (status) {
+            case PASSED -> passed.increment();
+            case FAILED -> failed.increment();
+            case SKIPPED -> skipped.increment();
+            case RETRIED -> retried.increment();
+        }
+        finishedMillis.add(Math.max(0, durationMillis));
+        inFlight.remove(Thread.currentThread().getName());
+        steps.get().clear();
+    }
+
+    public static void stepStarted(String step) {
+        Step entry = new Step(step, System.currentTimeMillis());
+        steps.get().push(entry);
+        publishStep(entry);
+    }
+
+    public static void stepFinished() {
+        Deque<Step> stack = steps.get();
+        stack.poll();
+        publishStep(stack.peek());
+    }
+
+    /** Replaces this thread's in-flight entry so readers see the innermost running step. */
+    private static void publishStep(Step step) {
+        String thread = Thread.currentThread().getName();
+        InFlight current = inFlight.get(thread);
+        if (current != null) {
+            inFlight.put(thread, new InFlight(thread, current.test(), current.startedMillis(),
+                step == null ? null : step.name(), step == null ? 0 : step.startedMillis()));
+        }
+    }
+
+    public static Snapshot snapshot() {
+        long now = System.currentTimeMillis();
+        // Retried attempts add to the mean duration but not to the tests done
+        long done = passed.sum() + failed.sum() + skipped.sum();
+        long finished = done + retried.sum();
+        long startedCount = started.sum();
+        long plannedCount = Math.max(planned, startedCount);
+
+        List<InFlight> running = new ArrayList<>(inFlight.values());
+        running.sort(Comparator.comparing(InFlight::thread));
+        List<InFlight> slowest = running.stream()
+            .filter(test -> test.step() != null)
+            .sorted(Comparator.comparingLong(InFlight::stepStartedMillis))
+            .limit(SLOWEST_STEPS)
+            .toList();
+
+        double meanMillis = finished > 0 ? (double) finishedMillis.sum() / finished : historicalMeanMillis;
+        long eta = -1;
+        if (meanMillis >= 0) {
+            long remaining = Math.max(0, plannedCount - done);
+            eta = (long) (remaining * meanMillis / Math.max(1, peakParallelism.get()));
+        }
+        return new Snapshot(now - runStartMillis, plannedCount, startedCount, passed.sum(), failed.sum(),
+            skipped.sum(), retried.sum(), eta, running, slowest, poolUsage.get());
+    }
+}
@@ -0,0 +1,369 @@
+package org.jsd.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of test results, written while the run is in progress.
+ *
+ * Each finished test invocation is one JSON line (status, timings, attempt, thread, error and
+ * artifact paths). Reports read the journal instead of collecting results in memory, so a
+ * killed JVM or a hung Grid leaves everything that finished on disk.
+ * - Non-blocking: append() only queues the entry; one writer thread serializes and writes.
+ * - Group commit: entries arriving within results.journal.sync.ms of each other are written
+ *   and fsynced together, so a burst of results costs one fsync instead of one per test.
+ * - Torn writes: a crash can cut the last line short; read() stops at such a line.
+ * - Barrier: flush() waits until everything appended is on disk; the default journal is
+ *   flushed on JVM shutdown.
+ * - Cleanup: deleteEarlierJournals() removes the journal files of earlier runs and nothing
+ *   else in the directory.
+ *
+ * Configuration (system properties override config.properties):
+ * - results.journal.dir     : directory of the journal files (default test-output/results)
+ * - results.journal.sync.ms : how long the writer gathers entries before an fsync (default 50)
+ *
+ * Usage:
+ * ResultsJournal.getDefault().append(entry);
+ * ResultsJournal.getDefault().flush(Duration.ofSeconds(30));
+ * List&lt;ResultsJournal.Entry&gt; entries = ResultsJournal.read(ResultsJournal.getDefault().getFile());
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class ResultsJournal implements AutoCloseable {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ResultsJournal.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final int MAX_BATCH = 256;
+    /** How long the idle writer waits for an entry before checking whether the journal was closed */
+    private static final long POLL_MILLIS = 100;
+
+    private static ResultsJournal defaultJournal;
+
+    public enum Status {
+        PASSED, FAILED, SKIPPED,
+        /** Failed attempt that TestNG ran again; the final attempt has its own entry */
+        RETRIED
+    }
+
+    /**
+     * One finished test invocation.
+     *
+     * @param test Name of the &lt;test&gt; context
+     * @param row Data provider row, or -1 for tests without data; numbered within the shard
+     * @param datasetRow Row in the whole dataset before sharding, or null in journals written
+     *                   before it was recorded; testId() keys on it, so rows of different shards
+     *                   that share a data provider row stay apart
+     * @param attempt 1 for the first run, 2 for the first retry, ...
+     * @param artifacts Paths of files captured for this invocation (screenshots), may be empty
+     * @param shard Shard that ran the test (shard-&lt;index&gt;-of-&lt;total&gt;), or null when not sharded
+     */
+    public record Entry(String suite, String test, String className, String method, int row, Integer datasetRow,
+                        String name, Status status, long startMillis, long endMillis, int attempt, String thread,
+                        String error, List<String> artifacts, String shard) {
+        public long durationMillis() {
+            return endMillis - startMillis;
+        }
+
+        /** Dataset row, or the data provider row when the entry has none. */
+        public int datasetRowIndex() {
+            return datasetRow != null ? datasetRow : row;
+        }
+
+        public String testId() {
+            return ResultsJournal.testId(suite, test, className, method, datasetRowIndex());
+        }
+    }
+
+    /** Identity of a test across its attempts and shards: suite, &lt;test&gt; context, class, method and dataset row. */
+    public static String testId(String suite, String test, String className, String method, int row) {
+        return String.format("%s/%s/%s.%s[%d]", suite, test, className, method, row);
+    }
+
+    /** Point-in-time view of the journal counters. */
+    public record Metrics(int pending, long written, long syncs) { }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long syncMillis;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final Object flushLock = new Object();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Opens a journal for appending; entries already in the file are kept.
+     *
+     * @param syncMillis Time the writer waits for more entries before writing and syncing a batch
+     */
+    public ResultsJournal(Path file, long syncMillis) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        this.syncMillis = syncMillis;
+        this.writer = new Thread(this::writeLoop, "results-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Journal of this JVM, created on first use as journal-&lt;time&gt;-&lt;pid&gt;.jsonl in
+     * results.journal.dir. It is flushed and closed when the JVM shuts down.
+     */
+    public static synchronized ResultsJournal getDefault() {
+        if (defaultJournal == null) {
+            Path dir = Paths.get(setting("results.journal.dir", "test-output/results"));
+            String fileName = String.format("journal-%s-%d.jsonl",
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")),
+                ProcessHandle.current().pid());
+            try {
+                ResultsJournal journal = new ResultsJournal(dir.resolve(fileName),
+                    Long.parseLong(setting("results.journal.sync.ms", "50")));
+                Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "results-journal-flush"));
+                log.info("Results journal: {}", journal.getFile().toAbsolutePath());
+                defaultJournal = journal;
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open results journal in " + dir, e);
+            }
+        }
+        return defaultJournal;
+    }
+
+    /**
+     * Deletes the journal-*.jsonl files of earlier runs from results.journal.dir: those last
+     * written before this JVM started. This JVM's journal, journals of runs still going and
+     * any other file or directory are kept.
+     *
+     * @return Number of journals deleted
+     */
+    public static synchronized int deleteEarlierJournals() throws IOException {
+        Path dir = Paths.get(setting("results.journal.dir", "test-output/results"));
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(Instant.now());
+        Path current = defaultJournal == null ? null : defaultJournal.getFile();
+        int deleted = 0;
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(dir, "journal-*.jsonl")) {
+            for (Path journal : journals) {
+                if (Files.isRegularFile(journal) && !journal.equals(current)
+                        && Files.getLastModifiedTime(journal).toInstant().isBefore(jvmStart)) {
+                    Files.delete(journal);
+                    deleted++;
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} results journals of earlier runs from {}", deleted, dir);
+        }
+        return deleted;
+    }
+
+    /** Queues an entry; returns at once. */
+    public void append(Entry entry) {
+        if (closed) {
+            log.warn("Results journal closed, dropping result of {}", entry.name());
+            return;
+        }
+        pending.incrementAndGet();
+        queue.add(entry);
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        // Stopped by the closed flag, never by an interrupt: an interrupt arriving during
+        // channel.write or force closes the channel and loses the batch being written
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                if (syncMillis > 0 && !closed) {
+                    // Gather the rest of a burst so it shares one fsync
+                    Thread.sleep(syncMillis);
+                }
+            } catch (InterruptedException e) {
+                // Nobody is meant to interrupt the writer; write what was taken and go on
+            }
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+            if (!batch.isEmpty()) {
+                write(batch, buffer);
+            }
+        }
+    }
+
+    /** Writes and syncs one batch, then clears it. */
+    private void write(List<Entry> batch, ByteArrayOutputStream buffer) {
+        try {
+            buffer.reset();
+            for (Entry entry : batch) {
+                buffer.write(MAPPER.writeValueAsBytes(entry));
+                buffer.write('\n');
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            syncs.increment();
+            written.add(batch.size());
+        } catch (IOException e) {
+            log.error("Failed to write {} results to journal {}: {}", batch.size(), file, e.getMessage());
+        } finally {
+            if (pending.addAndGet(-batch.size()) == 0) {
+                synchronized (flushLock) {
+                    flushLock.notifyAll();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Blocks until every appended entry is written and synced, or the timeout expires.
+     *
+     * @return true if nothing is pending
+     */
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (flushLock) {
+            while (pending.get() > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    log.warn("Results journal flush timed out with {} entries pending", pending.get());
+                    return false;
+                }
+                try {
+                    flushLock.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(pending.get(), written.sum(), syncs.sum());
+    }
+
+    /** Writes what is pending and closes the file; later appends are dropped. */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush(Duration.ofSeconds(30));
+        closed = true;
+        try {
+            // The writer sees the flag within POLL_MILLIS and stops once the queue is empty
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            if (!writer.isAlive()) {
+                // An append() that raced close() may have queued after the writer stopped
+                List<Entry> rest = new ArrayList<>();
+                queue.drainTo(rest);
+                if (!rest.isEmpty()) {
+                    write(rest, new ByteArrayOutputStream());
+                }
+            }
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.debug("Ignoring error while closing journal: {}", e.getMessage());
+        }
+        log.info("Results journal closed: {}", getMetrics());
+    }
+
+    /**
+     * Reads all entries of a journal file in the order they were written. A line that was cut
+     * short by a crash ends the read; other malformed lines are skipped with a warning.
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        forEach(file, entries::add);
+        return entries;
+    }
+
+    /** Streams the entries of a journal file to a consumer, with the same rules as {@link #read}. */
+    public static void forEach(Path file, Consumer<Entry> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    consumer.accept(MAPPER.readValue(line, Entry.class));
+                } catch (JsonProcessingException e) {
+                    if (reader.ready()) {
+                        log.warn("Skipping malformed line {} of {}: {}", lineNumber, file, e.getOriginalMessage());
+                    } else {
+                        log.warn("Journal {} ends with an incomplete line {}, ignored", file, lineNumber);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Writes entries as a complete journal file, replacing an existing one. */
+    public static void write(Path file, List<Entry> entries) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            for (Entry entry : entries) {
+                out.write(MAPPER.writeValueAsBytes(entry));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
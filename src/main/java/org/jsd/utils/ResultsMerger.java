@@ -0,0 +1,349 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Merges the results of surefire forks and CI shards into one report and one email.
+ *
+ * Every JVM writes its own {@link ResultsJournal}; with several forks or shards each of them
+ * only sees part of the run. The merger is run once as the final step and makes a single pass
+ * over its inputs, visiting every file once:
+ * - journal-*.jsonl : streamed entry by entry; only the final attempt of each test is kept
+ *   (retried attempts are counted, and a test run by two forks keeps its latest result)
+ * - files below an allure-results directory : copied into one allure-results directory
+ * - screenshots : indexed by file name, so journal references from another machine are
+ *   found in the downloaded artifacts and copied next to the merged report
+ * Memory grows with the number of distinct tests, not with the size of the inputs.
+ *
+ * The report lists every shard (or fork, when not sharded) with its wall-clock time, longest
+ * first, since the longest shard decides when the run is finished.
+ *
+ * While results.merge.enabled is set (implied by shard.total &gt; 1) the suite listeners leave
+ * email and cleanup to the merger. Start a merged run from an empty test-output directory;
+ * the merger reads every journal it finds.
+ *
+ * Usage:
+ * mvn -q exec:java -Dexec.mainClass=org.jsd.utils.ResultsMerger -Dexec.args="--input shard-0 --input shard-1 --email"
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class ResultsMerger {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ResultsMerger.class);
+
+    /** Wall-clock span and outcome counts of one shard or fork. */
+    public record Shard(String label, int tests, int failed, long startMillis, long endMillis) {
+        public long durationMillis() {
+            return endMillis - startMillis;
+        }
+    }
+
+    /**
+     * @param tests Final attempt of every test, in the order tests were first seen
+     * @param shards Longest first
+     * @param retriedAttempts Attempts that were superseded by a later attempt of the same test
+     */
+    public record Result(List<ResultsJournal.Entry> tests, List<Shard> shards, int journals, int retriedAttempts,
+                         int allureFiles, Path journal) {
+        public long count(ResultsJournal.Status status) {
+            return tests.stream().filter(entry -> entry.status() == status).count();
+        }
+    }
+
+    /** Attempts of one test seen so far. */
+    private static final class Attempts {
+        ResultsJournal.Entry last;
+        int count;
+        int superseded;
+    }
+
+    private static final class ShardStats {
+        final Set<String> tests = new LinkedHashSet<>();
+        final Set<String> failed = new LinkedHashSet<>();
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+    }
+
+    private final List<Path> inputs;
+    private final Path output;
+
+    /**
+     * @param inputs Directories with the journals, screenshots and allure-results of the forks or shards
+     * @param output Directory for the merged journal, screenshots, allure-results and report
+     */
+    public ResultsMerger(List<Path> inputs, Path output) {
+        this.inputs = inputs;
+        this.output = output;
+    }
+
+    /**
+     * Whether this run is one part of a merged run; suite listeners then neither send email
+     * nor clean results (results.merge.enabled, default true when sharded).
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("results.merge.enabled",
+            ConfigReader.getProperty("results.merge.enabled", String.valueOf(DataSharder.isSharded()))));
+    }
+
+    public Result merge() throws IOException {
+        long start = System.nanoTime();
+        Path outputDir = output.toAbsolutePath().normalize();
+        Path allureOutput = outputDir.resolve("allure-results");
+        Files.createDirectories(allureOutput);
+
+        Map<String, Attempts> tests = new LinkedHashMap<>();
+        Map<String, ShardStats> shards = new HashMap<>();
+        Map<String, Path> screenshots = new HashMap<>();
+        int journals = 0;
+        int allureFiles = 0;
+
+        for (Path input : inputs) {
+            Path root = input.toAbsolutePath().normalize();
+            if (!Files.isDirectory(root)) {
+                log.warn("Skipping missing input {}", input);
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(root)) {
+                Iterator<Path> files = walk.iterator();
+                while (files.hasNext()) {
+                    Path file = files.next();
+                    if (!Files.isRegularFile(file) || file.startsWith(outputDir)) {
+                        continue;
+                    }
+                    String name = file.getFileName().toString();
+                    String lower = name.toLowerCase(Locale.ROOT);
+                    if (lower.startsWith("journal-") && lower.endsWith(".jsonl")) {
+                        String fork = name.substring(0, name.length() - ".jsonl".length());
+                        ResultsJournal.forEach(file, entry -> accept(entry, fork, tests, shards));
+                        journals++;
+                    } else if (isInAllureResults(file)) {
+                        allureFiles += copyOnce(file, allureOutput.resolve(name));
+                    } else if (lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+                        screenshots.putIfAbsent(name, file);
+                    }
+                }
+            }
+        }
+
+        List<ResultsJournal.Entry> merged = new ArrayList<>(tests.size());
+        int retried = 0;
+        for (Attempts attempts : tests.values()) {
+            retried += attempts.superseded;
+            merged.add(finalAttempt(attempts, relocate(attempts.last.artifacts(), screenshots, outputDir)));
+        }
+        List<Shard> shardList = new ArrayList<>();
+        shards.forEach((label, stats) -> shardList.add(
+            new Shard(label, stats.tests.size(), stats.failed.size(), stats.start, stats.end)));
+        shardList.sort(Comparator.comparingLong(Shard::durationMillis).reversed());
+
+        Path journal = outputDir.resolve("merged-results.jsonl");
+        ResultsJournal.write(journal, merged);
+        log.info("Merged {} journals: {} tests, {} retried attempts, {} shards, {} allure files in {} ms",
+            journals, merged.size(), retried, shardList.size(), allureFiles, (System.nanoTime() - start) / 1_000_000);
+        return new Result(List.copyOf(merged), List.copyOf(shardList), journals, retried, allureFiles, journal);
+    }
+
+    private static void accept(ResultsJournal.Entry entry, String fork, Map<String, Attempts> tests,
+                               Map<String, ShardStats> shards) {
+        String testId = entry.testId();
+        Attempts attempts = tests.computeIfAbsent(testId, id -> new Attempts());
+        attempts.count++;
+        // A final attempt beats a retried one; among equals the one that finished last wins
+        if (attempts.last == null) {
+            attempts.last = entry;
+        } else {
+            boolean entryFinal = entry.status() != ResultsJournal.Status.RETRIED;
+            boolean lastFinal = attempts.last.status() != ResultsJournal.Status.RETRIED;
+            if (entryFinal && !lastFinal || entryFinal == lastFinal && entry.endMillis() > attempts.last.endMillis()) {
+                attempts.last = entry;
+            }
+            attempts.superseded++;
+        }
+
+        ShardStats stats = shards.computeIfAbsent(entry.shard() != null ? entry.shard() : fork, label -> new ShardStats());
+        stats.tests.add(testId);
+        if (entry.status() == ResultsJournal.Status.FAILED) {
+            stats.failed.add(testId);
+        }
+        stats.start = Math.min(stats.start, entry.startMillis());
+        stats.end = Math.max(stats.end, entry.endMillis());
+    }
+
+    /** The kept attempt with the total attempt count; a test whose last attempt was retried counts as failed. */
+    private static ResultsJournal.Entry finalAttempt(Attempts attempts, List<String> artifacts) {
+        ResultsJournal.Entry e = attempts.last;
+        ResultsJournal.Status status = e.status() == ResultsJournal.Status.RETRIED ? ResultsJournal.Status.FAILED : e.status();
+        return new ResultsJournal.Entry(e.suite(), e.test(), e.className(), e.method(), e.row(), e.datasetRow(),
+            e.name(), status, e.startMillis(), e.endMillis(), Math.max(e.attempt(), attempts.count), e.thread(), e.error(),
+            artifacts, e.shard());
+    }
+
+    /**
+     * Copies the screenshots of a kept attempt into the output. References that do not exist on
+     * this machine are looked up by file name among the screenshots found in the inputs.
+     */
+    private static List<String> relocate(List<String> artifacts, Map<String, Path> screenshots, Path outputDir)
+            throws IOException {
+        if (artifacts == null || artifacts.isEmpty()) {
+            return List.of();
+        }
+        List<String> relocated = new ArrayList<>(artifacts.size());
+        for (String artifact : artifacts) {
+            Path source = Paths.get(artifact);
+            if (!Files.isRegularFile(source)) {
+                source = screenshots.get(source.getFileName().toString());
+            }
+            if (source == null) {
+                log.warn("Screenshot {} not found in the inputs", artifact);
+                continue;
+            }
+            // Stored names are content hashes, so equal names are equal files
+            Path target = outputDir.resolve("screenshots").resolve(source.getFileName().toString());
+            Files.createDirectories(target.getParent());
+            copyOnce(source, target);
+            relocated.add(target.toString());
+        }
+        return relocated;
+    }
+
+    private static boolean isInAllureResults(Path file) {
+        for (Path part : file.getParent()) {
+            if (part.toString().equals("allure-results")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int copyOnce(Path source, Path target) throws IOException {
+        try {
+            Files.copy(source, target);
+            return 1;
+        } catch (FileAlreadyExistsException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the consolidated report (test-output/email-reports) and, with email, sends it with
+     * the failure screenshots planned by {@link AttachmentPlanner}.
+     */
+    public void report(Result result, boolean email) throws Exception {
+        List<AttachmentPlanner.Source> sources = new ArrayList<>();
+        for (ResultsJournal.Entry entry : result.tests()) {
+            if (entry.status() == ResultsJournal.Status.FAILED) {
+                for (String artifact : entry.artifacts()) {
+                    sources.add(new AttachmentPlanner.Source(entry.name(), Paths.get(artifact)));
+                }
+            }
+        }
+        Path outputDir = output.toAbsolutePath();
+        AttachmentPlanner planner = AttachmentPlanner.fromConfig();
+        AttachmentPlanner.Plan planned = email
+            ? planner.plan(sources, outputDir.resolve("screenshots.zip"))
+            : AttachmentPlanner.Plan.empty();
+
+        Path body = outputDir.resolve("merged-email.html");
+        writeBody(result, planned, body);
+        if (!email) {
+            return;
+        }
+        // The body counts against the budget too; over it, the screenshots are linked instead
+        AttachmentPlanner.Plan plan = planner.fitBody(planned, Files.size(body));
+        if (plan != planned) {
+            writeBody(result, plan, body);
+        }
+
+        long passed = result.count(ResultsJournal.Status.PASSED);
+        long failed = result.count(ResultsJournal.Status.FAILED);
+        String subject = String.format("%s - %d Tests (%d Passed, %d Failed)",
+            ConfigReader.getProperty("email.subject"), result.tests().size(), passed, failed);
+        EmailSender.sendEmailWithPlan(subject, body, plan).get();
+    }
+
+    /** Streams the email body into the spool file it is sent from, never holding it as one String. */
+    private static void writeBody(Result result, AttachmentPlanner.Plan plan, Path body) throws IOException {
+        Set<String> contexts = new LinkedHashSet<>();
+        result.tests().forEach(entry -> contexts.add(entry.test()));
+        try (Writer out = Files.newBufferedWriter(body, StandardCharsets.UTF_8)) {
+            EmailReportGenerator.writeHTMLReport(result.tests(), "Merged (" + result.shards().size()
+                + (result.shards().size() == 1 ? " part)" : " parts)"), String.join(", ", contexts), plan,
+                result.shards(), out);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        Path output = Paths.get("test-output", "merged");
+        boolean email = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--input" -> inputs.add(Paths.get(args[++i]));
+                    case "--output" -> output = Paths.get(args[++i]);
+                    case "--email" -> email = true;
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: ResultsMerger [--input DIR]... [--output DIR] [--email]");
+            System.exit(2);
+        }
+        if (inputs.isEmpty()) {
+            inputs = List.of(Paths.get("test-output"), Paths.get("allure-results"));
+        }
+
+        ResultsMerger merger = new ResultsMerger(inputs, output);
+        Result result = merger.merge();
+        try {
+            merger.report(result, email);
+        } catch (Exception e) {
+            log.error("Merged report failed: {}", e.getMessage());
+            System.exit(2);
+        } finally {
+            if (email) {
+                MailDispatcher.getDefault().flush(Duration.ofSeconds(60));
+            }
+        }
+
+        // Forks skip the history in a merged run; record the merged final attempts once
+        if (DurationHistory.isEnabled()) {
+            DurationHistory history = DurationHistory.getDefault();
+            history.record(result.tests());
+            history.compactIfDue();
+        }
+
+        System.out.printf("%d tests (%d passed, %d failed, %d skipped), %d retried attempts, from %d journals%n",
+            result.tests().size(), result.count(ResultsJournal.Status.PASSED), result.count(ResultsJournal.Status.FAILED),
+            result.count(ResultsJournal.Status.SKIPPED), result.retriedAttempts(), result.journals());
+        for (Shard shard : result.shards()) {
+            System.out.printf("  %-24s %4d tests %3d failed %8.1f s%s%n", shard.label(), shard.tests(), shard.failed(),
+                shard.durationMillis() / 1000.0, shard == result.shards().get(0) ? "  (longest)" : "");
+        }
+        System.out.println("Merged results in " + output.toAbsolutePath());
+        System.exit(result.count(ResultsJournal.Status.FAILED) > 0 ? 1 : 0);
+    }
+}
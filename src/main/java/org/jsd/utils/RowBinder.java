@@ -0,0 +1,339 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds data file rows to test method parameters by column header.
+ *
+ * The binding for a (test method, header row) pair is resolved once and cached:
+ * every parameter gets a column index and a MethodHandle converter from the raw cell
+ * (String from CSV/JSONL, Double/Date/Boolean/String from Excel) to the parameter type.
+ * Binding a row is then an array lookup plus one handle call per parameter - no
+ * reflection, header search or converter selection per row.
+ *
+ * Numeric parameters use converters with primitive return types (int, long, double,
+ * float, boolean) that are invoked with their exact primitive signature, so a numeric
+ * Excel cell goes straight to the primitive without a parse or an intermediate wrapper.
+ * The only box is the store into the Object[] that TestNG passes to the test method; an
+ * Excel Double cell bound to a double parameter is passed through without even that.
+ *
+ * Parameter to column resolution, first match wins:
+ * 1. &#64;Column("Header") on the parameter
+ * 2. The parameter name, when compiled with -parameters; a name missing from the headers
+ *    is an error
+ * 3. The parameter position, logged as a warning since nothing checks that it matches
+ *
+ * Supported parameter types: String, int, long, double, float, boolean (and their
+ * wrappers), BigDecimal, LocalDate, Date and any enum (matched by constant name).
+ * A blank or missing cell binds to null for wrapper types and is an error for primitives.
+ * Booleans accept true/false, yes/no and 1/0 (any case); other text is an error rather than false.
+ *
+ * Example usage:
+ * &#64;DataProvider(name = "loginData")
+ * public Object[][] getLoginData(Method method) {
+ *     return CSVReader.readBoundCSVData(filePath, method);
+ * }
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class RowBinder {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(RowBinder.class);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType CONVERTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final Map<BindingKey, RowBinder> cache = new ConcurrentHashMap<>();
+
+    private record BindingKey(Method method, List<String> headers) { }
+
+    /** Exact return type of a converter, selecting the invokeExact call site in bindRow */
+    private enum Kind { OBJECT, INT, LONG, DOUBLE, FLOAT, BOOLEAN }
+
+    private final String methodName;
+    private final int[] columnIndexes;
+    private final MethodHandle[] converters;
+    private final Kind[] kinds;
+
+    private RowBinder(String methodName, int[] columnIndexes, MethodHandle[] converters, Kind[] kinds) {
+        this.methodName = methodName;
+        this.columnIndexes = columnIndexes;
+        this.converters = converters;
+        this.kinds = kinds;
+    }
+
+    /**
+     * Returns the cached binder for a test method and header row, compiling it on first use.
+     */
+    public static RowBinder forMethod(Method method, String[] headers) {
+        return cache.computeIfAbsent(new BindingKey(method, List.of(headers)), key -> compile(method, headers));
+    }
+
+    /**
+     * Converts raw data rows into argument rows for the test method.
+     */
+    public static Object[][] bind(Method method, String[] headers, Object[][] rows) {
+        return forMethod(method, headers).bindRows(rows);
+    }
+
+    public Object[][] bindRows(Object[][] rows) {
+        Object[][] bound = new Object[rows.length][];
+        for (int i = 0; i < rows.length; i++) {
+            bound[i] = bindRow(rows[i], i);
+            // Sharded rows keep their dataset index, see DataSharder
+            DataSharder.carryDatasetRow(rows[i], bound[i]);
+        }
+        return bound;
+    }
+
+    public Object[] bindRow(Object[] row, int rowIndex) {
+        Object[] args = new Object[columnIndexes.length];
+        for (int p = 0; p < columnIndexes.length; p++) {
+            int column = columnIndexes[p];
+            Object cell = column < row.length ? row[column] : null;
+            MethodHandle converter = converters[p];
+            try {
+                args[p] = switch (kinds[p]) {
+                    case INT -> (int) converter.invokeExact(cell);
+                    case LONG -> (long) converter.invokeExact(cell);
+                    // A numeric Excel cell already is the Double TestNG needs
+                    case DOUBLE -> cell instanceof Double value ? value : (double) converter.invokeExact(cell);
+                    case FLOAT -> (float) converter.invokeExact(cell);
+                    case BOOLEAN -> (boolean) converter.invokeExact(cell);
+                    case OBJECT -> (Object) converter.invokeExact(cell);
+                };
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(String.format("Row %d, column %d of %s: cannot convert '%s': %s",
+                    rowIndex, column, methodName, cell, e.getMessage()), e);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Converter failed for " + methodName, t);
+            }
+        }
+        return args;
+    }
+
+    private static RowBinder compile(Method method, String[] headers) {
+        Parameter[] parameters = method.getParameters();
+        int[] columnIndexes = new int[parameters.length];
+        MethodHandle[] converters = new MethodHandle[parameters.length];
+        Kind[] kinds = new Kind[parameters.length];
+
+        for (int p = 0; p < parameters.length; p++) {
+            columnIndexes[p] = resolveColumn(method, parameters[p], p, headers);
+            converters[p] = converterFor(parameters[p].getType());
+            kinds[p] = kindOf(converters[p].type().returnType());
+        }
+
+        log.debug("Compiled row binder for {}: columns {}", method.getName(), Arrays.toString(columnIndexes));
+        return new RowBinder(method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+            columnIndexes, converters, kinds);
+    }
+
+    private static Kind kindOf(Class<?> returnType) {
+        if (returnType == int.class) return Kind.INT;
+        if (returnType == long.class) return Kind.LONG;
+        if (returnType == double.class) return Kind.DOUBLE;
+        if (returnType == float.class) return Kind.FLOAT;
+        if (returnType == boolean.class) return Kind.BOOLEAN;
+        return Kind.OBJECT;
+    }
+
+    private static int resolveColumn(Method method, Parameter parameter, int position, String[] headers) {
+        Column column = parameter.getAnnotation(Column.class);
+        if (column != null) {
+            int index = indexOfHeader(headers, column.value());
+            if (index < 0) {
+                throw new IllegalArgumentException(String.format("Column '%s' for parameter %d of %s not found in headers %s",
+                    column.value(), position, method.getName(), Arrays.toString(headers)));
+            }
+            return index;
+        }
+        if (parameter.isNamePresent()) {
+            int index = indexOfHeader(headers, parameter.getName());
+            if (index < 0) {
+                throw new IllegalArgumentException(String.format(
+                    "Parameter '%s' of %s matches no header in %s; add @Column(\"Header\") to bind it",
+                    parameter.getName(), method.getName(), Arrays.toString(headers)));
+            }
+            return index;
+        }
+        if (headers.length > 0 && position >= headers.length) {
+            throw new IllegalArgumentException(String.format(
+                "Parameter %d of %s has no @Column and the data has only %d columns %s",
+                position, method.getName(), headers.length, Arrays.toString(headers)));
+        }
+        log.warn("Parameter {} of {} has no @Column and no compiled name; bound by position to column '{}'",
+            position, method.getName(), position < headers.length ? headers[position] : String.valueOf(position));
+        return position;
+    }
+
+    private static int indexOfHeader(String[] headers, String name) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i] != null && headers[i].trim().equalsIgnoreCase(name.trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static MethodHandle converterFor(Class<?> type) {
+        try {
+            if (type.isEnum()) {
+                MethodHandle toEnum = LOOKUP.findStatic(RowBinder.class, "toEnum",
+                    MethodType.methodType(Enum.class, Class.class, Object.class));
+                return MethodHandles.insertArguments(toEnum, 0, type).asType(CONVERTER_TYPE);
+            }
+
+            String converter;
+            Class<?> returnType;
+            if (type == String.class || type == Object.class) {
+                converter = "toStringValue"; returnType = String.class;
+            } else if (type == int.class) {
+                converter = "toInt"; returnType = int.class;
+            } else if (type == Integer.class) {
+                converter = "toIntegerOrNull"; returnType = Integer.class;
+            } else if (type == long.class) {
+                converter = "toLong"; returnType = long.class;
+            } else if (type == Long.class) {
+                converter = "toLongOrNull"; returnType = Long.class;
+            } else if (type == double.class) {
+                converter = "toDouble"; returnType = double.class;
+            } else if (type == Double.class) {
+                converter = "toDoubleOrNull"; returnType = Double.class;
+            } else if (type == float.class) {
+                converter = "toFloat"; returnType = float.class;
+            } else if (type == Float.class) {
+                converter = "toFloatOrNull"; returnType = Float.class;
+            } else if (type == boolean.class) {
+                converter = "toBoolean"; returnType = boolean.class;
+            } else if (type == Boolean.class) {
+                converter = "toBooleanOrNull"; returnType = Boolean.class;
+            } else if (type == BigDecimal.class) {
+                converter = "toBigDecimal"; returnType = BigDecimal.class;
+            } else if (type == LocalDate.class) {
+                converter = "toLocalDate"; returnType = LocalDate.class;
+            } else if (type == Date.class) {
+                converter = "toDate"; returnType = Date.class;
+            } else {
+                throw new IllegalArgumentException("Unsupported data-driven parameter type: " + type.getName());
+            }
+
+            MethodHandle handle = LOOKUP.findStatic(RowBinder.class, converter,
+                MethodType.methodType(returnType, Object.class));
+            // Primitive converters keep their exact type; only reference results are widened to Object
+            return returnType.isPrimitive() ? handle : handle.asType(CONVERTER_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Converter lookup failed for " + type.getName(), e);
+        }
+    }
+
+    // Converters - one per target type, each accepting CSV strings and Excel cell objects
+
+    private static String toStringValue(Object value) {
+        if (value == null) return "";
+        if (value instanceof Double d && d == Math.rint(d) && !Double.isInfinite(d)) {
+            // Excel stores 42 as 42.0; keep integral numbers readable as text
+            return Long.toString(d.longValue());
+        }
+        return value.toString();
+    }
+
+    private static int toInt(Object value) {
+        if (value instanceof Number n) return n.intValue();
+        return Integer.parseInt(text(value));
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number n) return n.longValue();
+        return Long.parseLong(text(value));
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number n) return n.doubleValue();
+        return Double.parseDouble(text(value));
+    }
+
+    private static float toFloat(Object value) {
+        if (value instanceof Number n) return n.floatValue();
+        return Float.parseFloat(text(value));
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean b) return b;
+        if (value instanceof Number n && (n.doubleValue() == 1 || n.doubleValue() == 0)) return n.doubleValue() == 1;
+        String text = text(value);
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("yes") || text.equals("1")) return true;
+        if (text.equalsIgnoreCase("false") || text.equalsIgnoreCase("no") || text.equals("0")) return false;
+        throw new IllegalArgumentException("not a boolean (true/false, yes/no or 1/0)");
+    }
+
+    // Wrapper converters: a blank or missing cell is null, anything else as for the primitive
+
+    private static Integer toIntegerOrNull(Object value) {
+        return isBlank(value) ? null : toInt(value);
+    }
+
+    private static Long toLongOrNull(Object value) {
+        return isBlank(value) ? null : toLong(value);
+    }
+
+    private static Double toDoubleOrNull(Object value) {
+        return isBlank(value) ? null : toDouble(value);
+    }
+
+    private static Float toFloatOrNull(Object value) {
+        return isBlank(value) ? null : toFloat(value);
+    }
+
+    private static Boolean toBooleanOrNull(Object value) {
+        return isBlank(value) ? null : toBoolean(value);
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Double d) return BigDecimal.valueOf(d);
+        return new BigDecimal(text(value));
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return LocalDate.parse(text(value));
+    }
+
+    private static Date toDate(Object value) {
+        if (value instanceof Date date) return date;
+        return Date.from(LocalDate.parse(text(value)).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Enum<?> toEnum(Class type, Object value) {
+        String text = text(value);
+        for (Object constant : type.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equalsIgnoreCase(text)) {
+                return (Enum<?>) constant;
+            }
+        }
+        return Enum.valueOf(type, text);
+    }
+
+    private static String text(Object value) {
+        return value == null ? "" : value.toString().trim();
+    }
+
+    private static boolean isBlank(Object value) {
+        return text(value).isEmpty();
+    }
+}
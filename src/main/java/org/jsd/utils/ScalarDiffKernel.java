@@ -0,0 +1,47 @@
+package org.jsd.utils;
+
+/**
+ * Reference {@link DiffKernel}: one pixel at a time, channels unpacked only when the pixels differ.
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class ScalarDiffKernel implements DiffKernel {
+    public static final ScalarDiffKernel INSTANCE = new ScalarDiffKernel();
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public long diff(int[] expected, int expectedOffset, int[] actual, int actualOffset,
+                     int[] mask, int maskOffset, int length, int tolerance) {
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            int e = expected[expectedOffset + i];
+            boolean differs = differs(e, actual[actualOffset + i], tolerance);
+            if (differs) {
+                count++;
+            }
+            if (mask != null) {
+                mask[maskOffset + i] = differs ? ImageComparator.DIFF_COLOR : e;
+            }
+        }
+        return count;
+    }
+
+    /** True if any channel of the two ARGB pixels differs by more than the tolerance. */
+    static boolean differs(int expected, int actual, int tolerance) {
+        if (expected == actual) {
+            return false;
+        }
+        if (tolerance <= 0) {
+            return true;
+        }
+        return Math.abs((expected >>> 24) - (actual >>> 24)) > tolerance
+            || Math.abs(((expected >> 16) & 0xFF) - ((actual >> 16) & 0xFF)) > tolerance
+            || Math.abs(((expected >> 8) & 0xFF) - ((actual >> 8) & 0xFF)) > tolerance
+            || Math.abs((expected & 0xFF) - (actual & 0xFF)) > tolerance;
+    }
+}
@@ -0,0 +1,283 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.Augmenter;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in low frame rate screencast of a browser session into a fixed-size ring buffer.
+ *
+ * Chromium sessions stream JPEG frames over CDP (Page.startScreencast). The recorder
+ * keeps the newest frames, still JPEG-compressed, in a small ring buffer per session and
+ * drops older ones, so memory is bounded and a passing test costs only the frame traffic.
+ * When a test fails, the failure artifact broker snapshots the buffer and the frames are
+ * written as an animated GIF (or a JPEG sequence) on the artifact pipeline.
+ *
+ * The session is registered when DriverFactory creates the driver; the buffer is cleared
+ * when a pooled session is leased or released, and the screencast stops when it quits.
+ * Browsers without CDP (Firefox, Grid without CDP access) are skipped silently.
+ *
+ * Configuration (system properties override config.properties):
+ * - screencast.enabled      : turn recording on (default false)
+ * - screencast.fps          : frames kept per second (default 4)
+ * - screencast.seconds      : replay length before the failure (default 5)
+ * - screencast.quality      : JPEG quality 1-100 of streamed frames (default 50)
+ * - screencast.max.width    : frame width limit in pixels (default 800)
+ * - screencast.format       : gif (animated, attached to Allure) or frames (JPEG sequence on disk)
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class ScreencastRecorder {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ScreencastRecorder.class);
+    private static final Map<WebDriver, ScreencastRecorder> recorders = new ConcurrentHashMap<>();
+
+    private static final Event<Map<String, Object>> SCREENCAST_FRAME =
+        new Event<>("Page.screencastFrame", input -> input.read(Json.MAP_TYPE));
+
+    /** Channel value (0-255) to web palette level (0-5), rounded to the nearest level */
+    private static final int[] LEVEL = new int[256];
+    private static final IndexColorModel WEB_PALETTE;
+
+    static {
+        byte[] r = new byte[216];
+        byte[] g = new byte[216];
+        byte[] b = new byte[216];
+        for (int i = 0; i < 216; i++) {
+            r[i] = (byte) (i / 36 * 51);
+            g[i] = (byte) (i / 6 % 6 * 51);
+            b[i] = (byte) (i % 6 * 51);
+        }
+        WEB_PALETTE = new IndexColorModel(8, 216, r, g, b);
+        for (int v = 0; v < 256; v++) {
+            LEVEL[v] = (v + 25) / 51;
+        }
+    }
+
+    /** One JPEG frame and the time it was rendered. */
+    public record Frame(long timestampMillis, byte[] jpeg) { }
+
+    private final DevTools devTools;
+    private final Frame[] ring;
+    private final long minIntervalMillis;
+    private int next;
+    private int size;
+    private long lastKeptMillis;
+
+    private ScreencastRecorder(DevTools devTools, int capacity, long minIntervalMillis) {
+        this.devTools = devTools;
+        this.ring = new Frame[capacity];
+        this.minIntervalMillis = minIntervalMillis;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(setting("screencast.enabled", "false"));
+    }
+
+    /**
+     * Starts a screencast for the session if recording is enabled and the browser supports CDP.
+     */
+    public static void attach(WebDriver driver) {
+        if (!isEnabled() || driver == null || recorders.containsKey(driver)) {
+            return;
+        }
+        try {
+            WebDriver devToolsDriver = driver instanceof HasDevTools ? driver : new Augmenter().augment(driver);
+            if (!(devToolsDriver instanceof HasDevTools hasDevTools)) {
+                log.debug("Screencast not available: driver has no DevTools support");
+                return;
+            }
+            int fps = Math.max(1, Integer.parseInt(setting("screencast.fps", "4")));
+            int seconds = Math.max(1, Integer.parseInt(setting("screencast.seconds", "5")));
+
+            DevTools devTools = hasDevTools.getDevTools();
+            devTools.createSessionIfThereIsNotOne();
+            ScreencastRecorder recorder = new ScreencastRecorder(devTools, fps * seconds, 1000L / fps);
+            devTools.addListener(SCREENCAST_FRAME, recorder::onFrame);
+            devTools.send(new Command<>("Page.startScreencast", Map.of(
+                "format", "jpeg",
+                "quality", Integer.parseInt(setting("screencast.quality", "50")),
+                "maxWidth", Integer.parseInt(setting("screencast.max.width", "800")),
+                "maxHeight", 10_000,
+                // The compositor runs at about 60 fps; skip frames we would throttle away anyway
+                "everyNthFrame", Math.max(1, 60 / fps))));
+            recorders.put(driver, recorder);
+            log.debug("Screencast started: {} frames at {} fps", fps * seconds, fps);
+        } catch (Exception e) {
+            log.debug("Screencast not available for this session: {}", e.getMessage());
+        }
+    }
+
+    /** Drops buffered frames, e.g. when a pooled session starts a new test. */
+    public static void reset(WebDriver driver) {
+        ScreencastRecorder recorder = driver == null ? null : recorders.get(driver);
+        if (recorder != null) {
+            recorder.clear();
+        }
+    }
+
+    /** Stops the screencast before the session quits. */
+    public static void detach(WebDriver driver) {
+        ScreencastRecorder recorder = driver == null ? null : recorders.remove(driver);
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.devTools.send(new Command<>("Page.stopScreencast", Map.of()));
+            recorder.devTools.clearListeners();
+        } catch (Exception e) {
+            log.debug("Failed to stop screencast: {}", e.getMessage());
+        }
+        recorder.clear();
+    }
+
+    /**
+     * Copies the buffered frames of a session, oldest first. Empty when not recording.
+     */
+    public static List<Frame> snapshot(WebDriver driver) {
+        ScreencastRecorder recorder = driver == null ? null : recorders.get(driver);
+        return recorder == null ? List.of() : recorder.frames();
+    }
+
+    private void onFrame(Map<String, Object> params) {
+        Object sessionId = params.get("sessionId");
+        try {
+            // Chrome stops sending frames until each one is acknowledged
+            devTools.send(new Command<>("Page.screencastFrameAck", Map.of("sessionId", sessionId)));
+        } catch (Exception e) {
+            log.debug("Screencast frame ack failed: {}", e.getMessage());
+        }
+
+        Object metadata = params.get("metadata");
+        long timestamp = System.currentTimeMillis();
+        if (metadata instanceof Map<?, ?> meta && meta.get("timestamp") instanceof Number seconds) {
+            timestamp = (long) (seconds.doubleValue() * 1000);
+        }
+        synchronized (this) {
+            if (size > 0 && timestamp - lastKeptMillis < minIntervalMillis) {
+                return;
+            }
+            lastKeptMillis = timestamp;
+            ring[next] = new Frame(timestamp, Base64.getDecoder().decode((String) params.get("data")));
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+    }
+
+    private synchronized List<Frame> frames() {
+        List<Frame> frames = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            frames.add(ring[(next - size + i + ring.length) % ring.length]);
+        }
+        return frames;
+    }
+
+    private synchronized void clear() {
+        Arrays.fill(ring, null);
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Encodes frames as a looping animated GIF, using the recorded frame timing.
+     */
+    public static byte[] toAnimatedGif(List<Frame> frames) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.prepareWriteSequence(null);
+            for (int i = 0; i < frames.size(); i++) {
+                BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(frames.get(i).jpeg()));
+                if (decoded == null) {
+                    continue;
+                }
+                BufferedImage image = toWebPalette(decoded);
+                long delayMillis = i + 1 < frames.size()
+                    ? frames.get(i + 1).timestampMillis() - frames.get(i).timestampMillis()
+                    : 1000;
+                writer.writeToSequence(new IIOImage(image, null, gifMetadata(writer, image, delayMillis, i == 0)), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Maps an image onto the fixed 6x6x6 web palette. Much faster than letting the GIF writer
+     * build an optimal palette per frame, and plenty for a replay.
+     */
+    private static BufferedImage toWebPalette(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+        BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, WEB_PALETTE);
+        byte[] pixels = ((DataBufferByte) indexed.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < rgb.length; i++) {
+            int p = rgb[i];
+            pixels[i] = (byte) (LEVEL[(p >> 16) & 0xFF] * 36 + LEVEL[(p >> 8) & 0xFF] * 6 + LEVEL[p & 0xFF]);
+        }
+        return indexed;
+    }
+
+    private static IIOMetadata gifMetadata(ImageWriter writer, BufferedImage image, long delayMillis, boolean first)
+            throws IOException {
+        IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Long.toString(Math.max(2, Math.min(delayMillis, 5000) / 10)));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        if (first) {
+            // NETSCAPE2.0 extension: loop forever
+            IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+            IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+            loop.setAttribute("applicationID", "NETSCAPE");
+            loop.setAttribute("authenticationCode", "2.0");
+            loop.setUserObject(new byte[] {1, 0, 0});
+            extensions.appendChild(loop);
+            root.appendChild(extensions);
+        }
+        metadata.setFromTree(format, root);
+        return metadata;
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,169 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Re-encodes captured PNG screenshots according to a {@link CapturePolicy}.
+ *
+ * - Downscaling uses area averaging on the raw int raster: every source pixel is added to
+ *   the destination pixel it falls into, then each sum is divided by its pixel count. One
+ *   pass over the source, no per-pixel getRGB calls and no Image.getScaledInstance.
+ * - PNG is written with the policy's deflate level (1 = fast, 9 = smallest).
+ * - JPEG is written with the policy's quality; alpha is dropped.
+ *
+ * Usage:
+ * byte[] jpeg = ScreenshotEncoder.encode(pngBytes, CapturePolicy.forScope("email"));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class ScreenshotEncoder {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(ScreenshotEncoder.class);
+
+    /**
+     * Encodes a PNG capture with the given policy. Pass-through policies return the input.
+     */
+    public static byte[] encode(byte[] png, CapturePolicy policy) throws IOException {
+        if (policy.isPassThrough()) {
+            return png;
+        }
+        long start = System.nanoTime();
+        byte[] encoded = encode(decode(png), policy);
+        log.debug("Encoded screenshot {} KB -> {} KB ({}) in {} ms", png.length / 1024, encoded.length / 1024,
+            policy.id(), (System.nanoTime() - start) / 1_000_000);
+        return encoded;
+    }
+
+    /**
+     * Downscales and encodes an image with the given policy.
+     */
+    public static byte[] encode(BufferedImage image, CapturePolicy policy) throws IOException {
+        BufferedImage scaled = downscale(toIntRgb(image), policy.maxWidth(), policy.maxHeight());
+        return policy.format() == CapturePolicy.Format.JPEG
+            ? write(scaled, "jpeg", policy.jpegQuality())
+            : write(scaled, "png", 1f - policy.pngCompressionLevel() / 9f);
+    }
+
+    public static BufferedImage decode(byte[] image) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        if (decoded == null) {
+            throw new IOException("Unsupported image data");
+        }
+        return decoded;
+    }
+
+    /**
+     * Cuts a region out of a page screenshot. Coordinates are CSS pixels; devicePixelRatio
+     * maps them to screenshot pixels on HiDPI displays. The region is clamped to the image.
+     */
+    public static BufferedImage crop(BufferedImage image, int x, int y, int width, int height, double devicePixelRatio) {
+        int left = clamp((int) Math.floor(x * devicePixelRatio), image.getWidth());
+        int top = clamp((int) Math.floor(y * devicePixelRatio), image.getHeight());
+        int right = clamp((int) Math.ceil((x + width) * devicePixelRatio), image.getWidth());
+        int bottom = clamp((int) Math.ceil((y + height) * devicePixelRatio), image.getHeight());
+        if (right <= left || bottom <= top) {
+            throw new IllegalArgumentException(String.format("Region %d,%d %dx%d is outside the %dx%d screenshot",
+                x, y, width, height, image.getWidth(), image.getHeight()));
+        }
+        return image.getSubimage(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Area-averaging downscale so the image fits maxWidth x maxHeight (0 = unbounded).
+     * Images that already fit are returned unchanged.
+     */
+    public static BufferedImage downscale(BufferedImage source, int maxWidth, int maxHeight) {
+        int sw = source.getWidth();
+        int sh = source.getHeight();
+        double scale = 1.0;
+        if (maxWidth > 0) scale = Math.min(scale, (double) maxWidth / sw);
+        if (maxHeight > 0) scale = Math.min(scale, (double) maxHeight / sh);
+        if (scale >= 1.0) {
+            return source;
+        }
+        int dw = Math.max(1, (int) Math.round(sw * scale));
+        int dh = Math.max(1, (int) Math.round(sh * scale));
+
+        int[] src = ((DataBufferInt) toIntRgb(source).getRaster().getDataBuffer()).getData();
+        int[] columnOf = new int[sw];
+        for (int x = 0; x < sw; x++) {
+            columnOf[x] = (int) ((long) x * dw / sw);
+        }
+
+        int[] red = new int[dw * dh];
+        int[] green = new int[dw * dh];
+        int[] blue = new int[dw * dh];
+        int[] count = new int[dw * dh];
+        for (int y = 0; y < sh; y++) {
+            int rowBase = (int) ((long) y * dh / sh) * dw;
+            int srcBase = y * sw;
+            for (int x = 0; x < sw; x++) {
+                int rgb = src[srcBase + x];
+                int d = rowBase + columnOf[x];
+                red[d] += (rgb >> 16) & 0xFF;
+                green[d] += (rgb >> 8) & 0xFF;
+                blue[d] += rgb & 0xFF;
+                count[d]++;
+            }
+        }
+
+        BufferedImage target = new BufferedImage(dw, dh, BufferedImage.TYPE_INT_RGB);
+        int[] dst = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < dst.length; i++) {
+            int n = Math.max(1, count[i]);
+            dst[i] = (red[i] / n) << 16 | (green[i] / n) << 8 | (blue[i] / n);
+        }
+        return target;
+    }
+
+    /** Returns the image as TYPE_INT_RGB, copying only when needed (sub-images are always copied). */
+    private static BufferedImage toIntRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB
+                && image.getRaster().getDataBuffer().getSize() == image.getWidth() * image.getHeight()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static byte[] write(BufferedImage image, String format, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
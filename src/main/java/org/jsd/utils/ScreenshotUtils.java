@@ -1,81 +1,128 @@
 package org.jsd.utils;
 
-import io.qameta.allure.Attachment;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Rectangle;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chromium.HasCdp;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ScreenshotUtils {
     private static final Logger log = LogManager.getLogger(ScreenshotUtils.class);
-    private static final String SCREENSHOT_DIR = "test-output/screenshots";
-    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final String POLICY_SCOPE = "screenshot";
 
-    static {
-        createScreenshotDirectory();
+    /**
+     * Takes a screenshot on the calling thread; encoding, the file write and the Allure attachment
+     * run on the ArtifactPipeline. The returned file exists once ArtifactPipeline.flush() returns.
+     * Screenshots are content-addressed: identical images share one file in the ArtifactStore.
+     * Format and size follow the capture.screenshot.* policy (see CapturePolicy).
+     */
+    public static String captureScreenshot(WebDriver driver, String name) {
+        return captureScreenshot(driver, name, CapturePolicy.forScope(POLICY_SCOPE));
     }
 
-    private static void createScreenshotDirectory() {
+    public static String captureScreenshot(WebDriver driver, String name, CapturePolicy policy) {
         try {
-            Files.createDirectories(Paths.get(SCREENSHOT_DIR));
-        } catch (IOException e) {
-            log.error("Failed to create screenshot directory", e);
+            return store(((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES), name, policy, "Screenshot");
+        } catch (Exception e) {
+            log.error("Failed to capture screenshot: {}", name, e);
+            return null;
         }
     }
 
-    public static String captureScreenshot(WebDriver driver, String name) {
-        try {
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            String fileName = String.format("%s_%s.png", name, timestamp);
-            String filePath = Paths.get(SCREENSHOT_DIR, fileName).toString();
+    /**
+     * @deprecated Captures the whole page; use {@link #captureElementScreenshot(WebDriver, WebElement, String)}.
+     */
+    @Deprecated
+    public static String captureElementScreenshot(WebDriver driver, String name) {
+        return captureScreenshot(driver, name);
+    }
 
-            // Take screenshot
-            File screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-            Files.copy(screenshot.toPath(), Path.of(filePath));
+    public static String captureElementScreenshot(WebDriver driver, By locator, String name) {
+        return captureElementScreenshot(driver, driver.findElement(locator), name);
+    }
 
-            // Attach to Allure
-            attachScreenshotToAllure(Files.readAllBytes(screenshot.toPath()));
+    /**
+     * Captures only the element's bounding box, as rendered by the browser.
+     */
+    public static String captureElementScreenshot(WebDriver driver, WebElement element, String name) {
+        return captureElementScreenshot(driver, element, name, CapturePolicy.forScope(POLICY_SCOPE));
+    }
 
-            log.info("Screenshot saved: {}", filePath);
-            return filePath;
-        } catch (IOException e) {
-            log.error("Failed to capture screenshot: {}", name, e);
+    public static String captureElementScreenshot(WebDriver driver, WebElement element, String name, CapturePolicy policy) {
+        try {
+            return store(element.getScreenshotAs(OutputType.BYTES), name, policy, "Element screenshot");
+        } catch (Exception e) {
+            log.error("Failed to capture element screenshot: {}", name, e);
             return null;
         }
     }
 
-    @Attachment(value = "Screenshot", type = "image/png")
-    private static byte[] attachScreenshotToAllure(byte[] screenshot) {
-        return screenshot;
+    /**
+     * Captures a page region given in CSS pixels (page coordinates).
+     * Chromium browsers clip in the browser with CDP Page.captureScreenshot, which also covers
+     * regions below the fold; other browsers crop a viewport screenshot.
+     */
+    public static String captureRegionScreenshot(WebDriver driver, Rectangle clip, String name) {
+        return captureRegionScreenshot(driver, clip, name, CapturePolicy.forScope(POLICY_SCOPE));
     }
 
-    public static String captureElementScreenshot(WebDriver driver, String name) {
+    public static String captureRegionScreenshot(WebDriver driver, Rectangle clip, String name, CapturePolicy policy) {
         try {
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            String fileName = String.format("%s_%s.png", name, timestamp);
-            String filePath = Paths.get(SCREENSHOT_DIR, fileName).toString();
+            if (driver instanceof HasCdp cdp) {
+                return captureRegionWithCdp(cdp, clip, name, policy);
+            }
+            byte[] page = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            List<?> metrics = (List<?>) ((JavascriptExecutor) driver).executeScript(
+                "return [window.scrollX, window.scrollY, window.devicePixelRatio];");
+            int scrollX = ((Number) metrics.get(0)).intValue();
+            int scrollY = ((Number) metrics.get(1)).intValue();
+            double ratio = ((Number) metrics.get(2)).doubleValue();
 
-            // Take screenshot of specific element
-            byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            Files.write(Path.of(filePath), screenshot);
+            byte[] region = ScreenshotEncoder.encode(ScreenshotEncoder.crop(ScreenshotEncoder.decode(page),
+                clip.getX() - scrollX, clip.getY() - scrollY, clip.getWidth(), clip.getHeight(), ratio),
+                CapturePolicy.ORIGINAL);
+            return store(region, name, policy, "Region screenshot");
+        } catch (Exception e) {
+            log.error("Failed to capture region screenshot: {}", name, e);
+            return null;
+        }
+    }
 
-            // Attach to Allure
-            attachScreenshotToAllure(screenshot);
+    private static String captureRegionWithCdp(HasCdp cdp, Rectangle clip, String name, CapturePolicy policy) {
+        // A JPEG that needs no downscaling is encoded by the browser itself
+        boolean browserJpeg = policy.format() == CapturePolicy.Format.JPEG
+            && policy.maxWidth() <= 0 && policy.maxHeight() <= 0;
+        Map<String, Object> params = new HashMap<>();
+        params.put("format", browserJpeg ? "jpeg" : "png");
+        if (browserJpeg) {
+            params.put("quality", Math.round(policy.jpegQuality() * 100));
+        }
+        params.put("captureBeyondViewport", true);
+        params.put("clip", Map.of("x", clip.getX(), "y", clip.getY(),
+            "width", clip.getWidth(), "height", clip.getHeight(), "scale", 1));
 
-            log.info("Element screenshot saved: {}", filePath);
-            return filePath;
-        } catch (IOException e) {
-            log.error("Failed to capture element screenshot: {}", name, e);
-            return null;
+        byte[] image = Base64.getDecoder().decode((String) cdp.executeCdpCommand("Page.captureScreenshot", params).get("data"));
+        if (browserJpeg) {
+            String path = ArtifactStore.attachToAllure(image, "Screenshot", "image/jpeg", "jpg", name).path().toString();
+            log.info("Region screenshot '{}' stored as: {}", name, path);
+            return path;
         }
+        return store(image, name, policy, "Region screenshot");
+    }
+
+    private static String store(byte[] png, String name, CapturePolicy policy, String description) {
+        String path = ArtifactStore.attachToAllure(png, "Screenshot", policy, name).path().toString();
+        log.info("{} '{}' stored as: {}", description, name, path);
+        return path;
     }
 }
@@ -0,0 +1,229 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 64-bit hashes of the fixed-size tiles of an image, used to skip unchanged areas in visual diffs.
+ *
+ * The image is split into tileSize x tileSize tiles (the last column and row may be smaller)
+ * and each tile is hashed with FNV-1a over its ARGB pixels. Two screenshots only need a
+ * per-pixel diff in tiles whose hashes differ; on a mostly unchanged page that is a handful of
+ * tiles, and the baseline image does not even have to be decoded when every tile matches.
+ *
+ * Baseline hashes are kept in a ".tiles" sidecar next to the baseline PNG, stamped with the
+ * baseline's size and modification time so a replaced baseline is re-hashed automatically.
+ *
+ * Usage:
+ * TileHashes baseline = TileHashes.forBaseline(Paths.get("test-output/visual-baselines/home.png"), 32);
+ * BitSet changed = baseline.mismatchedTiles(TileHashes.of(actualImage, 32), new BitSet());
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public final class TileHashes {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(TileHashes.class);
+
+    private static final String SIDECAR_EXTENSION = ".tiles";
+    private static final int MAGIC = 0x4A534454; // "JSDT"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final int tileSize;
+    private final int width;
+    private final int height;
+    private final int columns;
+    private final int rows;
+    private final long[] hashes;
+
+    private TileHashes(int tileSize, int width, int height, long[] hashes) {
+        this.tileSize = tileSize;
+        this.width = width;
+        this.height = height;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Hashes every tile of the image, one tile row per task on the common ForkJoin pool.
+     */
+    public static TileHashes of(BufferedImage image, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ImageComparator.pixels(ImageComparator.toArgb(image));
+        TileHashes tiles = new TileHashes(tileSize, width, height, null);
+        long[] hashes = new long[tiles.columns * tiles.rows];
+
+        IntStream.range(0, tiles.rows).parallel().forEach(tileRow -> {
+            int first = tileRow * tiles.columns;
+            for (int tx = 0; tx < tiles.columns; tx++) {
+                hashes[first + tx] = FNV_OFFSET;
+            }
+            int bottom = Math.min(height, (tileRow + 1) * tileSize);
+            for (int y = tileRow * tileSize; y < bottom; y++) {
+                int row = y * width;
+                for (int tx = 0; tx < tiles.columns; tx++) {
+                    long h = hashes[first + tx];
+                    int right = Math.min(width, (tx + 1) * tileSize);
+                    for (int x = tx * tileSize; x < right; x++) {
+                        h = (h ^ pixels[row + x]) * FNV_PRIME;
+                    }
+                    hashes[first + tx] = h;
+                }
+            }
+        });
+        return new TileHashes(tileSize, width, height, hashes);
+    }
+
+    /**
+     * Returns the hashes of a baseline image from its sidecar, re-hashing the image (and rewriting
+     * the sidecar) when the sidecar is missing, stale or was built with another tile size.
+     */
+    public static TileHashes forBaseline(Path baseline, int tileSize) throws IOException {
+        TileHashes cached = readSidecar(baseline, tileSize);
+        if (cached != null) {
+            return cached;
+        }
+        TileHashes computed = of(BaselineStore.load(baseline), tileSize);
+        computed.writeSidecar(baseline);
+        return computed;
+    }
+
+    /**
+     * Stores these hashes as the sidecar of a baseline file that holds the hashed image.
+     */
+    public void writeSidecar(Path baseline) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + hashes.length * 8);
+        buffer.putInt(MAGIC).putInt(VERSION)
+            .putLong(Files.size(baseline))
+            .putLong(Files.getLastModifiedTime(baseline).toMillis())
+            .putInt(tileSize).putInt(width).putInt(height);
+        for (long hash : hashes) {
+            buffer.putLong(hash);
+        }
+        Files.write(sidecarFor(baseline), buffer.array());
+        log.debug("Wrote {} tile hashes for {}", hashes.length, baseline.getFileName());
+    }
+
+    /** Sidecar path of a baseline: "name.png" -> "name.tiles" in the same directory. */
+    public static Path sidecarFor(Path baseline) {
+        String fileName = baseline.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return baseline.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + SIDECAR_EXTENSION);
+    }
+
+    private static TileHashes readSidecar(Path baseline, int tileSize) {
+        Path sidecar = sidecarFor(baseline);
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(sidecar));
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != Files.size(baseline)
+                    || buffer.getLong() != Files.getLastModifiedTime(baseline).toMillis()
+                    || buffer.getInt() != tileSize) {
+                return null;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            long[] hashes = new long[((width + tileSize - 1) / tileSize) * ((height + tileSize - 1) / tileSize)];
+            if (buffer.remaining() != hashes.length * 8) {
+                return null;
+            }
+            buffer.asLongBuffer().get(hashes);
+            return new TileHashes(tileSize, width, height, hashes);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable tile hashes {}: {}", sidecar, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Tiles whose hashes differ from the other image's, excluding the ignored tiles.
+     * Both hash sets must have the same tile size and image dimensions.
+     */
+    public BitSet mismatchedTiles(TileHashes other, BitSet ignored) {
+        if (!sameGrid(other)) {
+            throw new IllegalArgumentException(String.format("Tile grids differ: %dx%d/%d vs %dx%d/%d",
+                width, height, tileSize, other.width, other.height, other.tileSize));
+        }
+        BitSet mismatched = new BitSet(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != other.hashes[i] && !ignored.get(i)) {
+                mismatched.set(i);
+            }
+        }
+        return mismatched;
+    }
+
+    public boolean sameGrid(TileHashes other) {
+        return tileSize == other.tileSize && width == other.width && height == other.height;
+    }
+
+    /**
+     * Tiles touched by any of the regions, given in image pixels. Regions are clipped to the image.
+     */
+    public BitSet tilesCovering(List<Rectangle> regions) {
+        BitSet covered = new BitSet(hashes.length);
+        for (Rectangle region : regions) {
+            int left = Math.max(0, region.getX());
+            int top = Math.max(0, region.getY());
+            int right = Math.min(width, region.getX() + region.getWidth());
+            int bottom = Math.min(height, region.getY() + region.getHeight());
+            if (right <= left || bottom <= top) {
+                continue;
+            }
+            for (int ty = top / tileSize; ty <= (bottom - 1) / tileSize; ty++) {
+                covered.set(ty * columns + left / tileSize, ty * columns + (right - 1) / tileSize + 1);
+            }
+        }
+        return covered;
+    }
+
+    /** Number of pixels in a tile; edge tiles may be smaller than tileSize x tileSize. */
+    public long pixelsIn(int tile) {
+        int tx = tile % columns;
+        int ty = tile / columns;
+        return (long) (Math.min(width, (tx + 1) * tileSize) - tx * tileSize)
+            * (Math.min(height, (ty + 1) * tileSize) - ty * tileSize);
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int tileCount() {
+        return hashes.length;
+    }
+}
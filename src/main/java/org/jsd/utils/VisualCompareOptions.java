@@ -0,0 +1,220 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings for one visual comparison: threshold, tolerance, tiling and ignore regions.
+ *
+ * Ignore regions are given either as rectangles in CSS page coordinates (as returned by
+ * WebElement.getRect()) or as locators. Locators are resolved when the screenshot is taken,
+ * so dynamic content (clocks, carousels, ads) is masked wherever it is rendered in that run.
+ * Every tile touched by an ignore region is skipped entirely.
+ *
+ * Defaults come from configuration (system properties override config.properties):
+ * - visual.tile.size          : tile edge in screenshot pixels (default 32)
+ * - visual.tile.hashing       : skip tiles whose hashes match the baseline (default true)
+ * - visual.pixel.tolerance    : per-channel difference still treated as equal (default 0)
+ * - visual.max.diff.percent   : largest share of differing pixels that passes (default 1.0)
+ *
+ * Usage:
+ * VisualTestingUtils.compareScreenshot(driver, "dashboard", VisualCompareOptions.defaults()
+ *     .ignore(By.id("clock"))
+ *     .ignore(new Rectangle(0, 0, 80, 1920))    // Selenium order: x, y, height, width
+ *     .pixelTolerance(8));
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class VisualCompareOptions {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(VisualCompareOptions.class);
+
+    private final List<Rectangle> ignoredRegions = new ArrayList<>();
+    private final List<By> ignoredElements = new ArrayList<>();
+    private int tileSize;
+    private boolean tileHashing;
+    private int pixelTolerance;
+    private double maxDiffPercentage;
+
+    private VisualCompareOptions() {
+    }
+
+    public static VisualCompareOptions defaults() {
+        VisualCompareOptions options = new VisualCompareOptions();
+        options.tileSize = Integer.parseInt(setting("visual.tile.size", "32"));
+        options.tileHashing = Boolean.parseBoolean(setting("visual.tile.hashing", "true"));
+        options.pixelTolerance = Integer.parseInt(setting("visual.pixel.tolerance", "0"));
+        options.maxDiffPercentage = Double.parseDouble(setting("visual.max.diff.percent", "1.0"));
+        return options;
+    }
+
+    /** Ignores a region given in CSS page coordinates. */
+    public VisualCompareOptions ignore(Rectangle region) {
+        ignoredRegions.add(region);
+        return this;
+    }
+
+    /** Ignores every element matching the locator when the screenshot is taken. */
+    public VisualCompareOptions ignore(By locator) {
+        ignoredElements.add(locator);
+        return this;
+    }
+
+    public VisualCompareOptions tileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /** Compares every pixel outside the ignore regions instead of only tiles with changed hashes. */
+    public VisualCompareOptions fullScan() {
+        this.tileHashing = false;
+        return this;
+    }
+
+    public VisualCompareOptions pixelTolerance(int pixelTolerance) {
+        this.pixelTolerance = pixelTolerance;
+        return this;
+    }
+
+    public VisualCompareOptions maxDiffPercentage(double maxDiffPercentage) {
+        this.maxDiffPercentage = maxDiffPercentage;
+        return this;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public boolean isTileHashing() {
+        return tileHashing;
+    }
+
+    public int getPixelTolerance() {
+        return pixelTolerance;
+    }
+
+    public double getMaxDiffPercentage() {
+        return maxDiffPercentage;
+    }
+
+    public List<Rectangle> getIgnoredRegions() {
+        return Collections.unmodifiableList(ignoredRegions);
+    }
+
+    public List<By> getIgnoredElements() {
+        return Collections.unmodifiableList(ignoredElements);
+    }
+
+    public boolean hasIgnores() {
+        return !ignoredRegions.isEmpty() || !ignoredElements.isEmpty();
+    }
+
+    /**
+     * Resolves the ignore regions and locators to screenshot pixels for the current viewport:
+     * page coordinates are shifted by the scroll offset and scaled by devicePixelRatio.
+     * Locators that match nothing are skipped.
+     */
+    public List<Rectangle> resolveIgnoredRegions(WebDriver driver) {
+        if (!hasIgnores()) {
+            return List.of();
+        }
+        List<?> metrics = (List<?>) ((JavascriptExecutor) driver).executeScript(
+            "return [window.scrollX, window.scrollY, window.devicePixelRatio];");
+        double scrollX = ((Number) metrics.get(0)).doubleValue();
+        double scrollY = ((Number) metrics.get(1)).doubleValue();
+        double ratio = ((Number) metrics.get(2)).doubleValue();
+
+        List<Rectangle> pageRegions = new ArrayList<>(ignoredRegions);
+        for (By locator : ignoredElements) {
+            List<WebElement> elements = driver.findElements(locator);
+            if (elements.isEmpty()) {
+                log.debug("Ignore locator {} matched no elements", locator);
+            }
+            for (WebElement element : elements) {
+                pageRegions.add(element.getRect());
+            }
+        }
+
+        List<Rectangle> resolved = new ArrayList<>(pageRegions.size());
+        for (Rectangle region : pageRegions) {
+            int left = (int) Math.floor((region.getX() - scrollX) * ratio);
+            int top = (int) Math.floor((region.getY() - scrollY) * ratio);
+            int right = (int) Math.ceil((region.getX() + region.getWidth() - scrollX) * ratio);
+            int bottom = (int) Math.ceil((region.getY() + region.getHeight() - scrollY) * ratio);
+            resolved.add(new Rectangle(left, top, bottom - top, right - left));
+        }
+        return resolved;
+    }
+
+    /**
+     * Stores resolved ignore regions next to a saved screenshot ("name.png" -> "name.ignore"),
+     * one "x,y,width,height" line per region in screenshot pixels, so the capture can be
+     * re-diffed offline with the same regions. Removes the file when there are no regions.
+     */
+    public static void writeResolvedRegions(Path screenshot, List<Rectangle> regions) throws IOException {
+        Path file = regionsFileFor(screenshot);
+        if (regions.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        List<String> lines = new ArrayList<>(regions.size());
+        for (Rectangle region : regions) {
+            lines.add(region.getX() + "," + region.getY() + "," + region.getWidth() + "," + region.getHeight());
+        }
+        Files.write(file, lines);
+    }
+
+    /** Reads the regions written by writeResolvedRegions; empty when there are none. */
+    public static List<Rectangle> readResolvedRegions(Path screenshot) throws IOException {
+        Path file = regionsFileFor(screenshot);
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        List<Rectangle> regions = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (!line.isBlank()) {
+                regions.add(parseRegion(line));
+            }
+        }
+        return regions;
+    }
+
+    /** Parses "x,y,width,height" (note: not Selenium's x, y, height, width constructor order). */
+    public static Rectangle parseRegion(String spec) {
+        String[] parts = spec.trim().split("\\s*,\\s*");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid region '" + spec + "', expected x,y,width,height");
+        }
+        int x = Integer.parseInt(parts[0]);
+        int y = Integer.parseInt(parts[1]);
+        int width = Integer.parseInt(parts[2]);
+        int height = Integer.parseInt(parts[3]);
+        return new Rectangle(x, y, height, width);
+    }
+
+    private static Path regionsFileFor(Path screenshot) {
+        String fileName = screenshot.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return screenshot.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + ".ignore");
+    }
+
+    private static String setting(String key, String defaultValue) {
+        return System.getProperty(key, ConfigReader.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,334 @@
+package org.jsd.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Rectangle;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Re-diffs saved visual captures against their baselines without a browser.
+ *
+ * VisualTestingUtils saves every capture to test-output/visual-actual (with a ".ignore" file
+ * holding the ignore regions resolved in the browser). This tool compares all of them with their
+ * baselines in the BaselineIndex of test-output/visual-baselines in parallel, using the same
+ * tile-hash comparison, so thresholds
+ * and tolerances can be tuned, and intended UI changes accepted, in seconds instead of a suite
+ * rerun.
+ *
+ * For each capture it writes a diff image for failures (visual-diff/name_diff.png) and
+ * finally an HTML summary (visual-diff/visual-summary.html). Captures whose name matches the
+ * --accept glob and that fail (or have no baseline yet) become the new baseline.
+ *
+ * CLI usage:
+ * mvn -q exec:java -Dexec.mainClass=org.jsd.utils.VisualDiffCli \
+ *     -Dexec.args="--threshold 0.5 --tolerance 8 --ignore checkout*:0,0,1920,80 --accept login-*"
+ *
+ * Arguments (all optional):
+ * --actual DIR, --baselines DIR, --diff DIR : directories (defaults under test-output)
+ * --threshold PCT    : largest share of differing pixels that passes (visual.max.diff.percent)
+ * --tolerance N      : per-channel difference still treated as equal (visual.pixel.tolerance)
+ * --tile N           : tile size (visual.tile.size)
+ * --full-scan        : compare every pixel instead of only tiles with changed hashes
+ * --ignore [GLOB:]x,y,width,height : extra ignore region in screenshot pixels, repeatable
+ * --include GLOB     : only re-diff captures whose name matches
+ * --accept GLOB      : accept failing or new captures whose name matches as baselines
+ * --threads N        : parallel comparisons (default: available processors)
+ *
+ * Exit code: 0 when nothing failed, 1 when a capture failed or could not be compared, 2 on usage errors.
+ *
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+public class VisualDiffCli {
+    /** Logger instance for this class */
+    private static final Logger log = LogManager.getLogger(VisualDiffCli.class);
+
+    public static final String SUMMARY_FILE = "visual-summary.html";
+
+    public enum Status { FAILED, ERROR, NEW, ACCEPTED, PASSED }
+
+    /** Result for one capture; diffPercentage is -1 when no comparison took place. */
+    public record Outcome(String name, Status status, double diffPercentage, String detail, long millis) { }
+
+    private record IgnoreRule(PathMatcher names, Rectangle region) { }
+
+    private Path actualDir = Paths.get("test-output/visual-actual");
+    private Path baselineDir = Paths.get("test-output/visual-baselines");
+    private Path diffDir = Paths.get("test-output/visual-diff");
+    private final VisualCompareOptions options = VisualCompareOptions.defaults();
+    private final List<IgnoreRule> ignoreRules = new ArrayList<>();
+    private PathMatcher include;
+    private PathMatcher accept;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public VisualDiffCli actualDir(Path actualDir) {
+        this.actualDir = actualDir;
+        return this;
+    }
+
+    public VisualDiffCli baselineDir(Path baselineDir) {
+        this.baselineDir = baselineDir;
+        return this;
+    }
+
+    public VisualDiffCli diffDir(Path diffDir) {
+        this.diffDir = diffDir;
+        return this;
+    }
+
+    /** Threshold, tolerance and tile settings; ignore regions set here are not used offline. */
+    public VisualCompareOptions options() {
+        return options;
+    }
+
+    /** Ignores a region (screenshot pixels) in every capture whose name matches the glob. */
+    public VisualDiffCli ignore(String nameGlob, Rectangle region) {
+        ignoreRules.add(new IgnoreRule(matcher(nameGlob), region));
+        return this;
+    }
+
+    public VisualDiffCli include(String nameGlob) {
+        this.include = matcher(nameGlob);
+        return this;
+    }
+
+    public VisualDiffCli accept(String nameGlob) {
+        this.accept = matcher(nameGlob);
+        return this;
+    }
+
+    public VisualDiffCli threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Compares every capture, writes diff images and the summary, and returns the outcomes,
+     * failures first.
+     */
+    public List<Outcome> run() throws IOException {
+        long start = System.nanoTime();
+        List<Path> captures;
+        try (Stream<Path> files = Files.list(actualDir)) {
+            captures = files.filter(file -> file.getFileName().toString().endsWith(".png"))
+                .filter(file -> include == null || include.matches(Paths.get(nameOf(file))))
+                .sorted()
+                .toList();
+        }
+        Files.createDirectories(diffDir);
+        log.info("Re-diffing {} captures from {} against {} on {} threads", captures.size(), actualDir, baselineDir, threads);
+
+        List<Outcome> outcomes = new ArrayList<>(captures.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>(captures.size());
+            for (Path capture : captures) {
+                futures.add(executor.submit(() -> process(capture)));
+            }
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while comparing captures", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Comparison failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        // Diff images and baseline raster sidecars are written on the pipeline
+        ArtifactPipeline.flush(Duration.ofSeconds(60));
+
+        outcomes.sort(Comparator.comparing(Outcome::status)
+            .thenComparing(Comparator.comparingDouble(Outcome::diffPercentage).reversed())
+            .thenComparing(Outcome::name));
+        Path summary = diffDir.resolve(SUMMARY_FILE);
+        writeSummary(summary, outcomes, Duration.ofNanos(System.nanoTime() - start));
+
+        Map<Status, Integer> counts = countByStatus(outcomes);
+        log.info("Visual re-diff finished in {} ms: {} passed, {} failed, {} new, {} accepted, {} errors. Summary: {}",
+            (System.nanoTime() - start) / 1_000_000, counts.get(Status.PASSED), counts.get(Status.FAILED),
+            counts.get(Status.NEW), counts.get(Status.ACCEPTED), counts.get(Status.ERROR), summary);
+        return outcomes;
+    }
+
+    private Outcome process(Path capture) {
+        String name = nameOf(capture);
+        long start = System.nanoTime();
+        try {
+            byte[] png = Files.readAllBytes(capture);
+            BufferedImage actual = ScreenshotEncoder.decode(png);
+            TileHashes tiles = TileHashes.of(actual, options.getTileSize());
+            BaselineIndex index = BaselineIndex.open(baselineDir);
+            BaselineIndex.Key key = BaselineIndex.Key.parse(name);
+            Path baseline = index.resolve(key);
+            if (baseline == null && key.browser().isEmpty() && Files.exists(baselineDir.resolve(name + ".png"))) {
+                baseline = baselineDir.resolve(name + ".png"); // unkeyed capture and baseline
+            }
+            boolean accepting = accept != null && accept.matches(Paths.get(name));
+
+            if (baseline == null) {
+                if (accepting) {
+                    index.store(key, png, actual, tiles);
+                    return outcome(name, Status.ACCEPTED, -1, "New baseline", start);
+                }
+                BaselineIndex.Match other = index.otherViewport(key, PerceptualHash.of(actual));
+                if (other != null) {
+                    return outcome(name, Status.FAILED, -1, "Size changed, baseline is " + other.entry().key().stem(), start);
+                }
+                return outcome(name, Status.NEW, -1, "No baseline", start);
+            }
+
+            List<Rectangle> regions = new ArrayList<>(VisualCompareOptions.readResolvedRegions(capture));
+            for (IgnoreRule rule : ignoreRules) {
+                if (rule.names() == null || rule.names().matches(Paths.get(name))) {
+                    regions.add(rule.region());
+                }
+            }
+            ImageComparator.Result result = ImageComparator.compareToBaseline(baseline, actual, tiles, regions, options);
+            String detail = result.sameSize() ? regions.size() + " ignore regions" : "Size differs from baseline";
+            if (result.matches(options.getMaxDiffPercentage())) {
+                return outcome(name, Status.PASSED, result.diffPercentage(), detail, start);
+            }
+            if (accepting) {
+                index.store(key, png, actual, tiles);
+                Files.deleteIfExists(diffDir.resolve(name + "_diff.png"));
+                return outcome(name, Status.ACCEPTED, result.diffPercentage(), "Replaced baseline", start);
+            }
+            ByteArrayOutputStream diffPng = new ByteArrayOutputStream();
+            ImageIO.write(result.diffImage(), "PNG", diffPng);
+            ArtifactPipeline.writeFile(diffDir.resolve(name + "_diff.png"), diffPng.toByteArray());
+            return outcome(name, Status.FAILED, result.diffPercentage(), detail, start);
+        } catch (Exception e) {
+            log.error("Could not compare '{}': {}", name, e.getMessage());
+            return outcome(name, Status.ERROR, -1, String.valueOf(e.getMessage()), start);
+        }
+    }
+
+    private static Outcome outcome(String name, Status status, double diffPercentage, String detail, long start) {
+        return new Outcome(name, status, diffPercentage, detail, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void writeSummary(Path summary, List<Outcome> outcomes, Duration elapsed) throws IOException {
+        Map<Status, Integer> counts = countByStatus(outcomes);
+        try (Writer out = Files.newBufferedWriter(summary, StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Visual Re-diff Summary</title><style>"
+                + "body{font-family:Arial,sans-serif;margin:20px}table{border-collapse:collapse;width:100%}"
+                + "th,td{border:1px solid #ddd;padding:6px 10px;text-align:left}th{background:#f2f2f2}"
+                + ".FAILED,.ERROR{color:#c62828;font-weight:bold}.PASSED{color:#2e7d32}.NEW,.ACCEPTED{color:#1565c0}"
+                + "</style></head><body>\n");
+            out.write("<h2>Visual Re-diff Summary</h2>\n<p>");
+            out.write(escape(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))));
+            out.write(" &middot; " + outcomes.size() + " captures in " + elapsed.toMillis() + " ms &middot; threshold "
+                + String.format("%.2f", options.getMaxDiffPercentage()) + "%, tolerance " + options.getPixelTolerance()
+                + ", tile " + options.getTileSize() + "px" + (options.isTileHashing() ? "" : ", full scan") + "</p>\n<p>");
+            for (Status status : Status.values()) {
+                out.write("<span class=\"" + status + "\">" + status + ": " + counts.get(status) + "</span> &nbsp; ");
+            }
+            out.write("</p>\n<table><tr><th>Capture</th><th>Status</th><th>Pixels differing</th><th>Details</th>"
+                + "<th>Time</th></tr>\n");
+            for (Outcome outcome : outcomes) {
+                String name = escape(outcome.name());
+                String capture = outcome.status() == Status.FAILED
+                    ? "<a href=\"" + name + "_diff.png\">" + name + "</a>" : name;
+                out.write("<tr><td>" + capture + "</td><td class=\"" + outcome.status() + "\">" + outcome.status()
+                    + "</td><td>" + (outcome.diffPercentage() < 0 ? "-" : String.format("%.3f%%", outcome.diffPercentage()))
+                    + "</td><td>" + escape(outcome.detail()) + "</td><td>" + outcome.millis() + " ms</td></tr>\n");
+            }
+            out.write("</table></body></html>\n");
+        }
+    }
+
+    private static Map<Status, Integer> countByStatus(List<Outcome> outcomes) {
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0);
+        }
+        outcomes.forEach(outcome -> counts.merge(outcome.status(), 1, Integer::sum));
+        return counts;
+    }
+
+    private static String nameOf(Path capture) {
+        String fileName = capture.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ".png".length());
+    }
+
+    private static PathMatcher matcher(String glob) {
+        return glob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * CLI entry point. See the class documentation for arguments.
+     */
+    public static void main(String[] args) throws IOException {
+        VisualDiffCli cli = new VisualDiffCli();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--full-scan")) {
+                    cli.options().fullScan();
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--actual" -> cli.actualDir(Paths.get(value));
+                    case "--baselines" -> cli.baselineDir(Paths.get(value));
+                    case "--diff" -> cli.diffDir(Paths.get(value));
+                    case "--threshold" -> cli.options().maxDiffPercentage(Double.parseDouble(value));
+                    case "--tolerance" -> cli.options().pixelTolerance(Integer.parseInt(value));
+                    case "--tile" -> cli.options().tileSize(Integer.parseInt(value));
+                    case "--ignore" -> {
+                        int colon = value.lastIndexOf(':');
+                        cli.ignore(colon > 0 ? value.substring(0, colon) : null,
+                            VisualCompareOptions.parseRegion(value.substring(colon + 1)));
+                    }
+                    case "--include" -> cli.include(value);
+                    case "--accept" -> cli.accept(value);
+                    case "--threads" -> cli.threads(Integer.parseInt(value));
+                    default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: VisualDiffCli [--actual DIR] [--baselines DIR] [--diff DIR] [--threshold PCT] "
+                + "[--tolerance N] [--tile N] [--full-scan] [--ignore [GLOB:]x,y,width,height] [--include GLOB] "
+                + "[--accept GLOB] [--threads N]");
+            System.exit(2);
+        }
+
+        List<Outcome> outcomes = cli.run();
+        boolean failed = outcomes.stream().anyMatch(o -> o.status() == Status.FAILED || o.status() == Status.ERROR);
+        System.exit(failed ? 1 : 0);
+    }
+}
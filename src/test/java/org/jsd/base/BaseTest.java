@@ -9,6 +9,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jsd.utils.ConfigReader;
 
+import java.lang.reflect.Method;
+
 /**
  * Base test class that provides common setup and teardown functionality
  * for all test classes in the framework.
@@ -25,7 +27,12 @@ import org.jsd.utils.ConfigReader;
  * @version 1.0
  */
 public class BaseTest {
-    /** WebDriver instance shared across test methods */
+    /**
+     * WebDriver instance shared across test methods.
+     * Rows of a {@link ParallelRows} data provider share this test instance concurrently,
+     * so their sessions are only bound to the row's thread and this field is left untouched;
+     * such tests must use {@link #getDriver()}.
+     */
     protected WebDriver driver;
     
     /** Logger instance for this class */
@@ -35,22 +42,31 @@ public class BaseTest {
      * Sets up the test environment before each test method execution.
      * 
      * This method:
-     * 1. Creates a WebDriver instance based on the specified browser
+     * 1. Creates a WebDriver instance based on the specified browser, or leases a
+     *    pooled session when the test is fed by a {@link ParallelRows} data provider
      * 2. Navigates to the base URL from configuration
      * 3. Logs the setup process for debugging
      * 
      * @param browser The browser type (chrome, firefox, edge) passed from TestNG XML
      *                Defaults to "chrome" if not specified
+     * @param method The test method about to run (injected by TestNG)
      */
     @BeforeMethod
     @Parameters({"browser"})
-    public void setUp(@Optional("chrome") String browser) {
+    public void setUp(@Optional("chrome") String browser, Method method) {
         try {
-            // Initialize WebDriver using DriverFactory
-            driver = DriverFactory.getDriver(browser);
+            // Initialize WebDriver using DriverFactory; a leased session stays thread-bound
+            // because parallel rows would overwrite each other's field
+            WebDriver session;
+            if (ParallelRowsSupport.isParallelRows(method)) {
+                session = DriverFactory.leaseDriver(browser);
+            } else {
+                session = DriverFactory.getDriver(browser);
+                driver = session;
+            }
             
             // Navigate to base URL from configuration
-            driver.get(ConfigReader.getProperty("base.url"));
+            session.get(ConfigReader.getProperty("base.url"));
             log.info("Driver initialized successfully for browser: {}", browser);
         } catch (Exception e) {
             log.error("Failed to initialize driver for browser: {}", browser, e);
@@ -62,11 +78,13 @@ public class BaseTest {
      * Cleans up resources after each test method execution.
      * 
      * This method:
-     * 1. Closes the browser window
+     * 1. Closes the browser window (or returns a leased session to its pool)
      * 2. Terminates the WebDriver session
      * 3. Releases system resources and thread-local variables
+     * 
+     * Runs even when setUp failed, so a session leased before the failure goes back to its pool.
      */
-    @AfterMethod
+    @AfterMethod(alwaysRun = true)
     public void tearDown() {
         try {
             // Quit driver and clean up thread-local variables
@@ -81,9 +99,13 @@ public class BaseTest {
     /**
      * Provides access to the WebDriver instance for test classes.
      * 
+     * Returns the session bound to the calling thread, which stays correct when
+     * several data rows of this instance run in parallel.
+     * 
      * @return The current WebDriver instance
      */
     public WebDriver getDriver() {
-        return driver;
+        WebDriver current = DriverFactory.getCurrentDriver();
+        return current != null ? current : driver;
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package org.jsd.base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a @DataProvider whose rows run in parallel on pooled browser sessions.
+ * 
+ * For every test method fed by the annotated provider:
+ * - rows run concurrently, at most driver.pool.size at a time (see DriverPool)
+ * - each row leases a browser session in BaseTest.setUp and returns it in tearDown
+ * - results are labelled with their row index so reports keep the dataset order
+ * 
+ * No testng.xml tuning is needed: RetryListener marks the provider parallel and
+ * ParallelRowsListener sizes the data provider thread pool to the driver pool.
+ * 
+ * Example usage:
+ * &#64;ParallelRows
+ * &#64;DataProvider(name = "loginData")
+ * public Object[][] getLoginData() { ... }
+ * 
+ * @author JSD Framework Team
+ * @version 1.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ParallelRows {
+}
@@ -0,0 +1,46 @@
+package org.jsd.base;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves whether a test method is fed by a {@link ParallelRows} data provider.
+ * The lookup walks annotations once per method and is cached afterwards.
+ */
+public final class ParallelRowsSupport {
+    private static final Map<Method, Boolean> cache = new ConcurrentHashMap<>();
+
+    private ParallelRowsSupport() {
+    }
+
+    public static boolean isParallelRows(Method testMethod) {
+        return testMethod != null && cache.computeIfAbsent(testMethod, ParallelRowsSupport::resolve);
+    }
+
+    private static boolean resolve(Method testMethod) {
+        Test test = testMethod.getAnnotation(Test.class);
+        if (test == null || test.dataProvider().isEmpty()) {
+            return false;
+        }
+
+        Class<?> providerClass = test.dataProviderClass() != Object.class
+            ? test.dataProviderClass() : testMethod.getDeclaringClass();
+        for (Class<?> c = providerClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method candidate : c.getDeclaredMethods()) {
+                DataProvider provider = candidate.getAnnotation(DataProvider.class);
+                if (provider == null) {
+                    continue;
+                }
+                String name = provider.name().isEmpty() ? candidate.getName() : provider.name();
+                if (name.equals(test.dataProvider())) {
+                    return candidate.isAnnotationPresent(ParallelRows.class);
+                }
+            }
+        }
+        return false;
+    }
+}
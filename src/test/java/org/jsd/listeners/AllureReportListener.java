@@ -1,16 +1,21 @@
 package org.jsd.listeners;
 
-import io.qameta.allure.Allure;
-import io.qameta.allure.Attachment;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.openqa.selenium.OutputType;
-import org.openqa.selenium.TakesScreenshot;
+import org.jsd.utils.ArtifactPipeline;
+import org.jsd.utils.ArtifactStore;
+import org.jsd.utils.BaselineStore;
+import org.jsd.utils.CapturePolicy;
+import org.jsd.utils.FailureArtifactBroker;
+import org.jsd.utils.FailureArtifacts;
+import org.jsd.utils.ResultsJournal;
 import org.openqa.selenium.WebDriver;
 import org.testng.*;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 
 public class AllureReportListener implements ISuiteListener, ITestListener {
     private static final Logger log = LogManager.getLogger(AllureReportListener.class);
@@ -34,92 +39,51 @@ public class AllureReportListener implements ISuiteListener, ITestListener {
     
     @Override
     public void onTestSkipped(ITestResult result) {
-        log.info("Test skipped: {}, capturing screenshot...", result.getMethod().getMethodName());
-        captureScreenshot(result, "Skipped Test Screenshot");
+        // A plain skip never ran the test body; only a failed attempt that is retried has failure artifacts
+        if (!result.wasRetried()) {
+            return;
+        }
+        log.info("Test attempt failed and will be retried: {}, capturing screenshot...", result.getMethod().getMethodName());
+        captureScreenshot(result, "Retried Attempt Screenshot");
     }
     
     private void captureScreenshot(ITestResult result, String screenshotName) {
         WebDriver driver = getDriverFromTest(result);
         
-        if (driver != null) {
-            try {
-                byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-                String attachmentName = screenshotName + "-" + System.currentTimeMillis();
-                Allure.getLifecycle().addAttachment(attachmentName, "image/png", "png", screenshot);
-                log.info("Screenshot captured and attached to Allure report");
-            } catch (Exception e) {
-                log.warn("Failed to capture screenshot: {}", e.getMessage());
-            }
-        } else {
-            log.warn("WebDriver is null, cannot capture screenshot for test: {}", result.getMethod().getMethodName());
+        // The broker captures once per invocation and attaches to Allure; other listeners reuse it
+        FailureArtifacts artifacts = FailureArtifactBroker.capture(
+            TestResultSupport.testKey(result), TestResultSupport.testName(result), driver);
+        if (artifacts != null) {
+            log.info("{} captured and attached to Allure report", screenshotName);
         }
     }
     
     private WebDriver getDriverFromTest(ITestResult result) {
-        WebDriver driver = null;
-        
-        try {
-            // Method 1: Try to get driver from test instance (assuming public WebDriver driver field)
-            Object testInstance = result.getInstance();
-            if (testInstance != null) {
-                // Try public field first
-                try {
-                    Field driverField = testInstance.getClass().getField("driver");
-                    driver = (WebDriver) driverField.get(testInstance);
-                    if (driver != null) {
-                        log.debug("Driver obtained from public field");
-                        return driver;
-                    }
-                } catch (NoSuchFieldException | IllegalAccessException e) {
-                    // Field doesn't exist or not accessible, try other methods
-                }
-                
-                // Method 2: Try BaseTest getDriver() method
-                if (testInstance instanceof org.jsd.base.BaseTest) {
-                    org.jsd.base.BaseTest baseTest = (org.jsd.base.BaseTest) testInstance;
-                    driver = baseTest.getDriver();
-                    if (driver != null) {
-                        log.debug("Driver obtained from BaseTest.getDriver()");
-                        return driver;
-                    }
-                }
-                
-                // Method 3: Try reflection to find any WebDriver field
-                Field[] fields = testInstance.getClass().getDeclaredFields();
-                for (Field field : fields) {
-                    if (WebDriver.class.isAssignableFrom(field.getType())) {
-                        field.setAccessible(true);
-                        driver = (WebDriver) field.get(testInstance);
-                        if (driver != null) {
-                            log.debug("Driver obtained from private field: {}", field.getName());
-                            return driver;
-                        }
-                    }
-                }
-            }
-            
-            // Method 4: Use static driver if set
-            if (staticDriver != null) {
-                log.debug("Using static driver set via setDriver()");
-                return staticDriver;
-            }
-            
-        } catch (Exception e) {
-            log.warn("Error while trying to get WebDriver: {}", e.getMessage());
+        WebDriver driver = TestResultSupport.findDriver(result);
+        if (driver == null && staticDriver != null) {
+            // Use static driver if set
+            log.debug("Using static driver set via setDriver()");
+            return staticDriver;
         }
-        
-        return null;
+        return driver;
     }
     
-    @Attachment(value = "{screenshotName}", type = "image/png")
-    private byte[] attachScreenshot(byte[] screenshot, String screenshotName) {
-        return screenshot;
+    @Override
+    public void onStart(ISuite suite) {
+        // capture.* suite parameters select the screenshot policy for this suite
+        CapturePolicy.applySuiteParameters(suite.getXmlSuite().getParameters());
     }
     
     @Override
     public void onFinish(ISuite suite) {
         log.info("Test suite '{}' finished. Generating Allure report...", suite.getName());
         
+        // Attachments are written asynchronously; the report must not be generated before they exist
+        ArtifactPipeline.flush(Duration.ofSeconds(60));
+        ArtifactStore.logSummary();
+        BaselineStore.logSummary();
+        logJournalSummary(suite);
+        
         try {
             // Generate and open Allure report automatically
             generateAllureReport();
@@ -128,6 +92,23 @@ public class AllureReportListener implements ISuiteListener, ITestListener {
         }
     }
     
+    /** Outcome counts of the suite, read from the results journal written during the run. */
+    private void logJournalSummary(ISuite suite) {
+        ResultsJournal journal = ResultsJournal.getDefault();
+        journal.flush(Duration.ofSeconds(30));
+        try {
+            Map<ResultsJournal.Status, Long> counts = new EnumMap<>(ResultsJournal.Status.class);
+            for (ResultsJournal.Entry entry : ResultsJournal.read(journal.getFile())) {
+                if (entry.suite().equals(suite.getName())) {
+                    counts.merge(entry.status(), 1L, Long::sum);
+                }
+            }
+            log.info("Results journal {}: {} ({})", journal.getFile(), counts, journal.getMetrics());
+        } catch (IOException e) {
+            log.warn("Cannot read results journal {}: {}", journal.getFile(), e.getMessage());
+        }
+    }
+    
     private void generateAllureReport() throws IOException, InterruptedException {
         log.info("Generating Allure report...");
         
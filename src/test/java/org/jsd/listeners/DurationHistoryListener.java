@@ -0,0 +1,79 @@
+package org.jsd.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsd.utils.DurationHistory;
+import org.jsd.utils.ResultsJournal;
+import org.jsd.utils.ResultsMerger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the final results of each suite in the {@link DurationHistory} and logs the tests
+ * that ran noticeably slower than usual.
+ *
+ * Results are read back from the {@link ResultsJournal}; in a merged run ResultsMerger records
+ * the merged results instead.
+ *
+ * Registered through META-INF/services.
+ */
+public class DurationHistoryListener implements ISuiteListener {
+    private static final Logger log = LogManager.getLogger(DurationHistoryListener.class);
+
+    /** A test is reported as slower when its run took this many times its usual (median) duration */
+    private static final double SLOWDOWN_FACTOR = 1.5;
+    private static final int SLOWDOWN_MIN_RUNS = 5;
+
+    private static final Map<String, Long> suiteStartMillis = new ConcurrentHashMap<>();
+
+    @Override
+    public void onStart(ISuite suite) {
+        suiteStartMillis.put(suite.getName(), System.currentTimeMillis());
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!DurationHistory.isEnabled() || ResultsMerger.isEnabled()) {
+            return;
+        }
+        try {
+            ResultsJournal journal = ResultsJournal.getDefault();
+            journal.flush(Duration.ofSeconds(30));
+            long startMillis = suiteStartMillis.getOrDefault(suite.getName(), 0L);
+            List<ResultsJournal.Entry> results = new ArrayList<>();
+            ResultsJournal.forEach(journal.getFile(), entry -> {
+                if (entry.suite().equals(suite.getName()) && entry.startMillis() >= startMillis) {
+                    results.add(entry);
+                }
+            });
+
+            DurationHistory history = DurationHistory.getDefault();
+            history.record(results);
+            history.compactIfDue();
+            logSlowdowns(history, results);
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Duration history not updated for suite '{}': {}", suite.getName(), e.getMessage());
+        }
+    }
+
+    private static void logSlowdowns(DurationHistory history, List<ResultsJournal.Entry> results) {
+        Set<String> ran = new HashSet<>();
+        results.forEach(entry -> ran.add(entry.testId()));
+        for (DurationHistory.Summary summary : history.slowdowns(SLOWDOWN_FACTOR, SLOWDOWN_MIN_RUNS)) {
+            if (ran.contains(summary.testId())) {
+                List<DurationHistory.Sample> recent = summary.recent();
+                log.warn("Slower than usual: {} took {} ms, median {} ms over the last {} runs", summary.testId(),
+                    recent.get(recent.size() - 1).durationMillis(), summary.p50(), recent.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.jsd.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsd.utils.DataSharder;
+import org.jsd.utils.FailureArtifactBroker;
+import org.jsd.utils.FailureArtifacts;
+import org.jsd.utils.ResultsJournal;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes every finished test invocation to the {@link ResultsJournal} as it happens.
+ *
+ * Failures share the broker's single capture, so the journal entry references the same stored
+ * screenshot as the Allure attachment and the email. Retried attempts are journaled as RETRIED
+ * with their attempt number; the final attempt carries the outcome.
+ *
+ * Registered through META-INF/services.
+ */
+public class JournalListener implements ITestListener {
+    private static final Logger log = LogManager.getLogger(JournalListener.class);
+
+    /** Attempts seen so far per test id (suite, test, class, method and row) */
+    private static final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result, ResultsJournal.Status.PASSED);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result, ResultsJournal.Status.FAILED);
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        record(result, ResultsJournal.Status.PASSED);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        record(result, result.wasRetried() ? ResultsJournal.Status.RETRIED : ResultsJournal.Status.SKIPPED);
+    }
+
+    private void record(ITestResult result, ResultsJournal.Status status) {
+        String testKey = TestResultSupport.testKey(result);
+        String testName = TestResultSupport.testName(result);
+
+        FailureArtifacts artifacts = status == ResultsJournal.Status.FAILED || status == ResultsJournal.Status.RETRIED
+            ? FailureArtifactBroker.capture(testKey, testName, TestResultSupport.findDriver(result))
+            : FailureArtifactBroker.get(testKey);
+        List<String> artifactPaths = artifacts != null && artifacts.getScreenshotPath() != null
+            ? List.of(artifacts.getScreenshotPath()) : List.of();
+
+        String suite = result.getTestContext().getSuite().getName();
+        String test = result.getTestContext().getName();
+        String className = result.getTestClass().getName();
+        String method = result.getMethod().getMethodName();
+        int row = ParallelRowsListener.getRowIndex(result);
+        int datasetRow = ParallelRowsListener.getDatasetRowIndex(result);
+        int attempt = attempts.merge(ResultsJournal.testId(suite, test, className, method, datasetRow), 1,
+            Integer::sum);
+
+        String error = result.getThrowable() != null ? String.valueOf(result.getThrowable().getMessage()) : null;
+        ResultsJournal.getDefault().append(new ResultsJournal.Entry(suite, test, className, method, row, datasetRow,
+            testName, status, result.getStartMillis(), result.getEndMillis(), attempt,
+            Thread.currentThread().getName(), error, artifactPaths, DataSharder.isSharded() ? DataSharder.getShardLabel() : null));
+        log.debug("Journaled {} attempt {}: {}", testName, attempt, status);
+    }
+}
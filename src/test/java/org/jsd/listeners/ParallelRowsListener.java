@@ -0,0 +1,217 @@
+package org.jsd.listeners;
+
+import io.qameta.allure.listener.TestLifecycleListener;
+import io.qameta.allure.model.Parameter;
+import io.qameta.allure.model.TestResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsd.base.DriverPool;
+import org.jsd.base.ParallelRowsSupport;
+import org.jsd.utils.DataSharder;
+import org.testng.IAlterSuiteListener;
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runtime support for {@link org.jsd.base.ParallelRows} data providers.
+ * 
+ * - Sizes the data provider thread pool to the driver pool, so rows never wait on threads
+ *   and never start more browsers than the pool allows
+ * - Labels every row result with its data provider index (result attribute "row.index",
+ *   Allure name suffix and "Row" parameter) so reports keep the dataset order even though
+ *   rows finish out of order. TestNG 7.8 has no public row index on ITestResult, so the rows
+ *   are numbered as the data provider hands them out (IDataProviderInterceptor)
+ * - Keeps the dataset row of sharded rows (see DataSharder), so reports and the results
+ *   journal name rows the same in every shard
+ * - Quits all pooled sessions when the suite finishes
+ * 
+ * Registered through META-INF/services for both TestNG and the Allure lifecycle.
+ */
+public class ParallelRowsListener implements IAlterSuiteListener, ISuiteListener, ITestListener, TestLifecycleListener,
+        IDataProviderInterceptor {
+    private static final Logger log = LogManager.getLogger(ParallelRowsListener.class);
+    public static final String ROW_INDEX_ATTRIBUTE = "row.index";
+    public static final String DATASET_ROW_ATTRIBUTE = "dataset.row.index";
+    
+    /** Row index of the test running on this thread, read back by the Allure lifecycle callback */
+    private static final ThreadLocal<Integer> currentRow = new ThreadLocal<>();
+    
+    /** Rows handed out by each data provider, per test context and method, in dataset order */
+    private static final Map<String, ProvidedRows> providedRows = new ConcurrentHashMap<>();
+    
+    /**
+     * Rows of one data provider call; datasetRows holds the dataset index of each row, -1 when
+     * not sharded, and is guarded by the rows lock. claimed marks rows already matched to a result.
+     */
+    private record ProvidedRows(List<Object[]> rows, List<Integer> datasetRows, Set<Integer> claimed) { }
+    
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            Set<String> browsers = new HashSet<>();
+            for (XmlTest test : suite.getTests()) {
+                browsers.add(test.getAllParameters().getOrDefault("browser", "chrome"));
+            }
+            int threads = DriverPool.getMaxPoolSize(browsers);
+            suite.setDataProviderThreadCount(threads);
+            log.info("Data provider thread count for suite '{}' set to driver pool size: {}", suite.getName(), threads);
+        }
+    }
+    
+    @Override
+    public Iterator<Object[]> intercept(Iterator<Object[]> rows, IDataProviderMethod dataProviderMethod,
+                                        ITestNGMethod method, ITestContext context) {
+        // Rows are recorded as TestNG pulls them, so lazy (Iterator) providers stay lazy
+        ProvidedRows provided = new ProvidedRows(Collections.synchronizedList(new ArrayList<>()), new ArrayList<>(),
+            ConcurrentHashMap.newKeySet());
+        providedRows.put(rowsKey(context, method), provided);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+            
+            @Override
+            public Object[] next() {
+                Object[] row = rows.next();
+                synchronized (provided.rows()) {
+                    provided.rows().add(row);
+                    provided.datasetRows().add(DataSharder.takeDatasetRow(row));
+                }
+                return row;
+            }
+        };
+    }
+    
+    @Override
+    public void onTestStart(ITestResult result) {
+        int rowIndex = getDatasetRowIndex(result);
+        if (rowIndex >= 0 && ParallelRowsSupport.isParallelRows(result.getMethod().getConstructorOrMethod().getMethod())) {
+            currentRow.set(rowIndex);
+        } else {
+            currentRow.remove();
+        }
+    }
+    
+    @Override
+    public void beforeTestStop(TestResult result) {
+        Integer rowIndex = currentRow.get();
+        if (rowIndex != null) {
+            // Zero-padded so Allure's name ordering matches the dataset order
+            result.setName(String.format("%s [row %04d]", result.getName(), rowIndex));
+            result.getParameters().add(new Parameter().setName("Row").setValue(String.valueOf(rowIndex)));
+            currentRow.remove();
+        }
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        DriverPool.shutdownAll();
+        providedRows.clear();
+        DataSharder.clearDatasetRows();
+    }
+    
+    /**
+     * Index of the data provider row that produced this result, or -1 for non data-driven tests.
+     */
+    public static int getRowIndex(ITestResult result) {
+        Object attribute = result.getAttribute(ROW_INDEX_ATTRIBUTE);
+        if (attribute instanceof Integer index) {
+            return index;
+        }
+        ProvidedRows provided = result.getParameters().length > 0
+            ? providedRows.get(rowsKey(result.getTestContext(), result.getMethod())) : null;
+        if (provided == null) {
+            return -1;
+        }
+        int rowIndex = matchRow(provided, result.getParameters());
+        if (rowIndex >= 0) {
+            // Cached on the result, so every listener sees the same index for this invocation
+            result.setAttribute(ROW_INDEX_ATTRIBUTE, rowIndex);
+        }
+        return rowIndex;
+    }
+    
+    /**
+     * Index of the row in the whole dataset, or -1 for non data-driven tests. Differs from
+     * getRowIndex only for sharded data, whose provider rows are numbered within the shard.
+     */
+    public static int getDatasetRowIndex(ITestResult result) {
+        Object attribute = result.getAttribute(DATASET_ROW_ATTRIBUTE);
+        if (attribute instanceof Integer index) {
+            return index;
+        }
+        int rowIndex = getRowIndex(result);
+        if (rowIndex < 0) {
+            return rowIndex;
+        }
+        ProvidedRows provided = providedRows.get(rowsKey(result.getTestContext(), result.getMethod()));
+        int datasetRow = -1;
+        if (provided != null) {
+            synchronized (provided.rows()) {
+                if (rowIndex < provided.datasetRows().size()) {
+                    datasetRow = provided.datasetRows().get(rowIndex);
+                }
+            }
+        }
+        int index = datasetRow >= 0 ? datasetRow : rowIndex;
+        result.setAttribute(DATASET_ROW_ATTRIBUTE, index);
+        return index;
+    }
+    
+    /**
+     * Finds the row whose values are the very objects passed to the test; TestNG copies the row
+     * array (and appends injected parameters) but not its values. Rows holding the same objects
+     * (interned literals) are told apart by taking the first one not matched yet.
+     */
+    private static int matchRow(ProvidedRows provided, Object[] parameters) {
+        int firstMatch = -1;
+        synchronized (provided.rows()) {
+            for (int i = 0; i < provided.rows().size(); i++) {
+                if (sameValues(provided.rows().get(i), parameters)) {
+                    if (provided.claimed().add(i)) {
+                        return i;
+                    }
+                    if (firstMatch < 0) {
+                        firstMatch = i;
+                    }
+                }
+            }
+        }
+        // All matching rows were claimed: a retry of one of them
+        return firstMatch;
+    }
+    
+    private static boolean sameValues(Object[] row, Object[] parameters) {
+        if (row.length > parameters.length) {
+            return false;
+        }
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] != parameters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String rowsKey(ITestContext context, ITestNGMethod method) {
+        return context.getName() + "/" + method.getQualifiedName();
+    }
+}
@@ -0,0 +1,157 @@
+package org.jsd.listeners;
+
+import io.qameta.allure.listener.StepLifecycleListener;
+import io.qameta.allure.model.StepResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsd.base.DriverPool;
+import org.jsd.utils.DurationHistory;
+import org.jsd.utils.ProgressServer;
+import org.jsd.utils.ProgressTracker;
+import org.jsd.utils.ResultsJournal;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+
+/**
+ * Feeds the {@link ProgressTracker} and runs the {@link ProgressServer} while a suite runs,
+ * when progress.server.enabled is set.
+ *
+ * The ETA starts from the durations in the {@link DurationHistory} until tests of this run
+ * finish. Test and step callbacks only bump counters and replace this thread's in-flight
+ * entry; when the endpoint is disabled they return at once.
+ *
+ * Suites running in parallel share the tracker and the endpoint: the first suite to start resets
+ * the counts and starts the server, later ones add their planned tests, and the server stops
+ * when the last running suite finishes.
+ *
+ * Registered through META-INF/services for both TestNG and the Allure step lifecycle.
+ */
+public class ProgressListener implements ISuiteListener, ITestListener, StepLifecycleListener {
+    private static final Logger log = LogManager.getLogger(ProgressListener.class);
+
+    private static ProgressServer server;
+    private static volatile boolean tracking;
+    /** Suites started and not yet finished; guarded by the class lock */
+    private static int activeSuites;
+
+    @Override
+    public void onStart(ISuite suite) {
+        if (!ProgressServer.isEnabled()) {
+            return;
+        }
+        int planned = 0;
+        int known = 0;
+        long knownMillis = 0;
+        DurationHistory history = null;
+        if (DurationHistory.isEnabled()) {
+            try {
+                history = DurationHistory.getDefault();
+            } catch (IllegalStateException e) {
+                log.warn("Duration history unavailable, ETA starts unknown: {}", e.getMessage());
+            }
+        }
+        for (ITestNGMethod method : suite.getAllMethods()) {
+            int invocations = Math.max(1, method.getInvocationCount());
+            planned += invocations;
+            long expected = history != null
+                ? history.expectedMillis(method.getTestClass().getName(), method.getMethodName())
+                : -1;
+            if (expected >= 0) {
+                known += invocations;
+                knownMillis += expected * invocations;
+            }
+        }
+        long meanMillis = known == 0 ? -1 : knownMillis / known;
+        synchronized (ProgressListener.class) {
+            if (activeSuites++ > 0) {
+                // Other suites are still running: keep their counts and the endpoint
+                ProgressTracker.addPlanned(planned, meanMillis);
+                return;
+            }
+            ProgressTracker.reset(planned, meanMillis);
+            ProgressTracker.setPoolUsage(() -> DriverPool.getPools().entrySet().stream()
+                .map(pool -> new ProgressTracker.PoolUsage(pool.getKey(), pool.getValue().getSize(),
+                    pool.getValue().getLeasedCount(), pool.getValue().getOpenSessionCount()))
+                .toList());
+            if (server == null) {
+                try {
+                    server = ProgressServer.start(ProgressServer.configuredPort());
+                } catch (IOException e) {
+                    log.warn("Progress endpoint not started: {}", e.getMessage());
+                    return;
+                }
+            }
+            tracking = true;
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!ProgressServer.isEnabled()) {
+            return;
+        }
+        synchronized (ProgressListener.class) {
+            if (activeSuites == 0 || --activeSuites > 0) {
+                return;
+            }
+            tracking = false;
+            if (server != null) {
+                server.close();
+                server = null;
+            }
+        }
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        if (tracking) {
+            ProgressTracker.testStarted(result.getTestClass().getRealClass().getSimpleName() + "."
+                + TestResultSupport.testName(result));
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        finished(result, ResultsJournal.Status.PASSED);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        finished(result, ResultsJournal.Status.FAILED);
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        finished(result, ResultsJournal.Status.PASSED);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        finished(result, result.wasRetried() ? ResultsJournal.Status.RETRIED : ResultsJournal.Status.SKIPPED);
+    }
+
+    private void finished(ITestResult result, ResultsJournal.Status status) {
+        if (tracking) {
+            ProgressTracker.testFinished(status, result.getEndMillis() - result.getStartMillis());
+        }
+    }
+
+    @Override
+    public void beforeStepStart(StepResult result) {
+        if (tracking) {
+            ProgressTracker.stepStarted(result.getName());
+        }
+    }
+
+    @Override
+    public void afterStepStop(StepResult result) {
+        if (tracking) {
+            ProgressTracker.stepFinished();
+        }
+    }
+}
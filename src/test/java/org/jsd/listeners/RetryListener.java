@@ -2,7 +2,9 @@ package org.jsd.listeners;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jsd.base.ParallelRows;
 import org.testng.IAnnotationTransformer;
+import org.testng.annotations.IDataProviderAnnotation;
 import org.testng.annotations.ITestAnnotation;
 
 import java.lang.reflect.Constructor;
@@ -16,4 +18,13 @@ public class RetryListener implements IAnnotationTransformer {
         annotation.setRetryAnalyzer(RetryAnalyzer.class);
         log.debug("Retry analyzer attached to test method: {}", testMethod != null ? testMethod.getName() : "Unknown");
     }
-}
\ No newline at end of file
+    
+    // TestNG keeps a single annotation transformer, so @ParallelRows is handled here as well
+    @Override
+    public void transform(IDataProviderAnnotation annotation, Method method) {
+        if (method != null && method.isAnnotationPresent(ParallelRows.class)) {
+            annotation.setParallel(true);
+            log.debug("Parallel rows enabled for data provider: {}", method.getName());
+        }
+    }
+}
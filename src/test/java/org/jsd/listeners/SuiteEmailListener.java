@@ -1,27 +1,123 @@
 package org.jsd.listeners;
 
+import org.jsd.utils.ArtifactPipeline;
+import org.jsd.utils.AttachmentPlanner;
 import org.jsd.utils.ConfigReader;
 import org.jsd.utils.EmailSender;
+import org.jsd.utils.FailureArtifactBroker;
+import org.jsd.utils.HtmlTemplate;
+import org.jsd.utils.ResultsJournal;
+import org.jsd.utils.ResultsMerger;
 import org.testng.*;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SuiteEmailListener implements ISuiteListener {
-    private LocalDateTime suiteStartTime;
-    private List<String> allTestResults = new ArrayList<>();
-    private List<String> screenshotPaths = new ArrayList<>();
-    private static boolean emailSent = false;
+    // Compiled once; the body is streamed row by row into a spool file that the mail is sent from
+    private static final HtmlTemplate SUITE_EMAIL = HtmlTemplate.compile(
+        "<!DOCTYPE html>" +
+        "<html><head><meta charset='UTF-8'><title>Test Execution Report</title>" +
+        "<style>" +
+        "* { margin: 0; padding: 0; box-sizing: border-box; }" +
+        "body { font-family: -apple-system, BlinkMacSystemFont, 'SF Pro Display', Helvetica, Arial, sans-serif; background: #f5f5f7; line-height: 1.4; font-weight: 400; padding: 20px; color: #1d1d1f; }" +
+        ".container { max-width: 600px; margin: 0 auto; background: #ffffff; border-radius: 12px; box-shadow: 0 4px 20px rgba(0, 0, 0, 0.08); overflow: hidden; position: relative; }" +
+        ".header { background: #ffffff; padding: 60px 25px 30px; text-align: center; position: relative; border-bottom: 1px solid #e5e5e7; }" +
+        ".watermark { position: absolute; top: 15px; left: 15px; display: flex; align-items: center; gap: 6px; font-size: 0.65rem; color: #86868b; }" +
+        ".watermark .avatar { width: 16px; height: 16px; background: linear-gradient(135deg, #007aff, #5856d6); border-radius: 50%; display: flex; align-items: center; justify-content: center; color: white; font-size: 7px; font-weight: bold; }" +
+        ".watermark .name { color: #007aff; font-weight: 600; }" +
+        ".header h1 { font-size: 1.8rem; font-weight: 700; color: #1d1d1f; margin-bottom: 8px; letter-spacing: -0.02em; }" +
+        ".header .subtitle { font-size: 0.9rem; color: #86868b; font-weight: 400; }" +
+        ".summary { display: grid; grid-template-columns: repeat(4, 1fr); padding: 25px; gap: 15px; background: #fbfbfd; }" +
+        ".metric { background: #ffffff; padding: 20px 15px; border-radius: 10px; text-align: center; border: 1px solid #e5e5e7; }" +
+        ".metric .icon { font-size: 1.2rem; margin-bottom: 8px; }" +
+        ".metric h3 { font-size: 1.8rem; font-weight: 700; color: #1d1d1f; margin-bottom: 4px; }" +
+        ".metric p { font-size: 0.75rem; color: #86868b; font-weight: 600; text-transform: uppercase; letter-spacing: 0.5px; }" +
+        ".progress-section { padding: 20px 25px; background: #fbfbfd; border-top: 1px solid #e5e5e7; }" +
+        ".progress-label { font-size: 0.9rem; font-weight: 600; color: #1d1d1f; margin-bottom: 10px; text-align: center; }" +
+        ".progress-bar { height: 6px; background: #e5e5e7; border-radius: 3px; overflow: hidden; }" +
+        ".progress-fill { height: 100%; background: #34c759; width: {{successRate}}%; border-radius: 3px; }" +
+        ".details { padding: 25px; background: #ffffff; }" +
+        ".detail-row { display: flex; justify-content: space-between; align-items: center; padding: 10px 0; border-bottom: 1px solid #f2f2f2; }" +
+        ".detail-row:last-child { border-bottom: none; }" +
+        ".detail-row .label { font-size: 0.85rem; color: #86868b; font-weight: 500; }" +
+        ".detail-row .value { font-size: 0.9rem; color: #1d1d1f; font-weight: 600; }" +
+        ".test-results { padding: 25px; background: #ffffff; border-top: 1px solid #e5e5e7; }" +
+        ".test-results h3 { font-size: 1.1rem; font-weight: 600; color: #1d1d1f; margin-bottom: 15px; }" +
+        ".test-item { padding: 8px 0; font-size: 0.85rem; border-bottom: 1px solid #f2f2f2; }" +
+        ".test-item:last-child { border-bottom: none; }" +
+        ".shots { display: flex; flex-wrap: wrap; gap: 10px; }" +
+        ".shot { width: 170px; font-size: 0.75rem; color: #86868b; word-break: break-all; }" +
+        ".shot img { width: 100%; border: 1px solid #e5e5e7; border-radius: 6px; }" +
+        ".note { font-size: 0.8rem; color: #86868b; padding: 4px 0; }" +
+        ".footer { background: #1d1d1f; color: #f5f5f7; padding: 20px 25px; text-align: center; }" +
+        ".footer p { font-size: 0.8rem; color: #a1a1a6; margin: 4px 0; }" +
+        ".footer .highlight { color: #007aff; font-weight: 600; }" +
+        "</style></head><body>" +
+        "<div class='container'>" +
+        "<div class='header'>" +
+        "<h1>⚡ Test Suite Report</h1>" +
+        "<p class='subtitle'>{{date}} • {{executionTime}} • {{successRate}}% Success</p>" +
+        "</div>" +
+        "<div class='summary'>" +
+        "<div class='metric'><div class='icon'>📋</div><h3>{{total}}</h3><p>Total</p></div>" +
+        "<div class='metric'><div class='icon'>✓</div><h3>{{passed}}</h3><p>Passed</p></div>" +
+        "<div class='metric'><div class='icon'>✕</div><h3>{{failed}}</h3><p>Failed</p></div>" +
+        "<div class='metric'><div class='icon'>⏸</div><h3>{{skipped}}</h3><p>Skipped</p></div>" +
+        "</div>" +
+        "<div class='progress-section'>" +
+        "<div class='progress-label'>Success Rate: {{successRate}}%</div>" +
+        "<div class='progress-bar'><div class='progress-fill'></div></div>" +
+        "</div>" +
+        "<div class='details'>" +
+        "<div class='detail-row'><span class='label'>Environment</span><span class='value'>Local</span></div>" +
+        "<div class='detail-row'><span class='label'>Browser</span><span class='value'>Chrome/Edge</span></div>" +
+        "<div class='detail-row'><span class='label'>Framework</span><span class='value'>JSD Automation</span></div>" +
+        "</div>" +
+        "<div class='test-results'>" +
+        "<h3>📋 Complete Test Results</h3>" +
+        "{{results}}" +
+        "</div>" +
+        "{{screenshots}}" +
+        "<div class='footer'>" +
+        "<p>Automated report by <span class='highlight'>JSD Framework</span></p>" +
+        "<p>🔗 Built with precision by Nilesh Patil</p>" +
+        "</div>" +
+        "</div></body></html>");
+    
+    private static final HtmlTemplate RESULT_ROW = HtmlTemplate.compile(
+        "<div class='test-item'>{{icon}} {{className}}.{{method}} - {{status}}{{detail}}</div>\n");
+    
+    private static final HtmlTemplate SCREENSHOT_THUMBNAIL = HtmlTemplate.compile(
+        "<div class='shot'><img src='cid:{{contentId}}' alt='Failure screenshot'><p>{{name}}</p></div>\n");
+    
+    private static final HtmlTemplate ATTACHMENT_NOTE = HtmlTemplate.compile("<div class='note'>{{note}}</div>\n");
+    
+    /** Start time per suite name; parallel suites and several listener instances each keep their own */
+    private static final Map<String, Long> suiteStartMillis = new ConcurrentHashMap<>();
+    
+    /** Suites whose email went out; one email per suite even if the listener is registered twice */
+    private static final Set<String> emailedSuites = ConcurrentHashMap.newKeySet();
 
     @Override
     public void onStart(ISuite suite) {
-        suiteStartTime = LocalDateTime.now();
-        emailSent = false; // Reset for new suite
-        allTestResults.clear();
-        screenshotPaths.clear();
+        suiteStartMillis.put(suite.getName(), System.currentTimeMillis());
+        emailedSuites.remove(suite.getName());
+        FailureArtifactBroker.clear();
         System.out.println("🚀 SUITE EMAIL LISTENER: Suite started - " + suite.getName());
     }
 
@@ -29,11 +125,8 @@ public class SuiteEmailListener implements ISuiteListener {
     public void onFinish(ISuite suite) {
         System.out.println("📧 SUITE EMAIL LISTENER: Suite finished, preparing email...");
         
-        // Check if email already sent
-        if (emailSent) {
-            System.out.println("📧 Email already sent for this suite, skipping...");
-            return;
-        }
+        // Screenshots are written asynchronously; wait for them before reading their paths
+        ArtifactPipeline.flush(Duration.ofSeconds(60));
         
         // Check if email notification is enabled
         boolean emailEnabled = Boolean.parseBoolean(ConfigReader.getProperty("email.notification.enabled", "false"));
@@ -41,171 +134,186 @@ public class SuiteEmailListener implements ISuiteListener {
             System.out.println("📧 Email notification disabled");
             return;
         }
-
-        // Collect all test results from the suite
-        int totalTests = 0, passedTests = 0, failedTests = 0, skippedTests = 0;
         
-        Map<String, ISuiteResult> results = suite.getResults();
-        for (ISuiteResult result : results.values()) {
-            ITestContext testContext = result.getTestContext();
-            
-            // Count results
-            passedTests += testContext.getPassedTests().size();
-            failedTests += testContext.getFailedTests().size();
-            skippedTests += testContext.getSkippedTests().size();
-            
-            // Collect passed test details
-            for (ITestResult testResult : testContext.getPassedTests().getAllResults()) {
-                String testName = testResult.getMethod().getMethodName();
-                String className = testResult.getTestClass().getName().substring(testResult.getTestClass().getName().lastIndexOf('.') + 1);
-                long duration = testResult.getEndMillis() - testResult.getStartMillis();
-                allTestResults.add(String.format("✅ %s.%s - PASSED (%dms)", className, testName, duration));
-            }
-            
-            // Collect failed test details
-            for (ITestResult testResult : testContext.getFailedTests().getAllResults()) {
-                String testName = testResult.getMethod().getMethodName();
-                String className = testResult.getTestClass().getName().substring(testResult.getTestClass().getName().lastIndexOf('.') + 1);
-                String errorMsg = testResult.getThrowable() != null ? testResult.getThrowable().getMessage() : "Unknown error";
-                long duration = testResult.getEndMillis() - testResult.getStartMillis();
-                
-                // Capture screenshot for failed test
-                try {
-                    Object testInstance = testResult.getInstance();
-                    if (testInstance instanceof org.jsd.base.BaseTest) {
-                        org.jsd.base.BaseTest baseTest = (org.jsd.base.BaseTest) testInstance;
-                        if (baseTest.getDriver() != null) {
-                            String screenshotPath = org.jsd.utils.ScreenshotUtils.captureScreenshot(baseTest.getDriver(), testName + "_FAILED");
-                            if (screenshotPath != null) {
-                                screenshotPaths.add(screenshotPath);
-                                System.out.println("📸 Screenshot captured and added for attachment: " + testName);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    System.out.println("❌ Failed to capture screenshot: " + e.getMessage());
-                }
-                
-                allTestResults.add(String.format("❌ %s.%s - FAILED (%dms) - %s 📸", className, testName, duration, errorMsg));
-            }
-            
-            // Collect skipped test details
-            for (ITestResult testResult : testContext.getSkippedTests().getAllResults()) {
-                String testName = testResult.getMethod().getMethodName();
-                String className = testResult.getTestClass().getName().substring(testResult.getTestClass().getName().lastIndexOf('.') + 1);
-                allTestResults.add(String.format("⏭️ %s.%s - SKIPPED", className, testName));
+        // Forks and shards only see part of the run; ResultsMerger sends one email for all of them
+        if (ResultsMerger.isEnabled()) {
+            ResultsJournal.getDefault().flush(Duration.ofSeconds(30));
+            System.out.println("📧 Part of a merged run, the email is sent by ResultsMerger");
+            return;
+        }
+        
+        // Check if email already sent
+        if (!emailedSuites.add(suite.getName())) {
+            System.out.println("📧 Email already sent for this suite, skipping...");
+            return;
+        }
+
+        // Results were journaled as each test finished; read this suite's final attempts back
+        List<ResultsJournal.Entry> results;
+        try {
+            results = journaledResults(suite);
+        } catch (IOException e) {
+            System.out.println("❌ SUITE EMAIL FAILED: cannot read results journal: " + e.getMessage());
+            return;
+        }
+        int totalTests, passedTests = 0, failedTests = 0, skippedTests = 0;
+        for (ResultsJournal.Entry entry : results) {
+            switch (entry.status()) {
+                case PASSED -> passedTests++;
+                case FAILED -> failedTests++;
+                default -> skippedTests++;
             }
         }
         
         totalTests = passedTests + failedTests + skippedTests;
         
+        // Screenshots were captured once, while each session was alive, by the failure artifact broker,
+        // and the journal references them. The attachment planner sends identical screenshots once.
+        List<AttachmentPlanner.Source> screenshots = new ArrayList<>();
+        for (ResultsJournal.Entry entry : results) {
+            for (String artifact : entry.artifacts()) {
+                screenshots.add(new AttachmentPlanner.Source(entry.name(), Paths.get(artifact)));
+            }
+        }
+        
         System.out.println("📊 Suite Results: Total=" + totalTests + ", Passed=" + passedTests + ", Failed=" + failedTests + ", Skipped=" + skippedTests);
         
         // Send email with complete results
-        sendSuiteEmail(totalTests, passedTests, failedTests, skippedTests);
-        emailSent = true; // Mark as sent
+        sendSuiteEmail(suite, results, screenshots, totalTests, passedTests, failedTests, skippedTests);
     }
 
-    private void sendSuiteEmail(int total, int passed, int failed, int skipped) {
+    /**
+     * Final attempts of this suite's tests from the journal, in report order: per &lt;test&gt;,
+     * passed then failed then skipped, each by class, method and data row (parallel rows finish
+     * out of order).
+     */
+    private List<ResultsJournal.Entry> journaledResults(ISuite suite) throws IOException {
+        ResultsJournal journal = ResultsJournal.getDefault();
+        journal.flush(Duration.ofSeconds(30));
+        long startMillis = suiteStartMillis.getOrDefault(suite.getName(), 0L);
+        
+        // First-seen position of each <test>, so sorting does not search a list per comparison
+        Map<String, Integer> testOrder = new HashMap<>();
+        List<ResultsJournal.Entry> results = new ArrayList<>();
+        for (ResultsJournal.Entry entry : ResultsJournal.read(journal.getFile())) {
+            if (!entry.suite().equals(suite.getName()) || entry.startMillis() < startMillis
+                    || entry.status() == ResultsJournal.Status.RETRIED) {
+                continue;
+            }
+            testOrder.putIfAbsent(entry.test(), testOrder.size());
+            results.add(entry);
+        }
+        results.sort(Comparator.comparingInt((ResultsJournal.Entry e) -> testOrder.get(e.test()))
+            .thenComparing(ResultsJournal.Entry::status)
+            .thenComparing(ResultsJournal.Entry::className)
+            .thenComparing(ResultsJournal.Entry::method)
+            .thenComparingInt(ResultsJournal.Entry::row));
+        return results;
+    }
+
+    /** Writes one row per result, in the order of {@link #journaledResults}. */
+    private void writeResultRows(List<ResultsJournal.Entry> results, Writer out) throws IOException {
+        Map<String, Object> row = new HashMap<>(); // reused, so memory stays constant per row
+        for (ResultsJournal.Entry entry : results) {
+            String retries = entry.attempt() > 1 ? String.format(" (attempt %d)", entry.attempt()) : "";
+            switch (entry.status()) {
+                case PASSED -> fillRow(row, entry, "✅", String.format("PASSED (%dms)", entry.durationMillis()), retries);
+                case FAILED -> fillRow(row, entry, "❌", String.format("FAILED (%dms)", entry.durationMillis()),
+                    retries + " - " + (entry.error() != null ? entry.error() : "Unknown error") + " 📸");
+                default -> fillRow(row, entry, "⏭️", "SKIPPED", retries);
+            }
+            RESULT_ROW.render(out, row);
+        }
+    }
+
+    private static void fillRow(Map<String, Object> row, ResultsJournal.Entry entry, String icon, String status, String detail) {
+        String className = entry.className();
+        row.put("icon", icon);
+        row.put("className", className.substring(className.lastIndexOf('.') + 1));
+        row.put("method", entry.method());
+        row.put("status", status);
+        row.put("detail", detail);
+    }
+
+    /** Inline thumbnails of the failures, then a note for each screenshot that was merged or left out. */
+    private static void writeScreenshots(AttachmentPlanner.Plan plan, Writer out) throws IOException {
+        if (plan.attachments().isEmpty()) {
+            return;
+        }
+        out.write("<div class='test-results'><h3>📸 Failure Screenshots</h3><div class='shots'>");
+        for (AttachmentPlanner.Attachment attachment : plan.attachments()) {
+            if (attachment.thumbnail() != null) {
+                SCREENSHOT_THUMBNAIL.render(out, Map.of("contentId", attachment.contentId(), "name", attachment.name()));
+            }
+        }
+        out.write("</div>");
+        if (plan.archive() != null) {
+            ATTACHMENT_NOTE.render(out, Map.of("note", "Full-size screenshots: " + plan.archive().getFileName()
+                + " (" + plan.archiveBytes() / 1024 + " KB)"));
+        }
+        for (String note : plan.notes()) {
+            ATTACHMENT_NOTE.render(out, Map.of("note", note));
+        }
+        out.write("</div>");
+    }
+
+    private static void writeBody(Map<String, Object> values, AttachmentPlanner.Plan plan, Path body) throws IOException {
+        values.put("screenshots", (HtmlTemplate.Section) out -> writeScreenshots(plan, out));
+        try (Writer out = Files.newBufferedWriter(body, StandardCharsets.UTF_8)) {
+            SUITE_EMAIL.render(out, values);
+        }
+    }
+
+    private void sendSuiteEmail(ISuite suite, List<ResultsJournal.Entry> results, List<AttachmentPlanner.Source> screenshots,
+                                int total, int passed, int failed, int skipped) {
         try {
             System.out.println("📧 SUITE EMAIL LISTENER: Sending complete suite email...");
             
             // Calculate execution time
             LocalDateTime endTime = LocalDateTime.now();
-            long durationSeconds = java.time.Duration.between(suiteStartTime, endTime).getSeconds();
-            String executionTime = String.format("%dm %ds", durationSeconds / 60, durationSeconds % 60);
+            long durationSeconds = (System.currentTimeMillis()
+                - suiteStartMillis.getOrDefault(suite.getName(), System.currentTimeMillis())) / 1000;
             
             // Calculate success rate
             double successRate = total > 0 ? (double) passed / total * 100 : 0;
-            String currentDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy"));
             
-            // Build test results HTML
-            StringBuilder testResultsHtml = new StringBuilder();
-            for (String testResult : allTestResults) {
-                testResultsHtml.append("<div class='test-item'>").append(testResult).append("</div>");
-            }
+            Map<String, Object> values = new HashMap<>();
+            values.put("successRate", String.format("%.1f", successRate));
+            values.put("date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
+            values.put("executionTime", String.format("%dm %ds", durationSeconds / 60, durationSeconds % 60));
+            values.put("total", total);
+            values.put("passed", passed);
+            values.put("failed", failed);
+            values.put("skipped", skipped);
+            values.put("results", (HtmlTemplate.Section) out -> writeResultRows(results, out));
             
-            // Use beautiful HTML template with complete suite data
-            String beautifulHtml = String.format(
-                "<!DOCTYPE html>" +
-                "<html><head><meta charset='UTF-8'><title>Test Execution Report</title>" +
-                "<style>" +
-                "* { margin: 0; padding: 0; box-sizing: border-box; }" +
-                "body { font-family: -apple-system, BlinkMacSystemFont, 'SF Pro Display', Helvetica, Arial, sans-serif; background: #f5f5f7; line-height: 1.4; font-weight: 400; padding: 20px; color: #1d1d1f; }" +
-                ".container { max-width: 600px; margin: 0 auto; background: #ffffff; border-radius: 12px; box-shadow: 0 4px 20px rgba(0, 0, 0, 0.08); overflow: hidden; position: relative; }" +
-                ".header { background: #ffffff; padding: 60px 25px 30px; text-align: center; position: relative; border-bottom: 1px solid #e5e5e7; }" +
-                ".watermark { position: absolute; top: 15px; left: 15px; display: flex; align-items: center; gap: 6px; font-size: 0.65rem; color: #86868b; }" +
-                ".watermark .avatar { width: 16px; height: 16px; background: linear-gradient(135deg, #007aff, #5856d6); border-radius: 50%%; display: flex; align-items: center; justify-content: center; color: white; font-size: 7px; font-weight: bold; }" +
-                ".watermark .name { color: #007aff; font-weight: 600; }" +
-                ".header h1 { font-size: 1.8rem; font-weight: 700; color: #1d1d1f; margin-bottom: 8px; letter-spacing: -0.02em; }" +
-                ".header .subtitle { font-size: 0.9rem; color: #86868b; font-weight: 400; }" +
-                ".summary { display: grid; grid-template-columns: repeat(4, 1fr); padding: 25px; gap: 15px; background: #fbfbfd; }" +
-                ".metric { background: #ffffff; padding: 20px 15px; border-radius: 10px; text-align: center; border: 1px solid #e5e5e7; }" +
-                ".metric .icon { font-size: 1.2rem; margin-bottom: 8px; }" +
-                ".metric h3 { font-size: 1.8rem; font-weight: 700; color: #1d1d1f; margin-bottom: 4px; }" +
-                ".metric p { font-size: 0.75rem; color: #86868b; font-weight: 600; text-transform: uppercase; letter-spacing: 0.5px; }" +
-                ".progress-section { padding: 20px 25px; background: #fbfbfd; border-top: 1px solid #e5e5e7; }" +
-                ".progress-label { font-size: 0.9rem; font-weight: 600; color: #1d1d1f; margin-bottom: 10px; text-align: center; }" +
-                ".progress-bar { height: 6px; background: #e5e5e7; border-radius: 3px; overflow: hidden; }" +
-                ".progress-fill { height: 100%%; background: #34c759; width: %.1f%%; border-radius: 3px; }" +
-                ".details { padding: 25px; background: #ffffff; }" +
-                ".detail-row { display: flex; justify-content: space-between; align-items: center; padding: 10px 0; border-bottom: 1px solid #f2f2f2; }" +
-                ".detail-row:last-child { border-bottom: none; }" +
-                ".detail-row .label { font-size: 0.85rem; color: #86868b; font-weight: 500; }" +
-                ".detail-row .value { font-size: 0.9rem; color: #1d1d1f; font-weight: 600; }" +
-                ".test-results { padding: 25px; background: #ffffff; border-top: 1px solid #e5e5e7; }" +
-                ".test-results h3 { font-size: 1.1rem; font-weight: 600; color: #1d1d1f; margin-bottom: 15px; }" +
-                ".test-item { padding: 8px 0; font-size: 0.85rem; border-bottom: 1px solid #f2f2f2; }" +
-                ".test-item:last-child { border-bottom: none; }" +
-                ".footer { background: #1d1d1f; color: #f5f5f7; padding: 20px 25px; text-align: center; }" +
-                ".footer p { font-size: 0.8rem; color: #a1a1a6; margin: 4px 0; }" +
-                ".footer .highlight { color: #007aff; font-weight: 600; }" +
-                "</style></head><body>" +
-                "<div class='container'>" +
-                "<div class='header'>" +
-                "<h1>⚡ Test Suite Report</h1>" +
-                "<p class='subtitle'>%s • %s • %.1f%% Success</p>" +
-                "</div>" +
-                "<div class='summary'>" +
-                "<div class='metric'><div class='icon'>📋</div><h3>%d</h3><p>Total</p></div>" +
-                "<div class='metric'><div class='icon'>✓</div><h3>%d</h3><p>Passed</p></div>" +
-                "<div class='metric'><div class='icon'>✕</div><h3>%d</h3><p>Failed</p></div>" +
-                "<div class='metric'><div class='icon'>⏸</div><h3>%d</h3><p>Skipped</p></div>" +
-                "</div>" +
-                "<div class='progress-section'>" +
-                "<div class='progress-label'>Success Rate: %.1f%%</div>" +
-                "<div class='progress-bar'><div class='progress-fill'></div></div>" +
-                "</div>" +
-                "<div class='details'>" +
-                "<div class='detail-row'><span class='label'>Environment</span><span class='value'>Local</span></div>" +
-                "<div class='detail-row'><span class='label'>Browser</span><span class='value'>Chrome/Edge</span></div>" +
-                "<div class='detail-row'><span class='label'>Framework</span><span class='value'>JSD Automation</span></div>" +
-                "</div>" +
-                "<div class='test-results'>" +
-                "<h3>📋 Complete Test Results</h3>" +
-                "%s" +
-                "</div>" +
-                "<div class='footer'>" +
-                "<p>Automated report by <span class='highlight'>JSD Framework</span></p>" +
-                "<p>🔗 Built with precision by Nilesh Patil</p>" +
-                "</div>" +
-                "</div></body></html>",
-                successRate, currentDate, executionTime, successRate,
-                total, passed, failed, skipped,
-                successRate,
-                testResultsHtml.toString()
-            );
+            // Thumbnails go inline, full screenshots into one ZIP, all within the size budget
+            Path reportDir = Paths.get(System.getProperty("user.dir"), "test-output", "email-reports");
+            Files.createDirectories(reportDir);
+            String stamp = endTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+            AttachmentPlanner planner = AttachmentPlanner.fromConfig();
+            AttachmentPlanner.Plan planned = planner.plan(screenshots, reportDir.resolve("screenshots-" + stamp + ".zip"));
             
-            // Send email with screenshot attachments
-            if (!screenshotPaths.isEmpty()) {
-                EmailSender.sendEmailWithAttachments("JSD Test Suite Report - By Nilesh Patil", beautifulHtml, screenshotPaths);
-                System.out.println("📎 Sent email with " + screenshotPaths.size() + " screenshot attachments");
-            } else {
-                EmailSender.sendSimpleEmail("JSD Test Suite Report - By Nilesh Patil", beautifulHtml);
-                System.out.println("📧 Sent email without attachments (no failed tests)");
+            // Stream the body to a spool file; the mail reads it from there instead of from a String
+            Path body = reportDir.resolve("suite-email-" + stamp + ".html");
+            writeBody(values, planned, body);
+            // The body counts against the budget too; over it, the screenshots are linked instead
+            AttachmentPlanner.Plan plan = planner.fitBody(planned, Files.size(body));
+            if (plan != planned) {
+                writeBody(values, plan, body);
             }
             
-            System.out.println("✅ SUITE EMAIL SENT SUCCESSFULLY!");
+            // Queue the email; it is sent in the background and flushed before the JVM exits
+            EmailSender.sendEmailWithPlan("JSD Test Suite Report - By Nilesh Patil", body, plan)
+                .whenComplete((sent, error) -> System.out.println(error == null
+                    ? "✅ SUITE EMAIL SENT SUCCESSFULLY!"
+                    : "❌ SUITE EMAIL FAILED: " + error.getMessage()));
+            if (!plan.attachments().isEmpty()) {
+                System.out.println("📎 Queued email with " + plan.attachments().size() + " screenshots ("
+                    + plan.totalBytes() / 1024 + " KB attached)");
+            } else {
+                System.out.println("📧 Queued email without attachments (no failed tests)");
+            }
             
         } catch (Exception e) {
             System.out.println("❌ SUITE EMAIL FAILED: " + e.getMessage());
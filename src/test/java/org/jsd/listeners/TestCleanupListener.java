@@ -4,18 +4,33 @@ import org.testng.ISuiteListener;
 import org.testng.ISuite;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jsd.utils.ArtifactStore;
+import org.jsd.utils.ResultsJournal;
+import org.jsd.utils.ResultsMerger;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class TestCleanupListener implements ISuiteListener {
     private static final Logger log = LogManager.getLogger(TestCleanupListener.class);
     
+    /** Results of earlier suites in this JVM belong to the current run and are kept */
+    private static final AtomicBoolean cleaned = new AtomicBoolean();
+    
     @Override
     public void onStart(ISuite suite) {
+        // Forks and shards share result directories; the merged run starts from a clean workspace instead
+        if (ResultsMerger.isEnabled()) {
+            log.info("Part of a merged run, keeping existing results for suite: {}", suite.getName());
+            return;
+        }
+        if (!cleaned.compareAndSet(false, true)) {
+            return;
+        }
         log.info("Cleaning old test results before starting suite: {}", suite.getName());
         cleanOldResults();
     }
@@ -29,6 +44,7 @@ public class TestCleanupListener implements ISuiteListener {
                     .sorted(Comparator.reverseOrder())
                     .map(Path::toFile)
                     .forEach(File::delete);
+                ArtifactStore.resetAllureSources();
                 log.info("Cleaned allure-results directory for fresh reports");
             }
             
@@ -62,6 +78,9 @@ public class TestCleanupListener implements ISuiteListener {
                 log.info("Cleaned email-reports directory");
             }
             
+            // Only the journal files of earlier runs; the journal owns its directory
+            ResultsJournal.deleteEarlierJournals();
+            
         } catch (IOException e) {
             log.warn("Failed to clean old results: {}", e.getMessage());
         }
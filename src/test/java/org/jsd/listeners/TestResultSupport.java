@@ -0,0 +1,70 @@
+package org.jsd.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jsd.base.BaseTest;
+import org.jsd.base.DriverFactory;
+import org.openqa.selenium.WebDriver;
+import org.testng.ITestResult;
+
+import java.lang.reflect.Field;
+
+/**
+ * Helpers shared by the listeners to identify a test invocation and find its driver.
+ */
+public final class TestResultSupport {
+    private static final Logger log = LogManager.getLogger(TestResultSupport.class);
+
+    private TestResultSupport() {
+    }
+
+    /**
+     * Key unique to one invocation: class, method, data row and start time,
+     * so data rows and retries each get their own failure artifacts.
+     */
+    public static String testKey(ITestResult result) {
+        return String.format("%s.%s[%d]@%d", result.getTestClass().getName(), result.getMethod().getMethodName(),
+            ParallelRowsListener.getRowIndex(result), result.getStartMillis());
+    }
+
+    public static String testName(ITestResult result) {
+        int rowIndex = ParallelRowsListener.getDatasetRowIndex(result);
+        String methodName = result.getMethod().getMethodName();
+        return rowIndex >= 0 ? methodName + "_row" + rowIndex : methodName;
+    }
+
+    /**
+     * Finds the driver of the test that produced the result, without ever creating a new session.
+     */
+    public static WebDriver findDriver(ITestResult result) {
+        try {
+            Object testInstance = result.getInstance();
+            
+            // BaseTest returns the session bound to the current (test) thread
+            if (testInstance instanceof BaseTest baseTest && baseTest.getDriver() != null) {
+                log.debug("Driver obtained from BaseTest.getDriver()");
+                return baseTest.getDriver();
+            }
+            
+            // Any other test class: look for a WebDriver field
+            if (testInstance != null) {
+                for (Class<?> c = testInstance.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (WebDriver.class.isAssignableFrom(field.getType())) {
+                            field.setAccessible(true);
+                            WebDriver driver = (WebDriver) field.get(testInstance);
+                            if (driver != null) {
+                                log.debug("Driver obtained from field: {}", field.getName());
+                                return driver;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error while trying to get WebDriver: {}", e.getMessage());
+        }
+        
+        return DriverFactory.getCurrentDriver();
+    }
+}
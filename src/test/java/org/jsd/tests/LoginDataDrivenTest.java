@@ -4,13 +4,19 @@ import io.qameta.allure.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jsd.base.BaseTest;
+import org.jsd.base.ParallelRows;
 import org.jsd.pages.LoginPage;
 import org.jsd.utils.CSVReader;
+import org.jsd.utils.Column;
 import org.jsd.utils.CommonActions;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+
 import static org.testng.Assert.*;
 
 @Epic("Authentication")
@@ -18,17 +24,22 @@ import static org.testng.Assert.*;
 public class LoginDataDrivenTest extends BaseTest {
     private static final Logger log = LogManager.getLogger(LoginDataDrivenTest.class);
 
+    @ParallelRows
     @DataProvider(name = "loginData")
-    public Object[][] getLoginData() {
+    public Object[][] getLoginData(Method testMethod) {
         String filePath = getClass().getClassLoader().getResource("testdata/login_data.csv").getPath();
-        return CSVReader.readCSVData(filePath);
+        return CSVReader.readBoundCSVData(filePath, testMethod);
     }
 
     @Test(dataProvider = "loginData")
     @Story("User Authentication with Multiple Credentials")
     @Severity(SeverityLevel.CRITICAL)
     @Description("Verify login functionality with different user credentials from Excel data")
-    public void testLoginWithMultipleUsers(String username, String password, String expected) {
+    public void testLoginWithMultipleUsers(@Column("Username") String username,
+                                           @Column("Password") String password,
+                                           @Column("Expected") String expected) {
+        // Rows run in parallel on pooled sessions, so use the thread-bound driver
+        WebDriver driver = getDriver();
         LoginPage loginPage = new LoginPage(driver);
         CommonActions actions = new CommonActions(driver);
         
@@ -70,7 +81,7 @@ public class LoginDataDrivenTest extends BaseTest {
     @Attachment(value = "{screenshotName}", type = "image/png")
     private byte[] captureScreenshotForAllure(String screenshotName) {
         try {
-            byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            byte[] screenshot = ((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.BYTES);
             return screenshot;
         } catch (Exception e) {
             log.error("Failed to capture screenshot: {}", e.getMessage());
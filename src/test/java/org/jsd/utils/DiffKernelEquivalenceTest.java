@@ -0,0 +1,121 @@
+package org.jsd.utils;
+
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks that the SIMD diff kernel gives exactly the same counts and diff masks as the scalar
+ * reference kernel. Needs no browser:
+ * mvn test -Dtest=DiffKernelEquivalenceTest
+ */
+public class DiffKernelEquivalenceTest {
+    private DiffKernel vector;
+
+    @BeforeClass
+    public void loadVectorKernel() {
+        vector = ImageComparator.selectKernel("vector");
+        if (vector instanceof ScalarDiffKernel) {
+            throw new SkipException("jdk.incubator.vector is not available in this JVM");
+        }
+    }
+
+    @DataProvider
+    public Object[][] tolerances() {
+        return new Object[][] {{0}, {1}, {8}, {32}, {254}, {255}};
+    }
+
+    @Test(dataProvider = "tolerances")
+    public void sameResultsOnNoisyRasters(int tolerance) {
+        Random random = new Random(tolerance * 31L + 7);
+        // Lengths around the vector width exercise the scalar tail
+        for (int length : new int[] {0, 1, 7, 8, 15, 16, 17, 63, 1920, 4099}) {
+            int[] expected = randomPixels(random, length);
+            int[] actual = withNoise(random, expected);
+            assertSameResults(expected, 0, actual, 0, length, tolerance);
+        }
+    }
+
+    @Test(dataProvider = "tolerances")
+    public void sameResultsAtUnalignedOffsets(int tolerance) {
+        Random random = new Random(tolerance * 17L + 3);
+        int[] expected = randomPixels(random, 5000);
+        int[] actual = withNoise(random, expected);
+        assertSameResults(expected, 3, actual, 11, 4001, tolerance);
+        assertSameResults(expected, 1919, actual, 1, 2500, tolerance);
+    }
+
+    @Test
+    public void identicalRastersHaveNoDifferences() {
+        int[] pixels = randomPixels(new Random(1), 1000);
+        int[] mask = new int[pixels.length];
+        assertEquals(vector.diff(pixels, 0, pixels.clone(), 0, mask, 0, pixels.length, 0), 0);
+        assertEquals(mask, pixels, "Mask must copy the expected pixels where nothing differs");
+    }
+
+    @Test
+    public void toleranceAppliesToEveryChannel() {
+        int base = 0x80808080;
+        int[] expected = {base, base, base, base, base};
+        int[] actual = {0x85808080, 0x80858080, 0x80808580, 0x80808085, 0x84848484};
+        int[] scalarMask = new int[5];
+        int[] vectorMask = new int[5];
+        assertEquals(ScalarDiffKernel.INSTANCE.diff(expected, 0, actual, 0, scalarMask, 0, 5, 4), 4);
+        assertEquals(vector.diff(expected, 0, actual, 0, vectorMask, 0, 5, 4), 4);
+        assertEquals(vectorMask, scalarMask);
+        assertEquals(vectorMask[4], base, "Pixel within tolerance on all channels must not be flagged");
+    }
+
+    @Test
+    public void unknownKernelFallsBackToScalar() {
+        assertSame(ImageComparator.selectKernel("scalar"), ScalarDiffKernel.INSTANCE);
+        assertSame(ImageComparator.selectKernel("org.jsd.utils.NoSuchKernel"), ScalarDiffKernel.INSTANCE);
+        assertSame(ImageComparator.selectKernel("java.lang.String"), ScalarDiffKernel.INSTANCE);
+    }
+
+    private void assertSameResults(int[] expected, int expectedOffset, int[] actual, int actualOffset,
+                                   int length, int tolerance) {
+        int[] scalarMask = new int[length + 5];
+        int[] vectorMask = new int[length + 5];
+        long scalarCount = ScalarDiffKernel.INSTANCE.diff(expected, expectedOffset, actual, actualOffset,
+            scalarMask, 5, length, tolerance);
+        long vectorCount = vector.diff(expected, expectedOffset, actual, actualOffset,
+            vectorMask, 5, length, tolerance);
+        long countOnly = vector.diff(expected, expectedOffset, actual, actualOffset, null, 0, length, tolerance);
+
+        String context = "length=" + length + ", tolerance=" + tolerance;
+        assertEquals(vectorCount, scalarCount, "Differing pixel count, " + context);
+        assertEquals(countOnly, scalarCount, "Count without mask, " + context);
+        assertEquals(vectorMask, scalarMask, "Diff mask, " + context);
+    }
+
+    private static int[] randomPixels(Random random, int length) {
+        int[] pixels = new int[length];
+        for (int i = 0; i < length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+
+    /** Leaves most pixels alone and nudges the rest by small and large per-channel deltas. */
+    private static int[] withNoise(Random random, int[] pixels) {
+        int[] noisy = pixels.clone();
+        for (int i = 0; i < noisy.length; i++) {
+            int roll = random.nextInt(10);
+            if (roll < 5) {
+                continue;
+            }
+            int shift = 8 * random.nextInt(4);
+            int delta = roll < 9 ? random.nextInt(17) - 8 : random.nextInt(256);
+            int channel = (noisy[i] >>> shift) & 0xFF;
+            int changed = Math.max(0, Math.min(255, channel + delta));
+            noisy[i] = (noisy[i] & ~(0xFF << shift)) | (changed << shift);
+        }
+        return noisy;
+    }
+}
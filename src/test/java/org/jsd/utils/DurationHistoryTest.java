@@ -0,0 +1,206 @@
+package org.jsd.utils;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks percentiles, retention, compaction and recovery from a corrupt index of the duration
+ * history in a temporary directory. Needs no browser:
+ * mvn test -Dtest=DurationHistoryTest
+ */
+public class DurationHistoryTest {
+    private static final Duration RETENTION = Duration.ofDays(90);
+
+    private Path dir;
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("duration-history");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void percentilesUseNearestRankAndIgnoreSkippedRuns() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION);
+        List<ResultsJournal.Entry> entries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 10; i++) {
+            entries.add(entry("login", ResultsJournal.Status.PASSED, now - 1000 * (20 - i), i * 100L, 1));
+        }
+        entries.add(entry("login", ResultsJournal.Status.SKIPPED, now, 99_999, 1));
+        history.record(entries);
+
+        DurationHistory.Summary summary = history.get(testId("login")).orElseThrow();
+        assertEquals(summary.runs(), 11);
+        assertEquals(summary.skipped(), 1);
+        assertEquals(summary.p50(), 500);
+        assertEquals(summary.p90(), 900);
+        assertEquals(summary.percentile(100), 1000);
+        assertEquals(summary.percentile(0), 100);
+    }
+
+    @Test
+    public void keepsOnlyTheLatestSamples() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 3, RETENTION);
+        long now = System.currentTimeMillis();
+        List<ResultsJournal.Entry> entries = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            entries.add(entry("search", ResultsJournal.Status.PASSED, now - 1000 * (10 - i), i * 10L, 1));
+        }
+        history.record(entries);
+
+        DurationHistory.Summary summary = history.get(testId("search")).orElseThrow();
+        assertEquals(summary.runs(), 5);
+        assertEquals(summary.recent().stream().map(DurationHistory.Sample::durationMillis).toList(),
+            List.of(30L, 40L, 50L));
+    }
+
+    @Test
+    public void countsRetriesFromTheFinalAttempt() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION);
+        long now = System.currentTimeMillis();
+        history.record(List.of(
+            entry("checkout", ResultsJournal.Status.RETRIED, now - 2000, 100, 1),
+            entry("checkout", ResultsJournal.Status.PASSED, now, 100, 2)));
+
+        DurationHistory.Summary summary = history.get(testId("checkout")).orElseThrow();
+        assertEquals(summary.runs(), 1);
+        assertEquals(summary.retries(), 1);
+        assertTrue(summary.flaky());
+    }
+
+    @Test
+    public void keysShardedRowsOnTheirDatasetRow() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION);
+        long now = System.currentTimeMillis();
+        // Data provider row 0 of shard 0 and of shard 1 are dataset rows 0 and 1
+        history.record(List.of(
+            entry("login", 0, 0, now, 100),
+            entry("login", 0, 1, now, 5000)));
+        // With another shard.total the same dataset row comes as another provider row
+        history.record(List.of(entry("login", 2, 1, now + 1000, 5200)));
+
+        assertEquals(history.size(), 2);
+        assertEquals(history.get(rowTestId("login", 0)).orElseThrow().p50(), 100);
+        DurationHistory.Summary second = history.get(rowTestId("login", 1)).orElseThrow();
+        assertEquals(second.row(), 1);
+        assertEquals(second.runs(), 2);
+        assertEquals(second.p50(), 5000);
+    }
+
+    @Test
+    public void compactionDropsTestsPastRetention() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION);
+        long now = System.currentTimeMillis();
+        history.record(List.of(
+            entry("old", ResultsJournal.Status.PASSED, now - RETENTION.toMillis() - 60_000, 100, 1),
+            entry("recent", ResultsJournal.Status.PASSED, now, 100, 1)));
+
+        assertEquals(history.compact(), 1);
+        assertTrue(history.get(testId("old")).isEmpty());
+        assertTrue(history.get(testId("recent")).isPresent());
+    }
+
+    @Test
+    public void compactionEmptiesTheLogAndKeepsSummaries() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION);
+        history.record(List.of(entry("login", ResultsJournal.Status.PASSED, System.currentTimeMillis(), 250, 1)));
+        assertTrue(Files.size(dir.resolve("history.jsonl")) > 0);
+
+        history.compact();
+
+        assertEquals(Files.size(dir.resolve("history.jsonl")), 0);
+        DurationHistory reopened = new DurationHistory(dir, 30, RETENTION);
+        assertEquals(reopened.get(testId("login")).orElseThrow().p50(), 250);
+    }
+
+    @Test
+    public void compactsOnlyPastTheLogSizeThreshold() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION, 1024, Duration.ofDays(7));
+        long now = System.currentTimeMillis();
+        history.record(List.of(entry("login", ResultsJournal.Status.PASSED, now, 100, 1)));
+        history.compact();
+
+        history.record(List.of(entry("login", ResultsJournal.Status.PASSED, now + 1, 100, 1)));
+        assertFalse(history.compactIfDue());
+        assertTrue(Files.size(dir.resolve("history.jsonl")) > 0);
+
+        List<ResultsJournal.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            entries.add(entry("test" + i, ResultsJournal.Status.PASSED, now + i, 100, 1));
+        }
+        history.record(entries);
+        assertTrue(history.compactIfDue());
+        assertEquals(Files.size(dir.resolve("history.jsonl")), 0);
+        assertEquals(history.get(testId("login")).orElseThrow().runs(), 2);
+    }
+
+    @Test
+    public void compactsWhenTheIndexIsOlderThanTheAgeThreshold() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION, 1024 * 1024, Duration.ZERO);
+        assertFalse(history.compactIfDue(), "nothing to fold in");
+
+        history.record(List.of(entry("login", ResultsJournal.Status.PASSED, System.currentTimeMillis(), 100, 1)));
+        assertTrue(history.compactIfDue());
+    }
+
+    @Test
+    public void rebuildsACorruptIndexFromTheLog() throws IOException {
+        DurationHistory history = new DurationHistory(dir, 30, RETENTION, 1024 * 1024, Duration.ofDays(7));
+        long now = System.currentTimeMillis();
+        history.record(List.of(entry("login", ResultsJournal.Status.PASSED, now, 100, 1)));
+        history.compact();
+        history.record(List.of(entry("search", ResultsJournal.Status.PASSED, now, 200, 1)));
+        Files.writeString(dir.resolve("history-index.json"), "{\"version\":1,\"tests\":[{", StandardCharsets.UTF_8);
+
+        DurationHistory reopened = new DurationHistory(dir, 30, RETENTION, 1024 * 1024, Duration.ofDays(7));
+        assertTrue(reopened.get(testId("login")).isEmpty());
+        assertEquals(reopened.get(testId("search")).orElseThrow().p50(), 200);
+
+        assertTrue(reopened.compactIfDue(), "an unreadable index is replaced at once");
+        DurationHistory rebuilt = new DurationHistory(dir, 30, RETENTION);
+        assertEquals(rebuilt.size(), 1);
+        assertEquals(rebuilt.get(testId("search")).orElseThrow().p50(), 200);
+    }
+
+    private static ResultsJournal.Entry entry(String method, ResultsJournal.Status status, long endMillis,
+                                              long durationMillis, int attempt) {
+        return new ResultsJournal.Entry("suite", "test", "org.jsd.tests.SampleTest", method, 0, 0, method, status,
+            endMillis - durationMillis, endMillis, attempt, "main", null, List.of(), null);
+    }
+
+    private static ResultsJournal.Entry entry(String method, int row, int datasetRow, long endMillis,
+                                              long durationMillis) {
+        return new ResultsJournal.Entry("suite", "test", "org.jsd.tests.SampleTest", method, row, datasetRow, method,
+            ResultsJournal.Status.PASSED, endMillis - durationMillis, endMillis, 1, "main", null, List.of(), null);
+    }
+
+    private static String testId(String method) {
+        return rowTestId(method, 0);
+    }
+
+    private static String rowTestId(String method, int datasetRow) {
+        return ResultsJournal.testId("suite", "test", "org.jsd.tests.SampleTest", method, datasetRow);
+    }
+}
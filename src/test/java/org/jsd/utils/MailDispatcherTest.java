@@ -0,0 +1,250 @@
+package org.jsd.utils;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Message;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks connection reuse, retries and flushing of the mail dispatcher against an in-process
+ * SMTP stand-in. Needs no browser or mail server:
+ * mvn test -Dtest=MailDispatcherTest
+ */
+public class MailDispatcherTest {
+    private FakeSmtpServer server;
+    private MailDispatcher dispatcher;
+
+    @BeforeMethod
+    public void startServer() throws IOException {
+        server = new FakeSmtpServer();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopServer() throws IOException {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void reusesOneConnectionForSeveralMessages() throws Exception {
+        dispatcher = dispatcher(3);
+        List<CompletableFuture<Void>> deliveries = List.of(
+            dispatcher.submit(session -> message(session, "first")),
+            dispatcher.submit(session -> message(session, "second")),
+            dispatcher.submit(session -> message(session, "third")));
+
+        assertTrue(dispatcher.flush(Duration.ofSeconds(10)));
+        for (CompletableFuture<Void> delivery : deliveries) {
+            assertTrue(delivery.isDone() && !delivery.isCompletedExceptionally());
+        }
+        assertEquals(server.subjects, List.of("first", "second", "third"));
+        assertEquals(server.connections.get(), 1, "messages should share one SMTP connection");
+        assertEquals(dispatcher.getMetrics().sent(), 3);
+    }
+
+    @Test
+    public void retriesTemporaryFailures() throws Exception {
+        server.temporaryFailures.set(2); // 451 for the first two DATA commands
+        dispatcher = dispatcher(3);
+
+        dispatcher.submit(session -> message(session, "retried")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(server.subjects, List.of("retried"));
+        assertEquals(dispatcher.getMetrics().retried(), 2);
+    }
+
+    @Test
+    public void failsAfterTheLastAttempt() throws Exception {
+        server.temporaryFailures.set(5);
+        dispatcher = dispatcher(2);
+
+        CompletableFuture<Void> delivery = dispatcher.submit(session -> message(session, "lost"));
+        assertTrue(dispatcher.flush(Duration.ofSeconds(10)));
+
+        assertTrue(delivery.isCompletedExceptionally());
+        expectThrows(ExecutionException.class, delivery::get);
+        assertTrue(server.subjects.isEmpty());
+        assertEquals(dispatcher.getMetrics().failed(), 1);
+    }
+
+    @Test
+    public void doesNotRetryPermanentFailures() throws Exception {
+        server.permanentFailure = true; // 554 for DATA
+        dispatcher = dispatcher(3);
+
+        CompletableFuture<Void> delivery = dispatcher.submit(session -> message(session, "rejected"));
+        assertTrue(dispatcher.flush(Duration.ofSeconds(10)));
+
+        assertTrue(delivery.isCompletedExceptionally());
+        assertEquals(dispatcher.getMetrics().retried(), 0);
+    }
+
+    @Test
+    public void doesNotRetryRejectedRecipients() throws Exception {
+        dispatcher = dispatcher(3);
+
+        // 550 for RCPT: JavaMail reports a SendFailedException with the address as invalid
+        CompletableFuture<Void> delivery = dispatcher.submit(session -> message(session, "unknown", "nobody@invalid.example"));
+        assertTrue(dispatcher.flush(Duration.ofSeconds(10)));
+
+        assertTrue(delivery.isCompletedExceptionally());
+        ExecutionException failure = expectThrows(ExecutionException.class, delivery::get);
+        assertTrue(failure.getCause() instanceof SendFailedException, String.valueOf(failure.getCause()));
+        assertEquals(dispatcher.getMetrics().retried(), 0);
+        assertTrue(server.subjects.isEmpty());
+    }
+
+    @Test
+    public void doesNotRetryFailedLogins() throws Exception {
+        server.rejectLogin = true; // 535 for AUTH
+        dispatcher = dispatcher(3, "suite@example.com", "wrong");
+
+        CompletableFuture<Void> delivery = dispatcher.submit(session -> message(session, "unauthenticated"));
+        assertTrue(dispatcher.flush(Duration.ofSeconds(10)));
+
+        ExecutionException failure = expectThrows(ExecutionException.class, delivery::get);
+        assertTrue(failure.getCause() instanceof AuthenticationFailedException, String.valueOf(failure.getCause()));
+        assertEquals(dispatcher.getMetrics().retried(), 0);
+        assertEquals(server.connections.get(), 1, "a failed login should not reconnect");
+    }
+
+    private MailDispatcher dispatcher(int attempts) {
+        return dispatcher(attempts, null, null);
+    }
+
+    private MailDispatcher dispatcher(int attempts, String username, String password) {
+        Properties props = new Properties();
+        props.put("mail.smtp.host", "127.0.0.1");
+        props.put("mail.smtp.port", String.valueOf(server.port()));
+        props.put("mail.smtp.timeout", "5000");
+        if (username != null) {
+            props.put("mail.smtp.auth", "true");
+        }
+        return new MailDispatcher(props, username, password, attempts, Duration.ofMillis(10));
+    }
+
+    private static Message message(Session session, String subject) throws Exception {
+        return message(session, subject, "team@example.com");
+    }
+
+    private static Message message(Session session, String subject, String recipient) throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("suite@example.com"));
+        message.setRecipients(Message.RecipientType.TO, recipient);
+        message.setSubject(subject);
+        message.setText("body of " + subject);
+        return message;
+    }
+
+    /**
+     * Minimal SMTP server: accepts every command, records subjects, fails DATA or AUTH on request
+     * and rejects recipients in the invalid.example domain.
+     */
+    private static final class FakeSmtpServer implements AutoCloseable {
+        final List<String> subjects = new CopyOnWriteArrayList<>();
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger temporaryFailures = new AtomicInteger();
+        volatile boolean permanentFailure;
+        volatile boolean rejectLogin;
+        private final ServerSocket socket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+
+        FakeSmtpServer() throws IOException {
+            Thread acceptor = new Thread(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        Socket client = socket.accept();
+                        connections.incrementAndGet();
+                        Thread session = new Thread(() -> serve(client), "fake-smtp-session");
+                        session.setDaemon(true);
+                        session.start();
+                    } catch (IOException e) {
+                        return; // closed
+                    }
+                }
+            }, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void serve(Socket client) {
+            try (client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                reply(out, "220 fake-smtp ready");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250-fake-smtp\r\n250 AUTH PLAIN LOGIN");
+                        case "AUTH" -> reply(out, rejectLogin ? "535 authentication failed" : "235 authenticated");
+                        case "RCPT" -> reply(out, line.contains("@invalid.example") ? "550 no such user" : "250 ok");
+                        case "DATA" -> {
+                            if (permanentFailure) {
+                                reply(out, "554 rejected");
+                            } else if (temporaryFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                                reply(out, "451 try again later");
+                            } else {
+                                reply(out, "354 end with .");
+                                String subject = null;
+                                while ((line = in.readLine()) != null && !line.equals(".")) {
+                                    if (subject == null && line.startsWith("Subject: ")) {
+                                        subject = line.substring("Subject: ".length());
+                                    }
+                                }
+                                subjects.add(subject);
+                                reply(out, "250 queued");
+                            }
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 bye");
+                            return;
+                        }
+                        default -> reply(out, "250 ok"); // MAIL, RCPT, RSET, NOOP
+                    }
+                }
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
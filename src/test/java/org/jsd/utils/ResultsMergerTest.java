@@ -0,0 +1,87 @@
+package org.jsd.utils;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Merges journals of two shards written to a temporary directory. Needs no browser:
+ * mvn test -Dtest=ResultsMergerTest
+ */
+public class ResultsMergerTest {
+    private Path dir;
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("results-merger");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void keepsRowsOfDifferentShardsThatShareADataProviderRow() throws IOException {
+        // Both shards number their own rows 0 and 1; the dataset rows are 0, 2 and 1, 3
+        journal("shard-0", List.of(
+            entry(0, 0, ResultsJournal.Status.PASSED, 1000, 1, "shard-0-of-2"),
+            entry(1, 2, ResultsJournal.Status.FAILED, 2000, 1, "shard-0-of-2")));
+        journal("shard-1", List.of(
+            entry(0, 1, ResultsJournal.Status.PASSED, 1500, 1, "shard-1-of-2"),
+            entry(1, 3, ResultsJournal.Status.RETRIED, 2500, 1, "shard-1-of-2"),
+            entry(1, 3, ResultsJournal.Status.PASSED, 3000, 2, "shard-1-of-2")));
+
+        ResultsMerger.Result result = merge();
+
+        assertEquals(result.tests().stream().map(ResultsJournal.Entry::datasetRowIndex).sorted().toList(),
+            List.of(0, 1, 2, 3));
+        assertEquals(result.retriedAttempts(), 1);
+        assertEquals(result.count(ResultsJournal.Status.PASSED), 3);
+        assertEquals(result.count(ResultsJournal.Status.FAILED), 1);
+        assertEquals(result.shards().size(), 2);
+        assertTrue(result.shards().stream().allMatch(shard -> shard.tests() == 2));
+    }
+
+    @Test
+    public void keysEntriesWithoutADatasetRowOnTheirRow() throws IOException {
+        journal("fork-1", List.of(entry(0, null, ResultsJournal.Status.FAILED, 1000, 1, null)));
+        journal("fork-2", List.of(entry(0, null, ResultsJournal.Status.PASSED, 2000, 1, null)));
+
+        ResultsMerger.Result result = merge();
+
+        assertEquals(result.tests().size(), 1);
+        assertEquals(result.tests().get(0).status(), ResultsJournal.Status.PASSED);
+        assertEquals(result.retriedAttempts(), 1);
+    }
+
+    private void journal(String input, List<ResultsJournal.Entry> entries) throws IOException {
+        Path inputDir = Files.createDirectories(dir.resolve(input));
+        ResultsJournal.write(inputDir.resolve("journal-" + input + ".jsonl"), entries);
+    }
+
+    private ResultsMerger.Result merge() throws IOException {
+        return new ResultsMerger(List.of(dir.resolve("shard-0"), dir.resolve("shard-1"), dir.resolve("fork-1"),
+            dir.resolve("fork-2")), dir.resolve("merged")).merge();
+    }
+
+    private static ResultsJournal.Entry entry(int row, Integer datasetRow, ResultsJournal.Status status,
+                                              long endMillis, int attempt, String shard) {
+        return new ResultsJournal.Entry("suite", "test", "org.jsd.tests.LoginDataDrivenTest", "login", row,
+            datasetRow, "login_row" + row, status, endMillis - 500, endMillis, attempt, "main", null, List.of(),
+            shard);
+    }
+}
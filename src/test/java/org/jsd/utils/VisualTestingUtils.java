@@ -1,21 +1,25 @@
 package org.jsd.utils;
 
-import io.qameta.allure.Attachment;
 import io.qameta.allure.Step;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Rectangle;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * Visual testing utilities for screenshot comparison and baseline management.
@@ -25,16 +29,22 @@ import java.nio.file.Paths;
  * - Baseline image management (create, update)
  * - Automatic diff image generation
  * - Allure report integration with visual attachments
- * - Configurable pixel difference threshold
- * 
+ * - Configurable pixel difference threshold and tolerance
+ * - Tile-hash comparison that only diffs changed tiles, with ignore regions
+ * - Baselines per browser and screenshot size, deduplicated by perceptual hash
+ * - Structural DOM snapshot comparison (see DomSnapshot)
+ *
  * Directory structure:
- * - test-output/visual-baselines/ : Baseline images
- * - test-output/visual-actual/    : Current test screenshots
+ * - test-output/visual-baselines/ : Baseline index; shared/ holds the images with ".tiles" and ".raster" sidecars
+ * - test-output/visual-actual/    : Current test screenshots, named "name@browser@WxH"
  * - test-output/visual-diff/      : Difference images
- * 
+ * - test-output/dom-baselines/    : Baseline DOM snapshots
+ * - test-output/dom-actual/       : DOM snapshots that differed from their baseline
+ *
  * Usage:
  * VisualTestingUtils.compareScreenshot(driver, "login-page");
  * VisualTestingUtils.updateBaseline(driver, "homepage");
+ * VisualTestingUtils.compareDomSnapshot(driver, "login-page");
  * 
  * @author JSD Framework Team
  * @version 1.0
@@ -51,7 +61,20 @@ public class VisualTestingUtils {
     
     /** Directory path for storing difference images */
     private static final String DIFF_PATH = "test-output/visual-diff/";
-    
+
+    /** Baselines keyed by test name, browser and screenshot size */
+    private static final Path BASELINE_DIR = Paths.get(BASELINE_PATH);
+    private static final BaselineIndex baselineIndex = BaselineIndex.open(BASELINE_DIR);
+
+    /** Directory path for storing baseline DOM snapshots */
+    private static final String DOM_BASELINE_PATH = "test-output/dom-baselines/";
+
+    /** Directory path for storing DOM snapshots that differed from their baseline */
+    private static final String DOM_ACTUAL_PATH = "test-output/dom-actual/";
+
+    /** DOM snapshots are gzipped JSON */
+    private static final String DOM_EXTENSION = ".dom.json.gz";
+
     // Static initialization block to create required directories
     static {
         createDirectories();
@@ -68,6 +91,8 @@ public class VisualTestingUtils {
             Files.createDirectories(Paths.get(BASELINE_PATH));
             Files.createDirectories(Paths.get(ACTUAL_PATH));
             Files.createDirectories(Paths.get(DIFF_PATH));
+            Files.createDirectories(Paths.get(DOM_BASELINE_PATH));
+            Files.createDirectories(Paths.get(DOM_ACTUAL_PATH));
         } catch (IOException e) {
             log.error("Failed to create visual testing directories", e);
         }
@@ -87,40 +112,77 @@ public class VisualTestingUtils {
      * @param testName Unique identifier for the test/page being compared
      * @return true if images match within threshold, false otherwise
      */
-    @Step("Visual comparison: {testName}")
     public static boolean compareScreenshot(WebDriver driver, String testName) {
+        return compareScreenshot(driver, testName, VisualCompareOptions.defaults());
+    }
+    
+    /**
+     * Compares current screenshot with baseline image using the given options.
+     * 
+     * With tile hashing (the default), both images are split into tiles and only tiles whose
+     * hashes differ from the baseline's ".tiles" sidecar are diffed pixel by pixel; when every
+     * tile matches, the baseline image is not even decoded. Tiles touched by an ignore region
+     * are skipped.
+     * 
+     * @param driver The WebDriver instance to capture screenshot from
+     * @param testName Unique identifier for the test/page being compared
+     * @param options Threshold, tolerance, tiling and ignore regions
+     * @return true if images match within threshold, false otherwise
+     */
+    @Step("Visual comparison: {testName}")
+    public static boolean compareScreenshot(WebDriver driver, String testName, VisualCompareOptions options) {
         try {
             byte[] actualScreenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            String actualPath = ACTUAL_PATH + testName + ".png";
-            String baselinePath = BASELINE_PATH + testName + ".png";
+            // Resolve locators right after the capture so the regions match what was rendered
+            List<Rectangle> ignoredRegions = options.resolveIgnoredRegions(driver);
+            BufferedImage actualImage = ImageIO.read(new ByteArrayInputStream(actualScreenshot));
+            
+            // Baselines are kept per browser and screenshot size, so parallel browsers do not clash
+            BaselineIndex.Key key = BaselineIndex.Key.of(testName, driver, actualImage);
+            Path actualPath = Paths.get(ACTUAL_PATH + key.stem() + ".png");
             
-            // Save actual screenshot
-            Files.write(Paths.get(actualPath), actualScreenshot);
+            // Save actual screenshot, with its ignore regions for offline re-diffing (VisualDiffCli)
+            Files.write(actualPath, actualScreenshot);
+            VisualCompareOptions.writeResolvedRegions(actualPath, ignoredRegions);
+            
+            TileHashes actualTiles = TileHashes.of(actualImage, options.getTileSize());
+            Path baselinePath = baselineIndex.resolve(key);
             
             // Check if baseline exists
-            if (!Files.exists(Paths.get(baselinePath))) {
-                log.warn("Baseline image not found for '{}'. Creating baseline from current screenshot.", testName);
-                Files.copy(Paths.get(actualPath), Paths.get(baselinePath));
-                attachScreenshot(actualScreenshot, "Baseline Created: " + testName);
+            if (baselinePath == null) {
+                // A baseline of this test and browser at another size means the page size changed, not a new page
+                BaselineIndex.Match other = baselineIndex.otherViewport(key, PerceptualHash.of(actualImage));
+                if (other != null) {
+                    log.error("❌ Visual comparison failed for '{}': screenshot size changed, baseline is '{}'"
+                        + " (update the baseline if intended)", key.stem(), other.entry().key().stem());
+                    attachScreenshot(Files.readAllBytes(BASELINE_DIR.resolve(other.entry().file())),
+                        "Baseline: " + testName, testName);
+                    attachScreenshot(actualScreenshot, "Actual: " + testName, testName);
+                    return false;
+                }
+                log.warn("Baseline image not found for '{}'. Creating baseline from current screenshot.", key.stem());
+                baselineIndex.store(key, actualScreenshot, actualImage, actualTiles);
+                attachScreenshot(actualScreenshot, "Baseline Created: " + testName, testName);
                 return true;
             }
             
             // Compare images
-            BufferedImage baselineImage = ImageIO.read(new File(baselinePath));
-            BufferedImage actualImage = ImageIO.read(new ByteArrayInputStream(actualScreenshot));
-            
-            boolean imagesMatch = compareImages(baselineImage, actualImage, testName);
+            ImageComparator.Result result = ImageComparator.compareToBaseline(baselinePath, actualImage, actualTiles,
+                ignoredRegions, options);
+            log.info("Visual comparison for '{}': {}% pixels differ", key.stem(), String.format("%.2f", result.diffPercentage()));
+            boolean imagesMatch = result.matches(options.getMaxDiffPercentage());
             
             if (imagesMatch) {
-                log.info("✅ Visual comparison passed for '{}'", testName);
-                attachScreenshot(actualScreenshot, "Visual Test Passed: " + testName);
+                log.info("✅ Visual comparison passed for '{}'", key.stem());
+                attachScreenshot(actualScreenshot, "Visual Test Passed: " + testName, testName);
             } else {
-                log.error("❌ Visual comparison failed for '{}'", testName);
-                attachScreenshot(Files.readAllBytes(Paths.get(baselinePath)), "Baseline: " + testName);
-                attachScreenshot(actualScreenshot, "Actual: " + testName);
+                log.error("❌ Visual comparison failed for '{}': perceptual hash {} bits from baseline", key.stem(),
+                    baselineIndex.distance(key, PerceptualHash.of(actualImage)));
+                attachScreenshot(Files.readAllBytes(baselinePath), "Baseline: " + testName, testName);
+                attachScreenshot(actualScreenshot, "Actual: " + testName, testName);
                 
-                // Create diff image if possible
-                createDiffImage(baselineImage, actualImage, testName);
+                // The diff image was built in the comparison pass; only encode it on failure
+                saveDiffImage(result.diffImage(), key.stem());
             }
             
             return imagesMatch;
@@ -131,61 +193,15 @@ public class VisualTestingUtils {
         }
     }
     
-    private static boolean compareImages(BufferedImage baseline, BufferedImage actual, String testName) {
-        if (baseline.getWidth() != actual.getWidth() || baseline.getHeight() != actual.getHeight()) {
-            log.warn("Image dimensions differ for '{}': Baseline({}x{}), Actual({}x{})", 
-                testName, baseline.getWidth(), baseline.getHeight(), actual.getWidth(), actual.getHeight());
-            return false;
-        }
-        
-        int width = baseline.getWidth();
-        int height = baseline.getHeight();
-        int diffPixels = 0;
-        int totalPixels = width * height;
-        
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (baseline.getRGB(x, y) != actual.getRGB(x, y)) {
-                    diffPixels++;
-                }
-            }
-        }
-        
-        double diffPercentage = (double) diffPixels / totalPixels * 100;
-        log.info("Visual comparison for '{}': {:.2f}% pixels differ", testName, diffPercentage);
-        
-        // Allow 1% difference threshold
-        return diffPercentage <= 1.0;
-    }
-    
-    private static void createDiffImage(BufferedImage baseline, BufferedImage actual, String testName) {
+    private static void saveDiffImage(BufferedImage diffImage, String testName) {
         try {
-            int width = Math.min(baseline.getWidth(), actual.getWidth());
-            int height = Math.min(baseline.getHeight(), actual.getHeight());
-            
-            BufferedImage diffImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            ByteArrayOutputStream diffPng = new ByteArrayOutputStream();
+            ImageIO.write(diffImage, "PNG", diffPng);
+            byte[] diffBytes = diffPng.toByteArray();
             
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    int baselinePixel = baseline.getRGB(x, y);
-                    int actualPixel = actual.getRGB(x, y);
-                    
-                    if (baselinePixel != actualPixel) {
-                        // Highlight differences in red
-                        diffImage.setRGB(x, y, 0xFF0000);
-                    } else {
-                        // Keep original pixel
-                        diffImage.setRGB(x, y, baselinePixel);
-                    }
-                }
-            }
-            
-            String diffPath = DIFF_PATH + testName + "_diff.png";
-            ImageIO.write(diffImage, "PNG", new File(diffPath));
-            
-            // Attach diff image to Allure
-            byte[] diffBytes = Files.readAllBytes(Paths.get(diffPath));
-            attachScreenshot(diffBytes, "Diff Image: " + testName);
+            // Save and attach the encoded bytes; no need to read the file back
+            ArtifactPipeline.writeFile(Paths.get(DIFF_PATH + testName + "_diff.png"), diffBytes);
+            attachScreenshot(diffBytes, "Diff Image: " + testName, testName);
             
         } catch (Exception e) {
             log.error("Failed to create diff image for '{}': {}", testName, e.getMessage());
@@ -196,17 +212,94 @@ public class VisualTestingUtils {
     public static void updateBaseline(WebDriver driver, String testName) {
         try {
             byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            String baselinePath = BASELINE_PATH + testName + ".png";
-            Files.write(Paths.get(baselinePath), screenshot);
+            // Precompute tile hashes and the decoded baseline so the next comparison only decodes the actual screenshot
+            BufferedImage baselineImage = ImageIO.read(new ByteArrayInputStream(screenshot));
+            baselineIndex.store(BaselineIndex.Key.of(testName, driver, baselineImage), screenshot, baselineImage,
+                TileHashes.of(baselineImage, VisualCompareOptions.defaults().getTileSize()));
             log.info("✅ Baseline updated for '{}'", testName);
-            attachScreenshot(screenshot, "Updated Baseline: " + testName);
+            attachScreenshot(screenshot, "Updated Baseline: " + testName, testName);
         } catch (Exception e) {
             log.error("Failed to update baseline for '{}': {}", testName, e.getMessage());
         }
     }
     
-    @Attachment(value = "{attachmentName}", type = "image/png")
-    private static byte[] attachScreenshot(byte[] screenshot, String attachmentName) {
-        return screenshot;
+    /**
+     * Compares the page body's DOM structure with its stored DOM snapshot.
+     *
+     * @param driver The WebDriver instance to snapshot
+     * @param testName Unique identifier for the test/page being compared
+     * @return true if the snapshots are structurally equal, false otherwise
+     */
+    public static boolean compareDomSnapshot(WebDriver driver, String testName) {
+        return compareDomSnapshot(driver, null, testName, DomSnapshot.Options.defaults());
+    }
+
+    /**
+     * Compares the DOM structure under root (the page body when null) with its stored snapshot.
+     *
+     * A much cheaper check than a screenshot for layout and content regressions: one script
+     * call, a few kilobytes on disk, and an unchanged page costs a single hash comparison.
+     * Only on mismatch is the baseline parsed and a structural diff attached to the report.
+     *
+     * @param driver The WebDriver instance to snapshot
+     * @param root Locator of the subtree to snapshot, or null for the whole body
+     * @param testName Unique identifier for the test/page being compared
+     * @param options Recorded attributes, computed styles and ignored elements
+     * @return true if the snapshots are structurally equal, false otherwise
+     */
+    @Step("DOM snapshot comparison: {testName}")
+    public static boolean compareDomSnapshot(WebDriver driver, By root, String testName, DomSnapshot.Options options) {
+        try {
+            DomSnapshot actual = DomSnapshot.capture(driver, root == null ? null : driver.findElement(root), options);
+            Path baselinePath = Paths.get(DOM_BASELINE_PATH + testName + DOM_EXTENSION);
+
+            if (!Files.exists(baselinePath)) {
+                log.warn("DOM snapshot not found for '{}'. Creating it from the current page ({} nodes).",
+                    testName, actual.nodeCount());
+                actual.save(baselinePath);
+                return true;
+            }
+
+            // Equal root hashes mean equal trees; the baseline tree is only parsed on mismatch
+            if (actual.rootHash().equals(DomSnapshot.readRootHash(baselinePath))) {
+                log.info("✅ DOM snapshot matched for '{}' ({} nodes)", testName, actual.nodeCount());
+                return true;
+            }
+
+            List<String> changes = actual.diff(DomSnapshot.load(baselinePath));
+            if (changes.isEmpty()) {
+                log.info("✅ DOM snapshot matched for '{}' ({} nodes)", testName, actual.nodeCount());
+                return true;
+            }
+            log.error("❌ DOM snapshot differs for '{}': {} change(s)", testName, changes.size());
+            changes.stream().limit(10).forEach(change -> log.error("   {}", change));
+            actual.save(Paths.get(DOM_ACTUAL_PATH + testName + DOM_EXTENSION));
+            ArtifactStore.attachToAllure(String.join("\n", changes).getBytes(StandardCharsets.UTF_8),
+                "DOM Diff: " + testName, "text/plain", "txt", testName);
+            return false;
+
+        } catch (Exception e) {
+            log.error("DOM snapshot comparison failed for '{}': {}", testName, e.getMessage());
+            return false;
+        }
+    }
+
+    @Step("Update DOM snapshot: {testName}")
+    public static void updateDomSnapshot(WebDriver driver, By root, String testName, DomSnapshot.Options options) {
+        try {
+            DomSnapshot snapshot = DomSnapshot.capture(driver, root == null ? null : driver.findElement(root), options);
+            snapshot.save(Paths.get(DOM_BASELINE_PATH + testName + DOM_EXTENSION));
+            log.info("✅ DOM snapshot updated for '{}' ({} nodes)", testName, snapshot.nodeCount());
+        } catch (Exception e) {
+            log.error("Failed to update DOM snapshot for '{}': {}", testName, e.getMessage());
+        }
+    }
+
+    /**
+     * Attaches an image through the artifact store, so an image identical to one already
+     * attached (same page in several tests, unchanged baseline) reuses the existing attachment.
+     */
+    private static void attachScreenshot(byte[] screenshot, String attachmentName, String testName) {
+        ArtifactStore.attachToAllure(screenshot, attachmentName, "image/png", "png", testName);
     }
 }
\ No newline at end of file